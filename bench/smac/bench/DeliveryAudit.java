@@ -0,0 +1,295 @@
+package smac.bench;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import smac.util.SmacFileUtils;
+import smac.util.SmacSegmentLog;
+
+/**
+ * DeliveryAudit counts the copies of the messages dropped by the load generator which are found in a set of
+ * directories, whether they are plain EML files, entries of zip or tar archives or records of segment logs, so that
+ * lost and duplicate messages can be reported.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class DeliveryAudit {
+
+    // Naming of the dropped message files
+    private static final String FILE_PREFIX = "load-";
+    private static final String FILE_SUFFIX = ".eml";
+
+    // Tar archive constants
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_LENGTH = 100;
+    private static final int TAR_SIZE_LENGTH = 12;
+    private static final int TAR_SIZE_OFFSET = 124;
+
+    // Class attributes
+    private final int[] counts;
+
+    /**
+     * DeliveryAudit constructor
+     *
+     * @param messages Number of messages dropped by the load generator
+     */
+    public DeliveryAudit(int messages) {
+
+        // Initialise class attributes
+        this.counts = new int[messages];
+    }
+
+    /**
+     * Get the name of the file of a dropped message
+     *
+     * @param sequence Sequence number of the message
+     * @return Name of the message file
+     */
+    public static String getFileName(int sequence) {
+        return FILE_PREFIX + String.format("%09d", sequence) + FILE_SUFFIX;
+    }
+
+    /**
+     * Get the sequence number of a dropped message from the name of its file
+     *
+     * @param name Name of the file, possibly preceded by a path
+     * @return Sequence number of the message or -1 if the file is not a dropped message
+     */
+    public static int getSequence(String name) {
+
+        // The file may be stored below a shard directory
+        String fileName = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of copies of a message found so far
+     *
+     * @param sequence Sequence number of the message
+     * @return Number of copies of the message
+     */
+    public int getCount(int sequence) {
+        return this.counts[sequence];
+    }
+
+    /**
+     * Count the messages found in a directory and its subdirectories
+     *
+     * @param directory Directory which is scanned
+     * @throws IOException
+     */
+    public void scan(Path directory) throws IOException {
+
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            /**
+             * Count the messages held by a file
+             */
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+
+                // Name of the file
+                String name = file.getFileName().toString();
+
+                // Archives and segments which are still being written are counted once sealed
+                if (name.endsWith(SmacFileUtils.PARTIAL_FILE_SUFFIX)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                if (name.endsWith(".zip")) {
+                    scanZip(file);
+                } else if (name.endsWith(".tar")) {
+                    scanTar(file);
+                } else if (name.endsWith(SmacSegmentLog.INDEX_SUFFIX)) {
+                    scanSegment(file);
+                } else {
+                    count(name);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Count a copy of a message
+     *
+     * @param name Name of the message file
+     */
+    private void count(String name) {
+
+        // Sequence number of the message
+        int sequence = getSequence(name);
+
+        if (sequence >= 0 && sequence < this.counts.length) {
+            this.counts[sequence]++;
+        }
+    }
+
+    /**
+     * Count the records of a segment log through its index
+     *
+     * @param indexFile Index file of the segment
+     * @throws IOException
+     */
+    private void scanSegment(Path indexFile) throws IOException {
+
+        // Segment file of the index
+        String indexName = indexFile.getFileName().toString();
+        Path segmentFile = indexFile.resolveSibling(indexName.substring(0,
+                indexName.length() - SmacSegmentLog.INDEX_SUFFIX.length()) + SmacSegmentLog.SEGMENT_SUFFIX);
+
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ);
+                FileChannel segment = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+
+            ByteBuffer entry = ByteBuffer.allocate(SmacSegmentLog.INDEX_ENTRY_SIZE);
+            ByteBuffer nameLength = ByteBuffer.allocate(4);
+
+            // Each complete record has an index entry holding its offset in the segment file
+            for (long position = 0; position + SmacSegmentLog.INDEX_ENTRY_SIZE <= index.size();
+                    position += SmacSegmentLog.INDEX_ENTRY_SIZE) {
+
+                entry.clear();
+                readFully(index, entry, position);
+                long offset = entry.getLong(0);
+
+                nameLength.clear();
+                readFully(segment, nameLength, offset);
+
+                ByteBuffer name = ByteBuffer.allocate(nameLength.getInt(0));
+                readFully(segment, name, offset + 4);
+
+                this.count(new String(name.array(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Count the entries of a tar archive
+     *
+     * @param archive Tar archive
+     * @throws IOException
+     */
+    private void scanTar(Path archive) throws IOException {
+
+        try (DataInputStream source = new DataInputStream(new BufferedInputStream(Files.newInputStream(archive)))) {
+
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+            for (;;) {
+
+                source.readFully(header);
+
+                // The archive ends with empty blocks
+                if (header[0] == 0) {
+                    return;
+                }
+
+                this.count(readTarString(header, 0, TAR_NAME_LENGTH));
+
+                // Skip the content of the entry which is padded to whole blocks
+                long size = Long.parseLong(readTarString(header, TAR_SIZE_OFFSET, TAR_SIZE_LENGTH).trim(), 8);
+                skipFully(source, (size + TAR_BLOCK_SIZE - 1) / TAR_BLOCK_SIZE * TAR_BLOCK_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Count the entries of a zip archive
+     *
+     * @param archive Zip archive
+     * @throws IOException
+     */
+    private void scanZip(Path archive) throws IOException {
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                this.count(entries.nextElement().getName());
+            }
+        }
+    }
+
+    /**
+     * Read a NUL terminated ASCII field of a tar header
+     *
+     * @param header Tar header block
+     * @param offset Offset of the field
+     * @param length Length of the field
+     * @return Value of the field
+     */
+    private static String readTarString(byte[] header, int offset, int length) {
+
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+
+        return new String(header, offset, end - offset, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Fill a buffer from a file channel
+     *
+     * @param channel File channel
+     * @param buffer Buffer which is filled
+     * @param position Position in the file of the first byte read
+     * @throws IOException
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Skip bytes of an input stream
+     *
+     * @param source Input stream
+     * @param n Number of bytes to skip
+     * @throws IOException
+     */
+    private static void skipFully(InputStream source, long n) throws IOException {
+
+        for (long skipped = 0; skipped < n;) {
+
+            long count = source.skip(n - skipped);
+            if (count <= 0) {
+                throw new EOFException();
+            }
+
+            skipped += count;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package smac.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import smac.util.SmacEmlUtils;
+
+/**
+ * EmlLoadBenchmark measures the throughput and the latency of the loading of synthetic SEPAmail message container
+ * files of various sizes and structures, together with the number of bytes read from each file. Header-only parsers of
+ * the SEPAmail message container are benchmarked by adding their own methods against the same corpus.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmlLoadBenchmark {
+
+    // Approximate size in bytes of the SEPAmail message container file, from 2 KB to 50 MB
+    @Param({ "2048", "65536", "1048576", "10485760", "52428800" })
+    public long size;
+
+    // Structure of the SEPAmail message
+    @Param({ "SINGLE_PART", "MULTIPART_XML", "FOLDED_HEADERS", "ENCODED_NAMES" })
+    public SyntheticEml.Structure structure;
+
+    // Benchmark attributes
+    private File file;
+
+    /**
+     * Write the synthetic SEPAmail message container file which is loaded
+     *
+     * @throws IOException
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        this.file = Files.createTempFile("smac-bench", ".eml").toFile();
+        SyntheticEml.write(this.file, this.structure, this.size, "sender@bank.example", "recipient@bank.example");
+    }
+
+    /**
+     * Delete the synthetic SEPAmail message container file
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    /**
+     * Load the SEPAmail message container file as the routing controller does
+     *
+     * @return Parsed SEPAmail message
+     * @throws IOException
+     * @throws MessagingException
+     */
+    @Benchmark
+    public MimeMessage loadEml() throws IOException, MessagingException {
+        return SmacEmlUtils.loadEml(this.file);
+    }
+
+    /**
+     * Load the SEPAmail message container file and count the bytes read from it
+     *
+     * @param counters Bytes read counters
+     * @return Parsed SEPAmail message
+     * @throws IOException
+     * @throws MessagingException
+     */
+    @Benchmark
+    public MimeMessage loadEmlBytesRead(BytesRead counters) throws IOException, MessagingException {
+
+        try (CountingInputStream source = new CountingInputStream(new FileInputStream(this.file))) {
+
+            MimeMessage message = SmacEmlUtils.loadEml(source);
+
+            counters.bytes += source.getCount();
+            counters.messages++;
+
+            return message;
+        }
+    }
+
+    /**
+     * BytesRead holds the number of bytes read from the SEPAmail message container files and the number of loaded
+     * messages, whose ratio is the number of bytes read per message.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BytesRead {
+
+        // Counters reported by JMH
+        public long bytes;
+        public long messages;
+
+        /**
+         * Reset the counters at the start of each iteration
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.bytes = 0;
+            this.messages = 0;
+        }
+    }
+
+    /**
+     * CountingInputStream counts the bytes read from an input stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        // Class attributes
+        private long count;
+
+        /**
+         * CountingInputStream constructor
+         *
+         * @param source Input stream whose bytes are counted
+         */
+        private CountingInputStream(InputStream source) {
+
+            // Initialise class attributes
+            super(source);
+            this.count = 0;
+        }
+
+        /**
+         * Get the number of bytes read so far
+         *
+         * @return Number of bytes read
+         */
+        private long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Read a byte
+         *
+         * @return Byte read or -1 at the end of the stream
+         * @throws IOException
+         */
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+            if (b >= 0) {
+                this.count++;
+            }
+
+            return b;
+        }
+
+        /**
+         * Read bytes into a buffer
+         *
+         * @param buffer Buffer into which the bytes are read
+         * @param offset Offset in the buffer of the first byte read
+         * @param length Maximum number of bytes to read
+         * @return Number of bytes read or -1 at the end of the stream
+         * @throws IOException
+         */
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                this.count += read;
+            }
+
+            return read;
+        }
+
+        /**
+         * Skip bytes, which are counted as read
+         *
+         * @param n Number of bytes to skip
+         * @return Number of bytes skipped
+         * @throws IOException
+         */
+        @Override
+        public long skip(long n) throws IOException {
+
+            long skipped = super.skip(n);
+            this.count += skipped;
+
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package smac.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import smac.Smac;
+import smac.exception.InvalidConfigurationFileException;
+import smac.exception.InvalidQueueTypeNameException;
+import smac.model.Config;
+import smac.model.InputQueue;
+import smac.model.OutputQueue;
+import smac.util.SmacConfigReader;
+import smac.util.SmacHistogram;
+import smac.util.SmacQueueTypeUtils;
+
+/**
+ * LoadGenerator starts the SMAC daemon in its own JVM against temporary copies of the queue directories of a given
+ * configuration file, drops synthetic SEPAmail messages into its input queues at a given rate and burst pattern, and
+ * reports the delivery rate, the latency from the arrival of a message in its input queue to its hand over to its
+ * output queue, the CPU and file descriptors used, and the lost and duplicate messages. Running it at increasing rates
+ * finds the saturation point of the configuration.
+ *
+ * The load generator must be run from a working directory of its own since the SMAC daemon reads its configuration
+ * file from conf/smac.properties in the working directory.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class LoadGenerator {
+
+    // Load generator constants
+    private static final String CONFIG_COMMENT = "Written by the SMAC load generator";
+    private static final long READY_TIMEOUT = 30000;
+    private static final long SAMPLE_INTERVAL = 1000;
+
+    // Default options
+    private static final int DEFAULT_BURST = 1;
+    private static final long DEFAULT_DRAIN = 60;
+    private static final long DEFAULT_DURATION = 60;
+    static final String DEFAULT_FROM = "sender@bank.example";
+    private static final double DEFAULT_RATE = 100;
+    private static final long DEFAULT_SIZE = 4096;
+    static final String DEFAULT_TO = "recipient@bank.example";
+
+    // Class attributes
+    private final int burst;
+    private final AtomicLongArray dropTimes;
+    private final long drain;
+    private final AtomicLongArray handOverTimes;
+    private final AtomicInteger handedOver;
+    private final ArrayList<InputQueue> inputQueues;
+    private final AtomicLong lastHandOverTime;
+    private final SmacHistogram latency;
+    private final int messages;
+    private final double rate;
+    private final ProcessSampler sampler;
+    private final Path stagingDirectory;
+
+    /**
+     * LoadGenerator constructor
+     *
+     * @param inputQueues SMAC input queues into which the messages are dropped
+     * @param stagingDirectory Directory in which the messages are written before they are dropped
+     * @param messages Number of messages dropped
+     * @param rate Number of messages dropped per second
+     * @param burst Number of messages dropped at once
+     * @param drain Time in seconds given to the SMAC daemon to hand the messages over once they have been dropped
+     */
+    public LoadGenerator(ArrayList<InputQueue> inputQueues, Path stagingDirectory, int messages, double rate,
+            int burst, long drain) {
+
+        // Initialise class attributes
+        this.burst = burst;
+        this.dropTimes = new AtomicLongArray(messages);
+        this.drain = drain;
+        this.handOverTimes = new AtomicLongArray(messages);
+        this.handedOver = new AtomicInteger();
+        this.inputQueues = inputQueues;
+        this.lastHandOverTime = new AtomicLong();
+        this.latency = new SmacHistogram();
+        this.messages = messages;
+        this.rate = rate;
+        this.sampler = new ProcessSampler();
+        this.stagingDirectory = stagingDirectory;
+    }
+
+    /**
+     * Load generator entry point
+     *
+     * @param args Configuration file to load test followed by options written as name=value: rate (messages per
+     * second), burst (messages dropped at once), duration (seconds), size (bytes per message), structure (of the
+     * messages), from and to (addresses of the messages), queues (comma separated input queues) and drain (seconds)
+     */
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+
+            System.out.println("Usage: LoadGenerator <smac.properties> [rate=<messages per second>] "
+                    + "[burst=<messages>] [duration=<seconds>] [size=<bytes>] [structure=<structure>] "
+                    + "[from=<address>] [to=<address>] [queues=<queue,...>] [drain=<seconds>]");
+            System.exit(2);
+        }
+
+        try {
+
+            // Options of the load test
+            Map<String, String> options = parseOptions(args);
+            double rate = Double.parseDouble(getOption(options, "rate", Double.toString(DEFAULT_RATE)));
+            int burst = Integer.parseInt(getOption(options, "burst", Integer.toString(DEFAULT_BURST)));
+            long duration = Long.parseLong(getOption(options, "duration", Long.toString(DEFAULT_DURATION)));
+            long size = Long.parseLong(getOption(options, "size", Long.toString(DEFAULT_SIZE)));
+            SyntheticEml.Structure structure = SyntheticEml.Structure.valueOf(getOption(options, "structure",
+                    SyntheticEml.Structure.SINGLE_PART.name()));
+            String from = getOption(options, "from", DEFAULT_FROM);
+            String to = getOption(options, "to", DEFAULT_TO);
+            long drain = Long.parseLong(getOption(options, "drain", Long.toString(DEFAULT_DRAIN)));
+
+            if (rate <= 0 || burst < 1 || duration < 1 || size < 1 || drain < 0) {
+                throw new IllegalArgumentException("The rate, burst, duration, size and drain must be positive.");
+            }
+
+            // Temporary copies of the queue directories of the configuration
+            Path root = Files.createTempDirectory("smac-load");
+            writeConfig(Paths.get(args[0]), root);
+            Config config = new SmacConfigReader(Smac.CONFIG_FILENAME).parse();
+
+            // Input queues into which the messages are dropped
+            ArrayList<InputQueue> inputQueues = getInputQueues(config, options.get("queues"));
+
+            // The messages are written beforehand so that writing them is neither timed nor accounted for
+            int messages = (int)Math.min(Integer.MAX_VALUE, Math.ceil(rate * duration));
+            Path stagingDirectory = Files.createDirectories(root.resolve("staging"));
+
+            System.out.println("Writing " + messages + " messages of " + size + " bytes to " + stagingDirectory);
+            for (int i = 0; i < messages; i++) {
+                SyntheticEml.write(stagingDirectory.resolve(DeliveryAudit.getFileName(i)).toFile(), structure, size,
+                        from, to);
+            }
+
+            LoadGenerator generator = new LoadGenerator(inputQueues, stagingDirectory, messages, rate, burst, drain);
+
+            // Fail the load test if messages were lost or duplicated
+            System.exit(generator.run(config) ? 0 : 1);
+
+        } catch (InvalidConfigurationFileException | IOException | InvalidQueueTypeNameException
+                | IllegalArgumentException | IllegalStateException | InterruptedException e) {
+
+            // Display error on console
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Start the SMAC daemon, drop the messages, wait for their hand over and report the results of the load test
+     *
+     * @param config SMAC daemon configuration of the load test
+     * @return Whether every message was handed over exactly once or is still pending
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean run(Config config) throws IOException, InterruptedException {
+
+        // Start the SMAC daemon in the running JVM and wait until its input queues are watched
+        Smac.main(new String[0]);
+        waitUntilReady();
+
+        // Resources used before the load test
+        long startCpuTime = this.sampler.getCpuTime();
+        final long startFileDescriptors = this.sampler.getOpenFileDescriptors();
+        final AtomicLong maxFileDescriptors = new AtomicLong(startFileDescriptors);
+        final AtomicLong maxThreads = new AtomicLong(this.sampler.getThreadCount());
+
+        // Sample the open file descriptors and live threads during the load test
+        Timer samplerTimer = new Timer("Load sampler thread", true);
+        samplerTimer.schedule(new TimerTask() {
+
+            /**
+             * Record the largest numbers of open file descriptors and live threads
+             */
+            @Override
+            public void run() {
+                updateMax(maxFileDescriptors, sampler.getOpenFileDescriptors());
+                updateMax(maxThreads, sampler.getThreadCount());
+            }
+        }, 0, SAMPLE_INTERVAL);
+
+        // Watch the input queues for the messages which are handed over to their output queue
+        final WatchService watchService = FileSystems.getDefault().newWatchService();
+        final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+        for (InputQueue inputQueue : this.inputQueues) {
+
+            Path directory = Paths.get(inputQueue.getQueueDirectory());
+            watchedDirectories.put(directory.register(watchService, StandardWatchEventKinds.ENTRY_DELETE), directory);
+        }
+
+        Thread collector = new Thread(new Runnable() {
+
+            /**
+             * Record the hand over of the messages until every message has been handed over or the thread is
+             * interrupted
+             */
+            @Override
+            public void run() {
+                collect(watchService, watchedDirectories);
+            }
+        }, "Load collector thread");
+        collector.setDaemon(true);
+        collector.start();
+
+        // Drop the messages
+        System.out.println("Dropping " + this.messages + " messages at " + this.rate + " messages per second in "
+                + "bursts of " + this.burst + " into " + this.inputQueues.size() + " input queues");
+        long maxDropLag = this.drop();
+        long lastDropTime = System.nanoTime();
+
+        // Give the SMAC daemon some time to hand the remaining messages over
+        collector.join(TimeUnit.SECONDS.toMillis(this.drain));
+        collector.interrupt();
+        collector.join();
+        watchService.close();
+        samplerTimer.cancel();
+
+        // Resources used during the load test
+        long cpuTime = this.sampler.getCpuTime() - startCpuTime;
+        long firstDropTime = this.dropTimes.get(0);
+        long lastHandOverTime = this.lastHandOverTime.get();
+
+        // Find the copies of the messages in the output queues, dead letter directories and input queues
+        DeliveryAudit delivered = new DeliveryAudit(this.messages);
+        for (OutputQueue outputQueue : config.getOutputQueues()) {
+            delivered.scan(outputQueue.getQueuePath());
+        }
+
+        DeliveryAudit deadLettered = new DeliveryAudit(this.messages);
+        DeliveryAudit pending = new DeliveryAudit(this.messages);
+        for (InputQueue inputQueue : this.inputQueues) {
+
+            if (inputQueue.getDeadLetterDirectory() != null) {
+                deadLettered.scan(Paths.get(inputQueue.getDeadLetterDirectory()));
+            }
+
+            pending.scan(Paths.get(inputQueue.getQueueDirectory()));
+        }
+
+        int deliveredCount = 0;
+        int deadLetteredCount = 0;
+        int duplicateCount = 0;
+        int lostCount = 0;
+        int pendingCount = 0;
+        for (int i = 0; i < this.messages; i++) {
+
+            // Copies of the message which have left its input queue
+            int copies = delivered.getCount(i) + deadLettered.getCount(i);
+
+            if (copies > 1) {
+                duplicateCount++;
+            } else if (delivered.getCount(i) == 1) {
+                deliveredCount++;
+            } else if (deadLettered.getCount(i) == 1) {
+                deadLetteredCount++;
+            } else if (pending.getCount(i) > 0) {
+                pendingCount++;
+            } else {
+                lostCount++;
+            }
+        }
+
+        // Report the results of the load test
+        double elapsed = (lastHandOverTime - firstDropTime) / 1e9;
+        double dropElapsed = (lastDropTime - firstDropTime) / 1e9;
+
+        System.out.println();
+        System.out.println("SMAC load test report");
+        System.out.println(String.format(Locale.ROOT, "Offered rate:       %.1f messages/s (%.1f achieved, "
+                + "max lag %.1f ms)", this.rate, dropElapsed > 0 ? this.messages / dropElapsed : 0,
+                maxDropLag / 1e6));
+        System.out.println("Dropped:            " + this.messages);
+        System.out.println("Handed over:        " + this.handedOver.get());
+        System.out.println("Delivered:          " + deliveredCount);
+        System.out.println("Dead-lettered:      " + deadLetteredCount);
+        System.out.println("Pending:            " + pendingCount);
+        System.out.println("Lost:               " + lostCount);
+        System.out.println("Duplicates:         " + duplicateCount);
+        System.out.println(String.format(Locale.ROOT, "Delivery rate:      %.1f messages/s",
+                elapsed > 0 ? this.handedOver.get() / elapsed : 0));
+        System.out.println(String.format(Locale.ROOT, "Latency:            p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, "
+                + "max %.3f ms", this.latency.getPercentile(50) / 1e3, this.latency.getPercentile(99) / 1e3,
+                this.latency.getPercentile(99.9) / 1e3, this.latency.getMax() / 1e3));
+        System.out.println(String.format(Locale.ROOT, "CPU:                %.2f s (%.1f %% of a core)", cpuTime / 1e9,
+                elapsed > 0 ? cpuTime / 1e7 / elapsed : 0));
+        System.out.println("File descriptors:   " + startFileDescriptors + " before, " + maxFileDescriptors.get()
+                + " max");
+        System.out.println("Threads:            " + maxThreads.get() + " max");
+
+        return lostCount == 0 && duplicateCount == 0;
+    }
+
+    /**
+     * Record the hand over of the messages removed from their input queue
+     *
+     * @param watchService Watch service of the input queue directories
+     * @param watchedDirectories Input queue directories by watch key
+     */
+    @SuppressWarnings("unchecked")
+    private void collect(WatchService watchService, Map<WatchKey, Path> watchedDirectories) {
+
+        while (this.handedOver.get() < this.messages) {
+
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Time at which the messages were noticed
+            long now = System.nanoTime();
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+
+                // Events were lost so the input queue is listed instead
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    this.recover(watchedDirectories.get(key), now);
+                    continue;
+                }
+
+                this.recordHandOver(DeliveryAudit.getSequence(((WatchEvent<Path>)event).context().toString()), now);
+            }
+
+            key.reset();
+        }
+    }
+
+    /**
+     * Drop the messages into the input queues at the required rate
+     *
+     * @return Largest delay in nanoseconds with which a burst was dropped
+     * @throws IOException
+     */
+    private long drop() throws IOException {
+
+        // Time at which the first burst is dropped
+        long start = System.nanoTime();
+        long maxLag = 0;
+
+        for (int i = 0; i < this.messages; i += this.burst) {
+
+            // Wait for the time of the burst
+            long burstTime = start + (long)(i / this.rate * 1e9);
+            long wait = burstTime - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            maxLag = Math.max(maxLag, System.nanoTime() - burstTime);
+
+            // The messages are renamed into their input queue so that they appear complete
+            for (int j = i; j < Math.min(i + this.burst, this.messages); j++) {
+
+                String name = DeliveryAudit.getFileName(j);
+                Path inputQueue = Paths.get(this.inputQueues.get(j % this.inputQueues.size()).getQueueDirectory());
+
+                this.dropTimes.set(j, System.nanoTime());
+                Files.move(this.stagingDirectory.resolve(name), inputQueue.resolve(name),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        return maxLag;
+    }
+
+    /**
+     * Record the hand over of the messages which are no longer in an input queue after watch events were lost
+     *
+     * @param directory Input queue directory
+     * @param now Time at which the loss of events was noticed
+     */
+    private void recover(Path directory, long now) {
+
+        for (int i = 0; i < this.messages; i++) {
+
+            // Only the messages dropped into the directory which have not been handed over yet are checked
+            if (this.dropTimes.get(i) != 0 && this.handOverTimes.get(i) == 0
+                    && directory.equals(this.getInputQueueDirectory(i))
+                    && !Files.exists(directory.resolve(DeliveryAudit.getFileName(i)))) {
+                this.recordHandOver(i, now);
+            }
+        }
+    }
+
+    /**
+     * Record the hand over of a message
+     *
+     * @param sequence Sequence number of the message or -1 if the removed file is not a message
+     * @param now Time at which the hand over was noticed
+     */
+    private void recordHandOver(int sequence, long now) {
+
+        if (sequence < 0 || sequence >= this.messages || this.dropTimes.get(sequence) == 0
+                || !this.handOverTimes.compareAndSet(sequence, 0, now)) {
+            return;
+        }
+
+        // Latency from the arrival of the message in its input queue, in microseconds
+        this.latency.record((now - this.dropTimes.get(sequence)) / 1000);
+        this.lastHandOverTime.set(now);
+        this.handedOver.incrementAndGet();
+    }
+
+    /**
+     * Get the input queue directory into which a message is dropped
+     *
+     * @param sequence Sequence number of the message
+     * @return Input queue directory
+     */
+    private Path getInputQueueDirectory(int sequence) {
+
+        try {
+            return Paths.get(this.inputQueues.get(sequence % this.inputQueues.size()).getQueueDirectory());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Wait until the SMAC daemon watches all its input queues
+     *
+     * @throws InterruptedException
+     */
+    static void waitUntilReady() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + READY_TIMEOUT;
+        while (Smac.monitoringController == null || !Smac.monitoringController.isReady(new StringBuilder())) {
+
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("The SMAC daemon did not start within " + READY_TIMEOUT + " ms.");
+            }
+
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Get the active input queues into which the messages are dropped
+     *
+     * @param config SMAC daemon configuration
+     * @param queueNames Comma separated names of the input queues or null for every active input queue
+     * @return Input queues
+     * @throws InvalidQueueTypeNameException
+     */
+    static ArrayList<InputQueue> getInputQueues(Config config, String queueNames)
+            throws InvalidQueueTypeNameException {
+
+        ArrayList<InputQueue> inputQueues = new ArrayList<>();
+        for (InputQueue inputQueue : config.getInputQueues()) {
+            if (inputQueue.getIsActive()) {
+                inputQueues.add(inputQueue);
+            }
+        }
+
+        // Only keep the requested input queues
+        if (queueNames != null) {
+
+            ArrayList<InputQueue> requestedQueues = new ArrayList<>();
+            for (String queueName : queueNames.split(",")) {
+
+                int index = inputQueues.indexOf(new InputQueue(SmacQueueTypeUtils.getQueueType(queueName.trim())));
+                if (index < 0) {
+                    throw new IllegalArgumentException("The input queue " + queueName + " is not active.");
+                }
+
+                requestedQueues.add(inputQueues.get(index));
+            }
+
+            inputQueues = requestedQueues;
+        }
+
+        if (inputQueues.isEmpty()) {
+            throw new IllegalArgumentException("The configuration file has no active input queue.");
+        }
+
+        return inputQueues;
+    }
+
+    /**
+     * Get the value of an option
+     *
+     * @param options Options of the load test
+     * @param name Name of the option
+     * @param defaultValue Value of the option if it is not given
+     * @return Value of the option
+     */
+    static String getOption(Map<String, String> options, String name, String defaultValue) {
+        return options.containsKey(name) ? options.get(name) : defaultValue;
+    }
+
+    /**
+     * Parse the options of the load test written as name=value after the configuration file
+     *
+     * @param args Command line arguments
+     * @return Options of the load test
+     */
+    static Map<String, String> parseOptions(String[] args) {
+
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+
+            int separator = args[i].indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Invalid option " + args[i] + ".");
+            }
+
+            options.put(args[i].substring(0, separator), args[i].substring(separator + 1));
+        }
+
+        return options;
+    }
+
+    /**
+     * Update a maximum with a sample
+     *
+     * @param max Maximum
+     * @param sample Sample
+     */
+    private static void updateMax(AtomicLong max, long sample) {
+
+        for (long current = max.get(); sample > current; current = max.get()) {
+            if (max.compareAndSet(current, sample)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write the configuration file of the SMAC daemon in the working directory from the configuration file to load
+     * test, with every directory and file moved to a temporary directory
+     *
+     * @param template Configuration file to load test
+     * @param root Temporary directory
+     * @throws IOException
+     */
+    static void writeConfig(Path template, Path root) throws IOException {
+
+        // Never overwrite a configuration file which was not written by the load generator
+        Path configFile = Paths.get(Smac.CONFIG_FILENAME);
+        if (Files.exists(configFile)) {
+
+            try (BufferedReader reader = Files.newBufferedReader(configFile, StandardCharsets.ISO_8859_1)) {
+
+                String firstLine = reader.readLine();
+                if (firstLine == null || !firstLine.equals("#" + CONFIG_COMMENT)) {
+                    throw new IllegalStateException("The load generator must be run from a working directory of its "
+                            + "own: " + configFile.toAbsolutePath() + " already exists.");
+                }
+            }
+        }
+
+        Properties properties = new Properties();
+        try (InputStream source = new FileInputStream(template.toFile())) {
+            properties.load(source);
+        }
+
+        // Every file URL of the configuration is replaced by a path named after its key in the temporary directory
+        for (String key : properties.stringPropertyNames()) {
+
+            if (properties.getProperty(key).trim().startsWith("file://")) {
+
+                // Only the log and trace files are not directories
+                Path path = root.resolve(key);
+                if (!key.equals("log.out") && !key.equals("trace.out")) {
+                    Files.createDirectories(path);
+                }
+
+                properties.setProperty(key, path.toUri().toString());
+            }
+        }
+
+        Files.createDirectories(configFile.toAbsolutePath().getParent());
+        try (OutputStream target = new FileOutputStream(new File(Smac.CONFIG_FILENAME))) {
+            properties.store(target, CONFIG_COMMENT);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package smac.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * ProcessSampler samples the resources used by the running JVM, in which the SMAC daemon runs alongside the load
+ * generator: its CPU time, its open file descriptors, its live threads and its heap.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class ProcessSampler {
+
+    // Directory listing the file descriptors of the running process on Linux
+    private static final File PROC_SELF_FD = new File("/proc/self/fd");
+
+    // Class attributes
+    private final OperatingSystemMXBean operatingSystemMXBean;
+
+    /**
+     * ProcessSampler default constructor
+     */
+    public ProcessSampler() {
+
+        // Initialise class attributes
+        this.operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+    }
+
+    /**
+     * Get the CPU time used by the running JVM
+     *
+     * @return CPU time in nanoseconds or -1 if it cannot be measured
+     */
+    public long getCpuTime() {
+
+        // The process CPU time is a HotSpot extension
+        if (this.operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean)this.operatingSystemMXBean).getProcessCpuTime();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the heap used by the running JVM once its unreachable objects have been collected
+     *
+     * @return Used heap in bytes after a full garbage collection
+     */
+    public long getHeapUsedAfterGc() {
+
+        // Only the live objects remain once the whole heap has been collected
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        memoryMXBean.gc();
+
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Get the number of file descriptors opened by the running JVM
+     *
+     * @return Number of open file descriptors or -1 if they cannot be counted
+     */
+    public long getOpenFileDescriptors() {
+
+        // The file descriptors of the process are listed by the proc file system on Linux
+        String[] descriptors = PROC_SELF_FD.list();
+        if (descriptors != null) {
+
+            // The descriptor of the listed directory itself is not counted
+            return descriptors.length - 1;
+        }
+
+        // Other Unix systems only report the count through a HotSpot extension
+        if (this.operatingSystemMXBean instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean)this.operatingSystemMXBean)
+                    .getOpenFileDescriptorCount();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the number of live threads of the running JVM
+     *
+     * @return Number of live threads
+     */
+    public int getThreadCount() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+}
@@ -0,0 +1,218 @@
+package smac.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smac.Smac;
+import smac.controller.LogController;
+import smac.controller.RoutingController;
+import smac.exception.DuplicateLockException;
+import smac.exception.RuleNotFoundException;
+import smac.model.Config;
+import smac.model.OutputQueue;
+import smac.model.RoutingTask;
+import smac.model.Rule;
+import smac.util.SmacEmlUtils;
+import smac.util.SmacQueueType;
+
+/**
+ * RoutingControllerBenchmark measures the time taken by the RoutingController to determine the output queue of a
+ * parsed SEPAmail message against synthetic sets of routing rules. A message is routed either by a 4-uplet rule (hit),
+ * by the general rule of its input queue once no 4-uplet rule matches (miss) or by its 'sepamail-mode' code (fast
+ * path). Run with '-prof gc' to measure the memory allocated per routing decision.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingControllerBenchmark {
+
+    // Benchmark constants
+    private static final int GENERAL_RULE_INTERVAL = 10;
+    private static final SmacQueueType INPUT_QUEUE_TYPE = SmacQueueType.CSI;
+    private static final SmacQueueType[] OTHER_INPUT_QUEUE_TYPES = { SmacQueueType.FHI, SmacQueueType.FLI };
+
+    // Number of routing rules in the synthetic SMAC daemon configuration
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int ruleCount;
+
+    // Benchmark attributes
+    private MimeMessage fastPathMessage;
+    private MimeMessage hitMessage;
+    private MimeMessage missMessage;
+    private RoutingController routingController;
+    private RoutingTask routingTask;
+
+    /**
+     * Build the synthetic SMAC daemon configuration and the parsed SEPAmail messages which are routed
+     *
+     * @throws IOException
+     * @throws DuplicateLockException
+     * @throws MessagingException
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, DuplicateLockException, MessagingException {
+
+        // Only warnings are logged so that the routing decisions are measured without their log records
+        File directory = Files.createTempDirectory("smac-bench").toFile();
+        Smac.config = new Config(new File(directory, "smac.log").toURI().toString(), "WARNING");
+        String queueDirectory = directory.toURI().toString();
+        Smac.config.addOutputQueue(new OutputQueue(SmacQueueType.CSO, queueDirectory));
+        Smac.config.addOutputQueue(new OutputQueue(SmacQueueType.FHO, queueDirectory));
+        Smac.config.addOutputQueue(new OutputQueue(SmacQueueType.FLO, queueDirectory));
+
+        // Every tenth rule is a general rule of another input queue, the others are 4-uplet rules
+        for (int i = 0; i < this.ruleCount - 1; i++) {
+
+            if (i % GENERAL_RULE_INTERVAL == 0) {
+                Smac.config.addRule(new Rule(1, i, OTHER_INPUT_QUEUE_TYPES[i / GENERAL_RULE_INTERVAL
+                        % OTHER_INPUT_QUEUE_TYPES.length], SmacQueueType.FLO));
+            } else {
+                Smac.config.addRule(new Rule(1, i, getSender(i), getRecipient(i), INPUT_QUEUE_TYPE,
+                        SmacQueueType.FHO));
+            }
+        }
+
+        // The general rule of the input queue has the lowest priority so that a miss scans every rule
+        Smac.config.addRule(new Rule(2, 0, INPUT_QUEUE_TYPE, SmacQueueType.CSO));
+        Collections.sort(Smac.config.getRules());
+
+        Smac.logController = LogController.getLogController();
+        this.routingController = new RoutingController();
+
+        // The 4-uplet rule hit by the message is in the middle of the rules
+        int hitRule = this.ruleCount / 2;
+        if (hitRule % GENERAL_RULE_INTERVAL == 0) {
+            hitRule++;
+        }
+
+        this.hitMessage = createMessage(getSender(hitRule), getRecipient(hitRule), null);
+        this.missMessage = createMessage("unknown@sender.example", "unknown@recipient.example", null);
+        this.fastPathMessage = createMessage(getSender(hitRule), getRecipient(hitRule), "flash");
+
+        // The SEPAmail message file is neither read nor locked while the rules are evaluated
+        this.routingTask = new RoutingTask(new File(directory, "message.eml"), INPUT_QUEUE_TYPE, false);
+    }
+
+    /**
+     * Route a SEPAmail message with its 'sepamail-mode' code
+     *
+     * @return Output queue type of the SEPAmail message
+     * @throws RuleNotFoundException
+     * @throws MessagingException
+     */
+    @Benchmark
+    public SmacQueueType fastPath() throws RuleNotFoundException, MessagingException {
+        return this.route(this.fastPathMessage);
+    }
+
+    /**
+     * Route a SEPAmail message with a 4-uplet rule
+     *
+     * @return Output queue type of the SEPAmail message
+     * @throws RuleNotFoundException
+     * @throws MessagingException
+     */
+    @Benchmark
+    public SmacQueueType hit() throws RuleNotFoundException, MessagingException {
+        return this.route(this.hitMessage);
+    }
+
+    /**
+     * Route a SEPAmail message which no 4-uplet rule matches with the general rule of its input queue
+     *
+     * @return Output queue type of the SEPAmail message
+     * @throws RuleNotFoundException
+     * @throws MessagingException
+     */
+    @Benchmark
+    public SmacQueueType miss() throws RuleNotFoundException, MessagingException {
+        return this.route(this.missMessage);
+    }
+
+    /**
+     * Create a parsed SEPAmail message
+     *
+     * @param from Sender email address
+     * @param to Recipient email address
+     * @param mode Value of the 'sepamail-mode' key or null
+     * @return Parsed SEPAmail message
+     * @throws MessagingException
+     */
+    private static MimeMessage createMessage(String from, String to, String mode) throws MessagingException {
+
+        // SEPAmail message container
+        StringBuilder eml = new StringBuilder();
+        eml.append("From: ").append(from).append("\r\n");
+        eml.append("To: ").append(to).append("\r\n");
+        eml.append("Subject: SEPAmail\r\n");
+        if (mode != null) {
+            eml.append("sepamail-mode: ").append(mode).append("\r\n");
+        }
+        eml.append("Content-Type: text/plain\r\n\r\nSEPAmail message\r\n");
+
+        return SmacEmlUtils.loadEml(new ByteArrayInputStream(eml.toString().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Get the recipient email address of a synthetic 4-uplet rule
+     *
+     * @param rule Index of the rule
+     * @return Recipient email address
+     */
+    private static String getRecipient(int rule) {
+        return "recipient" + rule + "@bank" + (rule % 100) + ".example";
+    }
+
+    /**
+     * Get the sender email address of a synthetic 4-uplet rule
+     *
+     * @param rule Index of the rule
+     * @return Sender email address
+     */
+    private static String getSender(int rule) {
+        return "sender" + rule + "@bank" + (rule % 100) + ".example";
+    }
+
+    /**
+     * Route a parsed SEPAmail message with the reused routing task
+     *
+     * @param message Parsed SEPAmail message
+     * @return Output queue type of the SEPAmail message
+     * @throws RuleNotFoundException
+     * @throws MessagingException
+     */
+    private SmacQueueType route(MimeMessage message) throws RuleNotFoundException, MessagingException {
+
+        // Reset the routing task so that each invocation routes the SEPAmail message again
+        this.routingTask.setIsRouted(false);
+        this.routingTask.setOutputQueueType(null);
+
+        this.routingController.route(this.routingTask, message);
+
+        return this.routingTask.getOutputQueueType();
+    }
+}
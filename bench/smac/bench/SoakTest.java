@@ -0,0 +1,595 @@
+package smac.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import smac.Smac;
+import smac.exception.InvalidConfigurationFileException;
+import smac.exception.InvalidQueueTypeNameException;
+import smac.model.Config;
+import smac.model.InputQueue;
+import smac.model.OutputQueue;
+import smac.util.SmacConfigReader;
+import smac.util.SmacFileUtils;
+
+/**
+ * SoakTest pushes synthetic SEPAmail messages through the SMAC daemon at a steady rate for a long time, as the load
+ * generator does, while it samples the open file descriptors, the live threads, the heap after a full garbage
+ * collection, the lock files left without their message and the backlog of the input queues. The test fails when one
+ * of them grows over time faster than its allowed slope, beyond the scatter of its samples, so that slow leaks are
+ * caught before they reach production. It also fails when file descriptors are only closed by the garbage collection,
+ * which reveals streams that are never closed even though their number levels off at each collection.
+ *
+ * The delivered messages are removed from the output queues and dead-letter directories as a downstream consumer
+ * would, so that the file system does not fill up during the test. Segment logs are left in place since they are
+ * still written by the SMAC daemon.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SoakTest {
+
+    // Soak test constants
+    private static final long CLEANER_DELAY = 100;
+    private static final double SECONDS_PER_HOUR = 3600;
+    private static final double SLOPE_CONFIDENCE = 2;
+
+    // Default options
+    private static final long DEFAULT_DURATION = 3600;
+    private static final long DEFAULT_INTERVAL = 60;
+    private static final double DEFAULT_MAX_BACKLOG_SLOPE = 100;
+    private static final double DEFAULT_MAX_FD_GC = 8;
+    private static final double DEFAULT_MAX_FD_SLOPE = 10;
+    private static final double DEFAULT_MAX_HEAP_SLOPE = 16;
+    private static final double DEFAULT_MAX_LOCK_SLOPE = 1;
+    private static final double DEFAULT_MAX_THREAD_SLOPE = 1;
+    private static final double DEFAULT_RATE = 50;
+    private static final long DEFAULT_SIZE = 4096;
+    private static final long DEFAULT_WARMUP = 300;
+
+    // Class attributes
+    private final ArrayList<Path> consumedDirectories;
+    private final AtomicLong dropped;
+    private final AtomicLong dropErrors;
+    private final String from;
+    private final ArrayList<InputQueue> inputQueues;
+    private final double rate;
+    private final ProcessSampler sampler;
+    private final ArrayList<Sample> samples;
+    private final long size;
+    private final Path stagingDirectory;
+    private final SyntheticEml.Structure structure;
+    private final String to;
+    private volatile boolean running;
+
+    /**
+     * SoakTest constructor
+     *
+     * @param config SMAC daemon configuration of the soak test
+     * @param inputQueues SMAC input queues into which the messages are dropped
+     * @param stagingDirectory Directory in which the messages are written before they are dropped
+     * @param rate Number of messages dropped per second
+     * @param size Approximate size in bytes of the messages
+     * @param structure Structure of the messages
+     * @param from Sender email address of the messages
+     * @param to Recipient email address of the messages
+     * @throws IOException
+     */
+    public SoakTest(Config config, ArrayList<InputQueue> inputQueues, Path stagingDirectory, double rate, long size,
+            SyntheticEml.Structure structure, String from, String to) throws IOException {
+
+        // Initialise class attributes
+        this.consumedDirectories = new ArrayList<>();
+        this.dropped = new AtomicLong();
+        this.dropErrors = new AtomicLong();
+        this.from = from;
+        this.inputQueues = inputQueues;
+        this.rate = rate;
+        this.running = false;
+        this.sampler = new ProcessSampler();
+        this.samples = new ArrayList<>();
+        this.size = size;
+        this.stagingDirectory = stagingDirectory;
+        this.structure = structure;
+        this.to = to;
+
+        // Directories from which the delivered messages are removed
+        for (OutputQueue outputQueue : config.getOutputQueues()) {
+            this.consumedDirectories.add(outputQueue.getQueuePath());
+        }
+
+        for (InputQueue inputQueue : inputQueues) {
+            if (inputQueue.getDeadLetterDirectory() != null) {
+                this.consumedDirectories.add(Paths.get(inputQueue.getDeadLetterDirectory()));
+            }
+        }
+    }
+
+    /**
+     * Soak test entry point
+     *
+     * @param args Configuration file to soak test followed by options written as name=value: rate (messages per
+     * second), duration, interval and warmup (seconds), size (bytes per message), structure (of the messages), from and
+     * to (addresses of the messages), queues (comma separated input queues), max.fd.slope, max.thread.slope,
+     * max.lock.slope and max.backlog.slope (per hour), max.heap.slope (MB per hour) and max.fd.gc (mean number of
+     * file descriptors closed by a garbage collection)
+     */
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+
+            System.out.println("Usage: SoakTest <smac.properties> [rate=<messages per second>] "
+                    + "[duration=<seconds>] [interval=<seconds>] [warmup=<seconds>] [size=<bytes>] "
+                    + "[structure=<structure>] [from=<address>] [to=<address>] [queues=<queue,...>] "
+                    + "[max.fd.slope=<per hour>] [max.thread.slope=<per hour>] [max.heap.slope=<MB per hour>] "
+                    + "[max.lock.slope=<per hour>] [max.backlog.slope=<per hour>] [max.fd.gc=<descriptors>]");
+            System.exit(2);
+        }
+
+        try {
+
+            // Options of the soak test
+            Map<String, String> options = LoadGenerator.parseOptions(args);
+            double rate = Double.parseDouble(LoadGenerator.getOption(options, "rate", Double.toString(DEFAULT_RATE)));
+            long duration = Long.parseLong(LoadGenerator.getOption(options, "duration",
+                    Long.toString(DEFAULT_DURATION)));
+            long interval = Long.parseLong(LoadGenerator.getOption(options, "interval",
+                    Long.toString(DEFAULT_INTERVAL)));
+            long warmup = Long.parseLong(LoadGenerator.getOption(options, "warmup", Long.toString(DEFAULT_WARMUP)));
+            long size = Long.parseLong(LoadGenerator.getOption(options, "size", Long.toString(DEFAULT_SIZE)));
+            SyntheticEml.Structure structure = SyntheticEml.Structure.valueOf(LoadGenerator.getOption(options,
+                    "structure", SyntheticEml.Structure.SINGLE_PART.name()));
+            String from = LoadGenerator.getOption(options, "from", LoadGenerator.DEFAULT_FROM);
+            String to = LoadGenerator.getOption(options, "to", LoadGenerator.DEFAULT_TO);
+
+            if (rate <= 0 || duration < 1 || interval < 1 || warmup < 0 || size < 1) {
+                throw new IllegalArgumentException("The rate, duration, interval, warmup and size must be positive.");
+            }
+
+            // Largest slopes allowed per hour, or largest mean for the file descriptors closed by the GC
+            double[] limits = new double[Metric.values().length];
+            limits[Metric.FD.ordinal()] = getLimitOption(options, "max.fd.slope", DEFAULT_MAX_FD_SLOPE);
+            limits[Metric.FD_GC.ordinal()] = getLimitOption(options, "max.fd.gc", DEFAULT_MAX_FD_GC);
+            limits[Metric.THREAD.ordinal()] = getLimitOption(options, "max.thread.slope", DEFAULT_MAX_THREAD_SLOPE);
+            limits[Metric.HEAP.ordinal()] = getLimitOption(options, "max.heap.slope", DEFAULT_MAX_HEAP_SLOPE);
+            limits[Metric.LOCK.ordinal()] = getLimitOption(options, "max.lock.slope", DEFAULT_MAX_LOCK_SLOPE);
+            limits[Metric.BACKLOG.ordinal()] = getLimitOption(options, "max.backlog.slope",
+                    DEFAULT_MAX_BACKLOG_SLOPE);
+
+            // Temporary copies of the queue directories of the configuration
+            Path root = Files.createTempDirectory("smac-soak");
+            LoadGenerator.writeConfig(Paths.get(args[0]), root);
+            Config config = new SmacConfigReader(Smac.CONFIG_FILENAME).parse();
+
+            SoakTest soakTest = new SoakTest(config, LoadGenerator.getInputQueues(config, options.get("queues")),
+                    Files.createDirectories(root.resolve("staging")), rate, size, structure, from, to);
+
+            // Fail the soak test if a resource grows over time
+            System.exit(soakTest.run(duration, interval, warmup, limits) ? 0 : 1);
+
+        } catch (InvalidConfigurationFileException | IOException | InvalidQueueTypeNameException
+                | IllegalArgumentException | IllegalStateException | InterruptedException e) {
+
+            // Display error on console
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Start the SMAC daemon, push messages through it while sampling its resources and check their slopes
+     *
+     * @param duration Duration of the soak test in seconds
+     * @param interval Interval between two samples in seconds
+     * @param warmup Time in seconds after which the samples are taken into account for the slopes
+     * @param limits Largest slope per hour or largest mean allowed for each metric
+     * @return Whether no metric exceeds its limit
+     * @throws InterruptedException
+     */
+    public boolean run(long duration, long interval, long warmup, double[] limits) throws InterruptedException {
+
+        // Start the SMAC daemon in the running JVM and wait until its input queues are watched
+        Smac.main(new String[0]);
+        LoadGenerator.waitUntilReady();
+
+        // Push messages through the SMAC daemon
+        this.running = true;
+        Thread dropper = new Thread(new Runnable() {
+
+            /**
+             * Drop messages until the soak test ends
+             */
+            @Override
+            public void run() {
+                drop();
+            }
+        }, "Soak dropper thread");
+        dropper.setDaemon(true);
+        dropper.start();
+
+        System.out.println("Soak testing at " + this.rate + " messages per second for " + duration + " s, sampled "
+                + "every " + interval + " s");
+        System.out.println(String.format(Locale.ROOT, "%10s %10s %8s %8s %8s %10s %8s %10s", "elapsed", "dropped",
+                "fds", "gc fds", "threads", "heap MB", "locks", "backlog"));
+
+        // Sample the resources of the SMAC daemon
+        long start = System.nanoTime();
+        for (long sampleTime = interval; sampleTime <= duration; sampleTime += interval) {
+
+            long wait = start + TimeUnit.SECONDS.toNanos(sampleTime) - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            this.consume();
+
+            Sample sample = this.sample((System.nanoTime() - start) / 1e9);
+            this.samples.add(sample);
+
+            System.out.println(String.format(Locale.ROOT, "%10.0f %10d %8.0f %8.0f %8.0f %10.1f %8.0f %10.0f",
+                    sample.elapsed, this.dropped.get(), sample.values[Metric.FD.ordinal()],
+                    sample.values[Metric.FD_GC.ordinal()], sample.values[Metric.THREAD.ordinal()],
+                    sample.values[Metric.HEAP.ordinal()], sample.values[Metric.LOCK.ordinal()],
+                    sample.values[Metric.BACKLOG.ordinal()]));
+        }
+
+        this.running = false;
+        dropper.join();
+
+        // Check the growth of each metric once the SMAC daemon has warmed up
+        System.out.println();
+        System.out.println("SMAC soak test report");
+        System.out.println("Dropped:            " + this.dropped.get() + " (" + this.dropErrors.get() + " errors)");
+
+        boolean passed = true;
+        for (Metric metric : Metric.values()) {
+
+            // File descriptors closed by the garbage collection are leaked whatever their trend
+            if (metric == Metric.FD_GC) {
+
+                double mean = this.getMean(metric, warmup);
+                boolean leaking = mean > limits[metric.ordinal()];
+                passed &= !leaking;
+
+                System.out.println(String.format(Locale.ROOT, "%-19s %.2f %s on average (max %.2f) %s",
+                        metric.getLabel() + ":", mean, metric.getUnit(), limits[metric.ordinal()],
+                        leaking ? "FAILED" : "ok"));
+
+                continue;
+            }
+
+            double[] slope = this.getSlope(metric, warmup);
+            if (slope == null) {
+
+                System.out.println(String.format(Locale.ROOT, "%-19s not enough samples after the warmup",
+                        metric.getLabel() + ":"));
+                passed = false;
+
+                continue;
+            }
+
+            // The metric grows when its slope exceeds the allowed slope by more than twice its standard error
+            boolean growing = slope[0] - SLOPE_CONFIDENCE * slope[1] > limits[metric.ordinal()];
+            passed &= !growing;
+
+            System.out.println(String.format(Locale.ROOT, "%-19s %+.2f +/- %.2f %s per hour (max %.2f) %s",
+                    metric.getLabel() + ":", slope[0], SLOPE_CONFIDENCE * slope[1], metric.getUnit(),
+                    limits[metric.ordinal()], growing ? "FAILED" : "ok"));
+        }
+
+        return passed;
+    }
+
+    /**
+     * Remove the messages delivered to the output queues and dead-letter directories as a downstream consumer would
+     */
+    private void consume() {
+
+        for (Path directory : this.consumedDirectories) {
+
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+
+            try {
+
+                Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+                    /**
+                     * Remove a delivered message file, a sealed archive or the reason of a dead letter
+                     */
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+
+                        // Name of the file
+                        String name = file.getFileName().toString();
+
+                        if (name.startsWith("load-") || (!name.endsWith(SmacFileUtils.PARTIAL_FILE_SUFFIX)
+                                && (name.endsWith(".zip") || name.endsWith(".tar")))) {
+                            Files.deleteIfExists(file);
+                        }
+
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+
+            } catch (IOException e) {
+                System.out.println("The delivered messages could not be removed from " + directory + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Drop messages into the input queues at the required rate until the soak test ends
+     */
+    private void drop() {
+
+        // Time at which the first message is dropped
+        long start = System.nanoTime();
+
+        for (int i = 0; this.running; i++) {
+
+            // Wait for the time of the message
+            long wait = start + (long)(i / this.rate * 1e9) - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String name = DeliveryAudit.getFileName(i);
+            try {
+
+                // The message is renamed into its input queue so that it appears complete
+                Path stagedFile = this.stagingDirectory.resolve(name);
+                SyntheticEml.write(stagedFile.toFile(), this.structure, this.size, this.from, this.to);
+                Files.move(stagedFile, Paths.get(this.inputQueues.get(i % this.inputQueues.size())
+                        .getQueueDirectory()).resolve(name), StandardCopyOption.ATOMIC_MOVE);
+
+                this.dropped.incrementAndGet();
+
+            } catch (IOException e) {
+                this.dropErrors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Get the mean of a metric over the samples taken after the warmup
+     *
+     * @param metric Metric
+     * @param warmup Time in seconds after which the samples are taken into account
+     * @return Mean of the metric or NaN if no sample was taken after the warmup
+     */
+    private double getMean(Metric metric, long warmup) {
+
+        int count = 0;
+        double sum = 0;
+        for (Sample sample : this.samples) {
+            if (sample.elapsed >= warmup) {
+                count++;
+                sum += sample.values[metric.ordinal()];
+            }
+        }
+
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * Get the slope of a metric over the samples taken after the warmup, by least squares, with its standard error
+     *
+     * @param metric Metric
+     * @param warmup Time in seconds after which the samples are taken into account
+     * @return Slope of the metric per hour and its standard error or null if there are less than three samples
+     */
+    private double[] getSlope(Metric metric, long warmup) {
+
+        // Samples taken after the warmup, with their time in hours
+        ArrayList<double[]> points = new ArrayList<>();
+        double meanTime = 0;
+        double meanValue = 0;
+
+        for (Sample sample : this.samples) {
+
+            if (sample.elapsed >= warmup) {
+
+                double[] point = { sample.elapsed / SECONDS_PER_HOUR, sample.values[metric.ordinal()] };
+                points.add(point);
+                meanTime += point[0];
+                meanValue += point[1];
+            }
+        }
+
+        if (points.size() < 3) {
+            return null;
+        }
+
+        meanTime /= points.size();
+        meanValue /= points.size();
+
+        double sumSquareTime = 0;
+        double sumTimeValue = 0;
+        for (double[] point : points) {
+            sumSquareTime += (point[0] - meanTime) * (point[0] - meanTime);
+            sumTimeValue += (point[0] - meanTime) * (point[1] - meanValue);
+        }
+
+        double slope = sumTimeValue / sumSquareTime;
+
+        // The scatter of the samples around the fitted line gives the uncertainty of the slope
+        double sumSquareResidual = 0;
+        for (double[] point : points) {
+
+            double residual = point[1] - meanValue - slope * (point[0] - meanTime);
+            sumSquareResidual += residual * residual;
+        }
+
+        return new double[] { slope, Math.sqrt(sumSquareResidual / (points.size() - 2) / sumSquareTime) };
+    }
+
+    /**
+     * Sample the resources of the SMAC daemon
+     *
+     * @param elapsed Time in seconds since the start of the soak test
+     * @return Sample
+     * @throws InterruptedException
+     */
+    private Sample sample(double elapsed) throws InterruptedException {
+
+        double[] values = new double[Metric.values().length];
+
+        // Streams which are never closed only release their file descriptor once they are garbage collected
+        long fileDescriptors = this.sampler.getOpenFileDescriptors();
+        values[Metric.HEAP.ordinal()] = this.sampler.getHeapUsedAfterGc() / (1024.0 * 1024.0);
+        Thread.sleep(CLEANER_DELAY);
+
+        values[Metric.FD.ordinal()] = this.sampler.getOpenFileDescriptors();
+        values[Metric.FD_GC.ordinal()] = Math.max(0, fileDescriptors - values[Metric.FD.ordinal()]);
+        values[Metric.THREAD.ordinal()] = this.sampler.getThreadCount();
+
+        // Lock files whose message has left the input queue are left behind by the SMAC daemon
+        int locks = 0;
+        int backlog = 0;
+        for (InputQueue inputQueue : this.inputQueues) {
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(inputQueue.getQueueDirectory()))) {
+
+                for (Path file : files) {
+
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".eml")) {
+                        backlog++;
+                    } else if (name.endsWith(".eml.lock") && !new File(file.toString().substring(0,
+                            file.toString().length() - ".lock".length())).exists()) {
+                        locks++;
+                    }
+                }
+
+            } catch (IOException e) {
+                System.out.println("The input queue " + inputQueue + " could not be listed: " + e);
+            }
+        }
+
+        values[Metric.LOCK.ordinal()] = locks;
+        values[Metric.BACKLOG.ordinal()] = backlog;
+
+        return new Sample(elapsed, values);
+    }
+
+    /**
+     * Get the limit of a metric
+     *
+     * @param options Options of the soak test
+     * @param name Name of the option
+     * @param defaultValue Limit of the metric if the option is not given
+     * @return Limit of the metric
+     */
+    private static double getLimitOption(Map<String, String> options, String name, double defaultValue) {
+        return Double.parseDouble(LoadGenerator.getOption(options, name, Double.toString(defaultValue)));
+    }
+
+    /**
+     * Metric defines the resources sampled during the soak test.
+     */
+    private enum Metric {
+
+        /**
+         * Open file descriptors after a full garbage collection
+         */
+        FD("File descriptors", "descriptors"),
+
+        /**
+         * File descriptors closed by a full garbage collection
+         */
+        FD_GC("Closed by GC", "descriptors"),
+
+        /**
+         * Live threads
+         */
+        THREAD("Threads", "threads"),
+
+        /**
+         * Heap used after a full garbage collection
+         */
+        HEAP("Heap after GC", "MB"),
+
+        /**
+         * Lock files left without their message
+         */
+        LOCK("Lock residue", "lock files"),
+
+        /**
+         * Messages waiting in the input queues
+         */
+        BACKLOG("Backlog", "messages");
+
+        // Enumeration attributes
+        private final String label;
+        private final String unit;
+
+        /**
+         * Metric constructor
+         *
+         * @param label Label of the metric in the report
+         * @param unit Unit of the metric
+         */
+        private Metric(String label, String unit) {
+
+            // Initialise enumeration attributes
+            this.label = label;
+            this.unit = unit;
+        }
+
+        /**
+         * Get the label of the metric in the report
+         *
+         * @return Label of the metric
+         */
+        private String getLabel() {
+            return this.label;
+        }
+
+        /**
+         * Get the unit of the metric
+         *
+         * @return Unit of the metric
+         */
+        private String getUnit() {
+            return this.unit;
+        }
+    }
+
+    /**
+     * Sample holds the values of the metrics sampled at a time of the soak test.
+     */
+    private static class Sample {
+
+        // Class attributes
+        private final double elapsed;
+        private final double[] values;
+
+        /**
+         * Sample constructor
+         *
+         * @param elapsed Time in seconds since the start of the soak test
+         * @param values Values of the metrics
+         */
+        private Sample(double elapsed, double[] values) {
+
+            // Initialise class attributes
+            this.elapsed = elapsed;
+            this.values = values;
+        }
+    }
+}
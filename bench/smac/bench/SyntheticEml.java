@@ -0,0 +1,253 @@
+package smac.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SyntheticEml writes synthetic SEPAmail message container files of a given structure and approximate size, so that
+ * the SMAC daemon can be benchmarked and load tested without real SEPAmail traffic.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SyntheticEml {
+
+    // Synthetic EML constants
+    private static final String BOUNDARY = "----=_SEPAmail_Part_0";
+    private static final int BASE64_LINE_LENGTH = 76;
+    private static final String CRLF = "\r\n";
+    private static final int FOLDED_HEADERS = 40;
+    private static final int FOLDED_HEADER_LINES = 8;
+    private static final int XML_ATTACHMENTS = 3;
+
+    /**
+     * SyntheticEml constructor
+     */
+    private SyntheticEml() {
+    }
+
+    /**
+     * Write a synthetic SEPAmail message container file
+     *
+     * @param file SEPAmail message container file which is written
+     * @param structure Structure of the SEPAmail message
+     * @param size Approximate size in bytes of the file
+     * @param from Sender email address
+     * @param to Recipient email address
+     * @throws IOException
+     */
+    public static void write(File file, Structure structure, long size, String from, String to) throws IOException {
+
+        try (CountingWriter writer = new CountingWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.US_ASCII)))) {
+
+            // Envelope headers
+            if (structure == Structure.ENCODED_NAMES) {
+                writer.write("From: =?UTF-8?B?U2VydmljZSBSw6hnbGVtZW50cyBTRVBBbWFpbA==?= <" + from + ">" + CRLF);
+                writer.write("To: =?ISO-8859-1?Q?Cr=E9ancier_Fran=E7ais_=E0_R=E9gler?= <" + to + ">" + CRLF);
+                writer.write("Subject: =?UTF-8?Q?Demande_de_r=C3=A8glement_imm=C3=A9diat?=" + CRLF);
+            } else {
+                writer.write("From: " + from + CRLF);
+                writer.write("To: " + to + CRLF);
+                writer.write("Subject: SEPAmail" + CRLF);
+            }
+
+            writer.write("Date: Mon, 4 Jan 2016 10:00:00 +0400" + CRLF);
+            writer.write("Message-ID: <" + file.getName() + "@sepamail.example>" + CRLF);
+            writer.write("MIME-Version: 1.0" + CRLF);
+
+            // Relays add long headers which are folded over several lines
+            if (structure == Structure.FOLDED_HEADERS) {
+                for (int i = 0; i < FOLDED_HEADERS; i++) {
+
+                    writer.write("Received: from relay" + i + ".sepamail.example (relay" + i + ".sepamail.example");
+                    for (int j = 0; j < FOLDED_HEADER_LINES; j++) {
+                        writer.write(CRLF + "\tby mx" + j + ".bank.example with ESMTPS id " + i + "-" + j
+                                + " for <" + to + ">;");
+                    }
+                    writer.write(CRLF + "\tMon, 4 Jan 2016 10:00:00 +0400" + CRLF);
+                }
+            }
+
+            if (structure == Structure.MULTIPART_XML) {
+
+                writer.write("Content-Type: multipart/mixed; boundary=\"" + BOUNDARY + "\"" + CRLF + CRLF);
+                writer.write("--" + BOUNDARY + CRLF);
+                writer.write("Content-Type: text/plain; charset=US-ASCII" + CRLF + CRLF);
+                writer.write("SEPAmail message" + CRLF);
+
+                // The XML attachments share the remaining size
+                long attachmentSize = (size - writer.getCount()) / XML_ATTACHMENTS;
+                for (int i = 0; i < XML_ATTACHMENTS; i++) {
+
+                    writer.write("--" + BOUNDARY + CRLF);
+                    writer.write("Content-Type: application/xml; name=\"sepamail" + i + ".xml\"" + CRLF);
+                    writer.write("Content-Disposition: attachment; filename=\"sepamail" + i + ".xml\"" + CRLF);
+                    writer.write("Content-Transfer-Encoding: base64" + CRLF + CRLF);
+                    writeBase64(writer, writer.getCount() + attachmentSize);
+                }
+
+                writer.write("--" + BOUNDARY + "--" + CRLF);
+
+            } else {
+
+                writer.write("Content-Type: application/xml; charset=US-ASCII" + CRLF + CRLF);
+                writeXml(writer, size);
+            }
+        }
+    }
+
+    /**
+     * Write base64 encoded content until the file reaches a size
+     *
+     * @param writer Writer of the file
+     * @param size Size in bytes at which the content ends
+     * @throws IOException
+     */
+    private static void writeBase64(CountingWriter writer, long size) throws IOException {
+
+        // Base64 line
+        StringBuilder line = new StringBuilder(BASE64_LINE_LENGTH + CRLF.length());
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < BASE64_LINE_LENGTH; i++) {
+            line.append(alphabet.charAt(i % alphabet.length()));
+        }
+        line.append(CRLF);
+
+        // At least one line is written
+        do {
+            writer.write(line.toString());
+        } while (writer.getCount() < size);
+    }
+
+    /**
+     * Write a SEPAmail XML document padded with transactions until the file reaches a size
+     *
+     * @param writer Writer of the file
+     * @param size Size in bytes at which the document ends
+     * @throws IOException
+     */
+    private static void writeXml(CountingWriter writer, long size) throws IOException {
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + CRLF);
+        writer.write("<sepamail:message xmlns:sepamail=\"http://xsd.sepamail.eu/1207/\">" + CRLF);
+
+        // Transactions are added until the document reaches the required size
+        String closingTag = "</sepamail:message>" + CRLF;
+        for (int i = 0; writer.getCount() + closingTag.length() < size; i++) {
+            writer.write("  <sepamail:transaction id=\"" + i + "\"><sepamail:amount currency=\"EUR\">" + (i % 10000)
+                    + ".00</sepamail:amount><sepamail:iban>FR7630006000011234567890189</sepamail:iban>"
+                    + "</sepamail:transaction>" + CRLF);
+        }
+
+        writer.write(closingTag);
+    }
+
+    /**
+     * Structure defines the shapes of the synthetic SEPAmail messages.
+     */
+    public enum Structure {
+
+        /**
+         * Single XML part
+         */
+        SINGLE_PART,
+
+        /**
+         * Multipart message with a text part and base64 encoded XML attachments
+         */
+        MULTIPART_XML,
+
+        /**
+         * Single XML part with many long headers folded over several lines
+         */
+        FOLDED_HEADERS,
+
+        /**
+         * Single XML part with RFC 2047 encoded display names and subject
+         */
+        ENCODED_NAMES
+    }
+
+    /**
+     * CountingWriter counts the characters written to an ASCII file, hence its size in bytes.
+     */
+    private static class CountingWriter extends Writer {
+
+        // Class attributes
+        private long count;
+        private final Writer writer;
+
+        /**
+         * CountingWriter constructor
+         *
+         * @param writer Writer of the file
+         */
+        private CountingWriter(Writer writer) {
+
+            // Initialise class attributes
+            this.count = 0;
+            this.writer = writer;
+        }
+
+        /**
+         * Close the file
+         *
+         * @throws IOException
+         */
+        @Override
+        public void close() throws IOException {
+            this.writer.close();
+        }
+
+        /**
+         * Flush the written characters to the file
+         *
+         * @throws IOException
+         */
+        @Override
+        public void flush() throws IOException {
+            this.writer.flush();
+        }
+
+        /**
+         * Get the number of characters written so far
+         *
+         * @return Number of characters written
+         */
+        private long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Write characters to the file
+         *
+         * @param buffer Characters to write
+         * @param offset Offset of the first character to write
+         * @param length Number of characters to write
+         * @throws IOException
+         */
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            this.writer.write(buffer, offset, length);
+            this.count += length;
+        }
+
+        /**
+         * Write a string to the file
+         *
+         * @param string String to write
+         * @throws IOException
+         */
+        @Override
+        public void write(String string) throws IOException {
+            this.writer.write(string);
+            this.count += string.length();
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package smac;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.logging.Level;
+import smac.controller.DeduplicationController;
 import smac.controller.InputQueueController;
 import smac.controller.LogController;
+import smac.controller.MonitoringController;
+import smac.controller.SimulationController;
 import smac.exception.ConfigurationFileNotFoundException;
 import smac.exception.InvalidConfigurationFileException;
+import smac.exception.InvalidQueueTypeNameException;
 import smac.model.Config;
 import smac.model.InputQueue;
 import smac.util.SmacConfigReader;
@@ -25,7 +30,9 @@ public class Smac {
     public static final String CONFIG_FILENAME = "conf" + System.getProperty("file.separator") + "smac.properties";
 
     // SMAC static attributes
+    public static DeduplicationController deduplicationController;
     public static LogController logController;
+    public static MonitoringController monitoringController;
     public static Config config;
 
     /**
@@ -35,6 +42,15 @@ public class Smac {
      */
     public static void main(String[] args) {
 
+        // Check if the routing simulator has been requested
+        if (args.length > 0 && args[0].equals("simulate")) {
+
+            // Replay a corpus of SEPAmail messages through the routing rules
+            simulate(args);
+
+            return;
+        }
+
         try {
 
             // Initialise configuration file reader and parser
@@ -46,6 +62,15 @@ public class Smac {
             // Get instance of the log controller
             logController = LogController.getLogController();
 
+            // Expose the queue statistics, serve the monitoring HTTP endpoint and trace the routing tasks if enabled
+            monitoringController = MonitoringController.getMonitoringController();
+            monitoringController.start();
+
+            // Open the duplicate suppression state if required
+            if (config.isDeduplicationEnabled()) {
+                deduplicationController = DeduplicationController.getDeduplicationController();
+            }
+
             // List of input queue controllers
             ArrayList<Thread> threads = new ArrayList<>();
 
@@ -95,4 +120,57 @@ public class Smac {
             System.out.println(e.getMessage());
         }
     }
+
+    /**
+     * Replay a directory or zip archive of EML files through the SMAC daemon routing rules without moving any file
+     *
+     * @param args Command line arguments: simulate, configuration file, input queue type and EML corpus path
+     */
+    private static void simulate(String[] args) {
+
+        // Check the simulator command line arguments
+        if (args.length != 4) {
+
+            // Display usage on console
+            System.out.println("Usage: java -jar Smac.jar simulate <configuration file> <input queue type> " +
+                    "<EML directory or zip archive>");
+
+            return;
+        }
+
+        try {
+
+            // Parse the configuration file under test
+            config = new SmacConfigReader(args[1]).parse();
+
+            // Do not flood the daemon log with per message traces while replaying a corpus
+            if (config.getLogLevel().intValue() < Level.WARNING.intValue()) {
+                config.setLogLevel(Level.WARNING.getName());
+            }
+
+            // Get instance of the log controller
+            logController = LogController.getLogController();
+
+            // Collect the routing statistics of the replayed corpus
+            monitoringController = MonitoringController.getMonitoringController();
+
+            // Replay the corpus through the routing rules of the given input queue
+            SimulationController simulationController =
+                    new SimulationController(SmacQueueTypeUtils.getQueueType(args[2]));
+            simulationController.simulate(new File(args[3]));
+
+            // Display the simulation report
+            simulationController.printReport(System.out);
+
+        } catch (InvalidConfigurationFileException | InvalidQueueTypeNameException | IOException e) {
+
+            // Display error on console
+            System.out.println(e.getMessage());
+
+        } catch (InterruptedException e) {
+
+            // Display error on console
+            System.out.println("The routing simulation was interrupted.");
+        }
+    }
 }
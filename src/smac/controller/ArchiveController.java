@@ -0,0 +1,408 @@
+package smac.controller;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import smac.Smac;
+import smac.model.OutputQueue;
+import smac.model.RoutingTask;
+import smac.util.SmacArchive;
+import smac.util.SmacDurabilityMode;
+import smac.util.SmacFileUtils;
+import smac.util.SmacOutputMode;
+import smac.util.SmacQueueType;
+import smac.util.SmacQueueTypeUtils;
+
+/**
+ * ArchiveController streams the messages routed to an output queue into size or time bounded zip or tar archives.
+ * An archive is written as a partial file which is renamed once it has been sealed with its manifest, and the input
+ * files of its messages are only removed and acknowledged after that.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class ArchiveController implements Runnable {
+
+    // Archive controllers shared by the input queue controllers
+    private static final EnumMap<SmacQueueType, ArchiveController> archiveControllers =
+            new EnumMap<>(SmacQueueType.class);
+
+    // Class attributes
+    private SmacArchive archive;
+    private Path archiveFile;
+    private final SimpleDateFormat archiveNameFormat;
+    private long archiveSequence;
+    private final Path directory;
+    private final String extension;
+    private long openedTime;
+    private final OutputQueue outputQueue;
+    private ArrayList<PendingArchive> pendingArchives;
+    private final boolean sync;
+
+    /**
+     * ArchiveController constructor
+     *
+     * @param outputQueue SMAC output queue in archive output mode
+     * @throws MalformedURLException
+     */
+    private ArchiveController(OutputQueue outputQueue) throws MalformedURLException {
+
+        // Initialise class attributes
+        this.archive = null;
+        this.archiveFile = null;
+        this.archiveNameFormat = new SimpleDateFormat("yyyyMMddHHmmssSSS");
+        this.archiveNameFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        this.archiveSequence = 0;
+        this.directory = outputQueue.getQueuePath();
+        this.extension = outputQueue.getOutputMode() == SmacOutputMode.TAR ? ".tar" : ".zip";
+        this.openedTime = 0;
+        this.outputQueue = outputQueue;
+        this.pendingArchives = new ArrayList<>();
+        this.sync = outputQueue.getDurabilityMode() != SmacDurabilityMode.NONE;
+    }
+
+    /**
+     * Get the archive controller of an output queue and start it if required
+     *
+     * @param outputQueue SMAC output queue in archive output mode
+     * @return Archive controller of the output queue
+     * @throws MalformedURLException
+     * @throws IOException
+     */
+    public static synchronized ArchiveController getArchiveController(OutputQueue outputQueue)
+            throws MalformedURLException, IOException {
+
+        // Archive controller of the output queue
+        ArchiveController archiveController = archiveControllers.get(outputQueue.getQueueType());
+
+        // Check if the archive controller has already been started
+        if (archiveController == null) {
+
+            archiveController = new ArchiveController(outputQueue);
+            archiveController.removePartialArchives();
+
+            // Create the thread which seals the archives which have reached their maximum age
+            Thread worker = new Thread(archiveController);
+            worker.setName(SmacQueueTypeUtils.getQueueTypeName(outputQueue.getQueueType()) + " archive thread");
+            worker.setDaemon(true);
+            worker.start();
+
+            archiveControllers.put(outputQueue.getQueueType(), archiveController);
+        }
+
+        return archiveController;
+    }
+
+    /**
+     * Stream a SEPAmail message EML container file into the current archive of the output queue. The routing task is
+     * acknowledged through the given listener once the archive has been sealed.
+     *
+     * @param routingTask SMAC daemon routing task instance with routing details
+     * @param listener Listener which acknowledges the routing task
+     * @throws IOException
+     */
+    public void append(RoutingTask routingTask, RoutingTaskListener listener) throws IOException {
+
+        // Input file of the message
+        Path source = routingTask.getEmlFile().toPath();
+
+        // Archives which have been sealed or discarded while adding the message
+        ArrayList<PendingArchive> completed = new ArrayList<>(2);
+
+        try {
+
+            synchronized (this) {
+
+                // Archive entries must have unique names
+                if (this.archive != null && this.archive.contains(source.getFileName().toString())) {
+                    completed.add(this.seal());
+                }
+
+                // Start a new archive if required
+                if (this.archive == null) {
+                    this.open();
+                }
+
+                try {
+
+                    this.archive.add(source);
+
+                } catch (IOException e) {
+
+                    // Discard an archive whose last entry was partially written
+                    if (this.archive.isDamaged()) {
+                        completed.add(this.discard(e));
+                    }
+
+                    throw e;
+                }
+
+                this.pendingArchives.add(new PendingArchive(source, routingTask, listener));
+
+                // Seal the archive once it has reached its maximum size
+                if (this.archive.getContentSize() >= this.outputQueue.getArchiveSize()) {
+                    completed.add(this.seal());
+                }
+            }
+
+        } finally {
+
+            // Acknowledge or release the routing tasks of the completed archives
+            for (PendingArchive pendingArchive : completed) {
+                pendingArchive.complete();
+            }
+        }
+    }
+
+    /**
+     * Seal the archives of the output queue which have reached their maximum age
+     */
+    @Override
+    public void run() {
+
+        for (;;) {
+
+            // Archive which has reached its maximum age
+            PendingArchive completed;
+
+            try {
+                completed = this.takeExpiredArchive();
+            } catch (InterruptedException e) {
+
+                // Log errors
+                Smac.logController.log(Level.SEVERE, ArchiveController.class.getSimpleName(), e.getMessage());
+
+                return;
+            }
+
+            // Acknowledge or release the routing tasks of the archive
+            completed.complete();
+        }
+    }
+
+    /**
+     * Discard the current archive whose messages remain in their input queue
+     *
+     * @param cause Reason for which the archive is discarded
+     * @return Routing tasks of the discarded archive which need to be released
+     */
+    private PendingArchive discard(IOException cause) {
+
+        // Log errors
+        Smac.logController.log(Level.SEVERE, ArchiveController.class.getSimpleName(), "The archive " +
+                this.archiveFile + " has been discarded: " + cause);
+
+        // Remove the partial archive
+        this.archive.abort();
+
+        try {
+            Files.deleteIfExists(this.archiveFile);
+        } catch (IOException e) {
+            Smac.logController.log(Level.WARNING, ArchiveController.class.getSimpleName(), "The partial archive " +
+                    this.archiveFile + " could not be removed: " + e);
+        }
+
+        // Routing tasks of the discarded archive
+        PendingArchive discarded = new PendingArchive(this.pendingArchives, cause.toString());
+
+        // Start a new archive for the next message
+        this.archive = null;
+        this.archiveFile = null;
+        this.pendingArchives = new ArrayList<>();
+
+        return discarded;
+    }
+
+    /**
+     * Start a new partial archive in the output queue directory
+     *
+     * @throws IOException
+     */
+    private void open() throws IOException {
+
+        // Create the output queue directory if required
+        Files.createDirectories(this.directory);
+
+        // Time at which the archive is started
+        this.openedTime = System.currentTimeMillis();
+
+        // Partial archive named after its opening time and sequence number
+        this.archiveSequence++;
+        this.archiveFile = this.directory.resolve(this.archiveNameFormat.format(new Date(this.openedTime)) + "-" +
+                String.format("%06d", this.archiveSequence) + this.extension + SmacFileUtils.PARTIAL_FILE_SUFFIX);
+        this.archive = new SmacArchive(this.archiveFile, this.outputQueue.getOutputMode());
+
+        // Wake up the archive thread so that it waits for the maximum age of the new archive
+        this.notifyAll();
+    }
+
+    /**
+     * Remove the partial archives left behind when the SMAC daemon was stopped. Their messages are still in their
+     * input queues.
+     *
+     * @throws IOException
+     */
+    private void removePartialArchives() throws IOException {
+
+        // Check if the output queue directory exists
+        if (!Files.isDirectory(this.directory)) {
+            return;
+        }
+
+        // Remove the partial archives of the output queue
+        try (DirectoryStream<Path> partialArchives = Files.newDirectoryStream(this.directory, "*" + this.extension +
+                SmacFileUtils.PARTIAL_FILE_SUFFIX)) {
+            for (Path partialArchive : partialArchives) {
+
+                Files.deleteIfExists(partialArchive);
+
+                // Indicate that the partial archive has been removed
+                Smac.logController.log(Level.INFO, ArchiveController.class.getSimpleName(), "The partial archive " +
+                        partialArchive + " has been removed.");
+            }
+        }
+    }
+
+    /**
+     * Seal the current archive with its manifest and rename it atomically
+     *
+     * @return Routing tasks of the sealed archive which need to be acknowledged
+     */
+    private PendingArchive seal() {
+
+        // Name of the sealed archive
+        String name = this.archiveFile.getFileName().toString();
+        Path sealedFile = this.archiveFile.resolveSibling(name.substring(0, name.length() -
+                SmacFileUtils.PARTIAL_FILE_SUFFIX.length()));
+
+        try {
+
+            // Write the manifest and close the archive
+            this.archive.seal(this.sync);
+
+            // Publish the archive
+            Files.move(this.archiveFile, sealedFile, StandardCopyOption.ATOMIC_MOVE);
+
+            // Make the directory entry of the sealed archive durable
+            if (this.sync) {
+                SmacFileUtils.sync(this.directory);
+            }
+
+        } catch (IOException e) {
+
+            // The messages of the archive remain in their input queue
+            return this.discard(e);
+        }
+
+        // Indicate that the archive has been sealed
+        Smac.logController.log(Level.INFO, ArchiveController.class.getSimpleName(), "The archive " + sealedFile +
+                " has been sealed with " + this.archive.getEntryCount() + " messages.");
+
+        // Routing tasks of the sealed archive
+        PendingArchive sealed = new PendingArchive(this.pendingArchives, null);
+
+        // Start a new archive for the next message
+        this.archive = null;
+        this.archiveFile = null;
+        this.pendingArchives = new ArrayList<>();
+
+        return sealed;
+    }
+
+    /**
+     * Wait until the current archive reaches its maximum age and seal it
+     *
+     * @return Routing tasks of the sealed archive which need to be acknowledged
+     * @throws InterruptedException
+     */
+    private synchronized PendingArchive takeExpiredArchive() throws InterruptedException {
+
+        for (;;) {
+
+            // Wait for an archive to be started
+            while (this.archive == null) {
+                this.wait();
+            }
+
+            // Seal the archive once it has reached its maximum age
+            long remaining = this.openedTime + this.outputQueue.getArchiveInterval() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return this.seal();
+            }
+
+            this.wait(remaining);
+        }
+    }
+
+    /**
+     * PendingArchive holds the routing tasks of the messages streamed into an archive until the archive has been
+     * sealed or discarded.
+     */
+    private static class PendingArchive {
+
+        // Class attributes
+        private final String failure;
+        private final RoutingTaskListener listener;
+        private final ArrayList<PendingArchive> messages;
+        private final RoutingTask routingTask;
+        private final Path source;
+
+        /**
+         * PendingArchive constructor for a message streamed into an archive
+         *
+         * @param source Input file of the message
+         * @param routingTask SMAC daemon routing task of the message
+         * @param listener Listener which acknowledges the routing task
+         */
+        private PendingArchive(Path source, RoutingTask routingTask, RoutingTaskListener listener) {
+
+            // Initialise class attributes
+            this.failure = null;
+            this.listener = listener;
+            this.messages = null;
+            this.routingTask = routingTask;
+            this.source = source;
+        }
+
+        /**
+         * PendingArchive constructor for the messages of a sealed or discarded archive
+         *
+         * @param messages Messages streamed into the archive
+         * @param failure Reason for which the archive was discarded or null if it has been sealed
+         */
+        private PendingArchive(ArrayList<PendingArchive> messages, String failure) {
+
+            // Initialise class attributes
+            this.failure = failure;
+            this.listener = null;
+            this.messages = messages;
+            this.routingTask = null;
+            this.source = null;
+        }
+
+        /**
+         * Remove the input files and acknowledge the routing tasks of a sealed archive or release the routing tasks
+         * of a discarded archive
+         */
+        private void complete() {
+
+            for (PendingArchive message : this.messages) {
+
+                if (this.failure == null) {
+                    OutputController.acknowledge(message.source, message.routingTask, message.listener);
+                } else {
+                    message.listener.routingTaskFailed(message.routingTask, this.failure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package smac.controller;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import smac.Smac;
+import smac.model.InputQueue;
+import smac.model.RoutingTask;
+import smac.util.SmacFileUtils;
+import smac.util.SmacQueueTypeUtils;
+
+/**
+ * DeadLetterController moves the SEPAmail messages of an input queue which cannot be parsed or routed to the
+ * dead-letter directory of the queue, together with a sidecar file giving the reason for which they were rejected, so
+ * that they are not processed again when the SMAC daemon is restarted.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class DeadLetterController {
+
+    // Dead-letter constants
+    public static final String REASON_SUFFIX = ".reason";
+
+    // Class attributes
+    private final Path deadLetterDir;
+    private final InputQueue inputQueue;
+
+    /**
+     * DeadLetterController constructor
+     *
+     * @param inputQueue SMAC input queue whose rejected messages are handled by the controller
+     * @throws MalformedURLException
+     */
+    public DeadLetterController(InputQueue inputQueue) throws MalformedURLException {
+
+        // Dead-letter directory of the input queue
+        String deadLetterDirectory = inputQueue.getDeadLetterDirectory();
+
+        // Initialise class attributes
+        this.deadLetterDir = deadLetterDirectory != null ? Paths.get(deadLetterDirectory).toAbsolutePath() : null;
+        this.inputQueue = inputQueue;
+    }
+
+    /**
+     * Check whether a dead-letter directory has been defined for the input queue
+     *
+     * @return Whether rejected messages are moved to a dead-letter directory
+     */
+    public boolean isEnabled() {
+        return this.deadLetterDir != null;
+    }
+
+    /**
+     * Move a rejected SEPAmail message to the dead-letter directory of its input queue together with its reason file
+     *
+     * @param routingTask SMAC daemon routing task of the rejected message
+     * @param cause Error for which the message was rejected
+     * @return Whether the message has been moved to the dead-letter directory
+     */
+    public boolean reject(RoutingTask routingTask, Exception cause) {
+
+        // Input file of the rejected message
+        Path source = routingTask.getEmlFile().toPath();
+
+        // Reason file of the rejected message
+        Path reasonFile = this.deadLetterDir.resolve(source.getFileName() + REASON_SUFFIX);
+
+        try {
+
+            // Create the dead-letter directory if required
+            Files.createDirectories(this.deadLetterDir);
+
+            // Write the reason file first so that it is available as soon as the message appears
+            Path partialReasonFile = reasonFile.resolveSibling(reasonFile.getFileName() +
+                    SmacFileUtils.PARTIAL_FILE_SUFFIX);
+            Files.write(partialReasonFile, this.getReason(routingTask, cause).getBytes(StandardCharsets.UTF_8));
+            Files.move(partialReasonFile, reasonFile, StandardCopyOption.ATOMIC_MOVE);
+
+            try {
+
+                // Move the rejected message
+                Path target = SmacFileUtils.moveFile(source, this.deadLetterDir);
+
+                // A message copied to another file system is only removed from its input queue once its copy is
+                // durable
+                if (Files.exists(source)) {
+
+                    try {
+
+                        SmacFileUtils.sync(this.deadLetterDir);
+
+                    } catch (IOException e) {
+
+                        // Remove the copy which may not survive a power loss
+                        Files.deleteIfExists(target);
+
+                        throw e;
+                    }
+
+                    Files.delete(source);
+                }
+
+            } catch (IOException e) {
+
+                // The message remains in its input queue
+                Files.deleteIfExists(reasonFile);
+
+                throw e;
+            }
+
+        } catch (IOException e) {
+
+            // Log errors
+            Smac.logController.log(Level.SEVERE, DeadLetterController.class.getSimpleName(), "The file " + source +
+                    " could not be moved to the dead-letter directory " + this.deadLetterDir + ": " + e);
+
+            return false;
+        }
+
+        // Indicate that the message has been rejected
+        Smac.logController.log(Level.WARNING, DeadLetterController.class.getSimpleName(), "The file " + source +
+                " was moved to the dead-letter directory " + this.deadLetterDir + ".");
+
+        return true;
+    }
+
+    /**
+     * Build the content of the reason file of a rejected message
+     *
+     * @param routingTask SMAC daemon routing task of the rejected message
+     * @param cause Error for which the message was rejected
+     * @return Content of the reason file
+     */
+    private String getReason(RoutingTask routingTask, Exception cause) {
+
+        String lineSeparator = System.getProperty("line.separator");
+
+        // Date at which the message was rejected
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Reason file content
+        String reason = "";
+        reason += "File: " + routingTask.getEmlFile().getName() + lineSeparator;
+        reason += "Input queue: " + SmacQueueTypeUtils.getQueueTypeName(this.inputQueue.getQueueType()) +
+                lineSeparator;
+        reason += "Date: " + dateFormat.format(new Date()) + lineSeparator;
+        reason += "Error: " + cause.getClass().getName() + lineSeparator;
+        reason += "Reason: " + cause.getMessage() + lineSeparator;
+
+        return reason;
+    }
+}
@@ -0,0 +1,273 @@
+package smac.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.logging.Level;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import smac.Smac;
+import smac.exception.DuplicateMessageException;
+import smac.model.RoutingTask;
+import smac.util.SmacDigestStore;
+
+/**
+ * DeduplicationController suppresses SEPAmail messages which have already been delivered. Messages are identified by
+ * their Message-ID or by a hash of their content when the Message-ID is missing. Delivered messages are recorded in a
+ * persistent Bloom filter whose positive answers are confirmed by an exact on-disk digest store, so that duplicates are
+ * detected across restarts without keeping every identifier in heap. The store retains the most recent delivered
+ * messages up to the configured capacity.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class DeduplicationController {
+
+    // Deduplication constants
+    private static final String DIGEST_DIRECTORY = "keys";
+
+    private static DeduplicationController deduplicationController;
+
+    // Class attributes
+    private final SmacDigestStore digestStore;
+    private final HashSet<ByteBuffer> inFlight;
+
+    /**
+     * DeduplicationController default constructor which opens the persistent duplicate suppression state, whose
+     * Bloom filters are rebuilt from the digest store if required
+     *
+     * @throws IOException
+     */
+    private DeduplicationController() throws IOException {
+
+        // Directory of the duplicate suppression state
+        Path directory = Paths.get(Smac.config.getDeduplicationDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+
+        // Initialise class attributes
+        this.digestStore = new SmacDigestStore(directory.resolve(DIGEST_DIRECTORY),
+                Smac.config.getDeduplicationCapacity());
+        this.inFlight = new HashSet<>();
+
+        // Indicate that Bloom filters have been rebuilt from the digest store
+        if (this.digestStore.getRebuiltDigests() >= 0) {
+            Smac.logController.log(Level.INFO, DeduplicationController.class.getSimpleName(),
+                    "The duplicate suppression filters of " + directory.resolve(DIGEST_DIRECTORY) +
+                    " have been rebuilt with " + this.digestStore.getRebuiltDigests() + " delivered messages.");
+        }
+    }
+
+    /**
+     * Get an instance of the DeduplicationController class
+     *
+     * @return DeduplicationController class instance
+     * @throws IOException
+     */
+    public static synchronized DeduplicationController getDeduplicationController() throws IOException {
+
+        // Check if an instance of the controller has already been declared
+        if (deduplicationController == null) {
+            deduplicationController = new DeduplicationController();
+        }
+
+        return deduplicationController;
+    }
+
+    /**
+     * Record the SEPAmail message of a routing task as delivered
+     *
+     * @param routingTask SMAC daemon routing task which has been completed
+     */
+    public void commit(RoutingTask routingTask) {
+
+        // Digest of the delivered message
+        byte[] key = routingTask.getDeduplicationKey();
+
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+
+            // Record the digest in the digest store and in its Bloom filter
+            try {
+                this.digestStore.add(key);
+            } catch (IOException e) {
+                Smac.logController.log(Level.WARNING, DeduplicationController.class.getSimpleName(), "The file " +
+                        routingTask.getEmlFile().getAbsolutePath() + " could not be recorded as delivered: " + e);
+            }
+
+            this.inFlight.remove(ByteBuffer.wrap(key));
+        }
+
+        routingTask.setDeduplicationKey(null);
+    }
+
+    /**
+     * Release the reservation of a SEPAmail message which could not be delivered
+     *
+     * @param routingTask SMAC daemon routing task which has failed
+     */
+    public void release(RoutingTask routingTask) {
+
+        // Digest of the message
+        byte[] key = routingTask.getDeduplicationKey();
+
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+            this.inFlight.remove(ByteBuffer.wrap(key));
+        }
+
+        routingTask.setDeduplicationKey(null);
+    }
+
+    /**
+     * Reserve the SEPAmail message of a routing task unless it has already been delivered or is being delivered
+     *
+     * @param routingTask SMAC daemon routing task which needs to be routed
+     * @param emlMessage Parsed SEPAmail message container associated with the routing task
+     * @throws DuplicateMessageException
+     */
+    public void reserve(RoutingTask routingTask, MimeMessage emlMessage) throws DuplicateMessageException {
+
+        // Identifier of the message
+        String messageId;
+
+        // Digest of the message
+        byte[] key;
+
+        try {
+
+            messageId = emlMessage.getMessageID();
+            key = this.getKey(routingTask, messageId);
+
+        } catch (MessagingException | IOException e) {
+
+            // A message which cannot be identified is delivered without duplicate suppression
+            Smac.logController.log(Level.WARNING, DeduplicationController.class.getSimpleName(), "The file " +
+                    routingTask.getEmlFile().getAbsolutePath() + " could not be identified: " + e);
+
+            return;
+        }
+
+        // Description of the message identifier for the logs
+        String description = messageId != null ? messageId.trim() : "with content hash " + this.toHex(key);
+
+        // Whether the Bloom filter needs to be confirmed by the digest store
+        boolean mightBeDelivered;
+
+        synchronized (this) {
+
+            // Check if the message is being delivered from another input file
+            if (this.inFlight.contains(ByteBuffer.wrap(key))) {
+                throw new DuplicateMessageException(routingTask.getEmlFile().getAbsolutePath(), description, true);
+            }
+
+            // Reserve the message so that a copy cannot be delivered while the digest store is being read
+            mightBeDelivered = this.digestStore.mightContain(key);
+            this.inFlight.add(ByteBuffer.wrap(key));
+        }
+
+        try {
+
+            // Confirm the positive answers of the Bloom filter with the digest store without blocking the other
+            // routing threads
+            if (mightBeDelivered && this.digestStore.contains(key)) {
+
+                synchronized (this) {
+                    this.inFlight.remove(ByteBuffer.wrap(key));
+                }
+
+                throw new DuplicateMessageException(routingTask.getEmlFile().getAbsolutePath(), description, false);
+            }
+
+        } catch (IOException e) {
+
+            // The message is delivered when the digest store cannot be read
+            Smac.logController.log(Level.WARNING, DeduplicationController.class.getSimpleName(),
+                    "The duplicate suppression store could not be read: " + e);
+        }
+
+        routingTask.setDeduplicationKey(key);
+    }
+
+    /**
+     * Compute the digest identifying a SEPAmail message
+     *
+     * @param routingTask SMAC daemon routing task associated with the message
+     * @param messageId Message-ID of the message or null if it is missing
+     * @return SHA-256 digest of the Message-ID or of the content of the message
+     * @throws IOException
+     */
+    private byte[] getKey(RoutingTask routingTask, String messageId) throws IOException {
+
+        // Message digest
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        // Identify the message by its Message-ID
+        if (messageId != null && messageId.trim().length() > 0) {
+
+            digest.update("message-id:".getBytes(StandardCharsets.US_ASCII));
+            digest.update(messageId.trim().getBytes(StandardCharsets.UTF_8));
+
+            return digest.digest();
+        }
+
+        // Identify the message by its content
+        digest.update("content:".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(routingTask.getEmlFile().toPath())) {
+
+            int count = in.read(buffer);
+            while (count > 0) {
+                digest.update(buffer, 0, count);
+                count = in.read(buffer);
+            }
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Convert a digest to its hexadecimal representation
+     *
+     * @param key Digest
+     * @return Hexadecimal representation of the digest
+     */
+    private String toHex(byte[] key) {
+
+        StringBuilder hex = new StringBuilder(key.length * 2);
+        for (byte b : key) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Override the clone method to prevent cloning of the class
+     *
+     * @return void
+     * @throws CloneNotSupportedException
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+}
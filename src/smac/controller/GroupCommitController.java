@@ -0,0 +1,288 @@
+package smac.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.logging.Level;
+import smac.Smac;
+import smac.model.OutputQueue;
+import smac.model.RoutingTask;
+import smac.util.SmacFileUtils;
+import smac.util.SmacQueueType;
+import smac.util.SmacQueueTypeUtils;
+
+/**
+ * GroupCommitController batches the messages delivered to an output queue, syncs their output directories or segment
+ * files together and only then acknowledges the corresponding routing tasks.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class GroupCommitController implements Runnable {
+
+    // Group commit controllers shared by the input queue controllers
+    private static final EnumMap<SmacQueueType, GroupCommitController> groupCommitControllers =
+            new EnumMap<>(SmacQueueType.class);
+
+    // Maximum time in milliseconds given to the pending batch to be committed when the SMAC daemon stops
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    // Class attributes
+    private long firstPendingTime;
+    private final OutputQueue outputQueue;
+    private ArrayList<PendingCommit> pendingCommits;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * GroupCommitController constructor
+     *
+     * @param outputQueue SMAC output queue whose delivered messages are committed by the controller
+     */
+    private GroupCommitController(OutputQueue outputQueue) {
+
+        // Initialise class attributes
+        this.firstPendingTime = 0;
+        this.outputQueue = outputQueue;
+        this.pendingCommits = new ArrayList<>(outputQueue.getGroupCommitSize());
+        this.running = true;
+    }
+
+    /**
+     * Get the group commit controller of an output queue and start it if required
+     *
+     * @param outputQueue SMAC output queue in group commit durability mode
+     * @return Group commit controller of the output queue
+     */
+    public static synchronized GroupCommitController getGroupCommitController(OutputQueue outputQueue) {
+
+        // Group commit controller of the output queue
+        GroupCommitController groupCommitController = groupCommitControllers.get(outputQueue.getQueueType());
+
+        // Check if the group commit controller has already been started
+        if (groupCommitController == null) {
+
+            groupCommitController = new GroupCommitController(outputQueue);
+
+            // Create the thread which commits the batches of the output queue
+            groupCommitController.thread = new Thread(groupCommitController);
+            groupCommitController.thread.setName(SmacQueueTypeUtils.getQueueTypeName(outputQueue.getQueueType()) +
+                    " group commit thread");
+            groupCommitController.thread.setDaemon(true);
+            groupCommitController.thread.start();
+
+            // Commit the pending batch when the SMAC daemon stops
+            final GroupCommitController controller = groupCommitController;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+                /**
+                 * Stop the group commit thread once the pending batch has been committed
+                 */
+                @Override
+                public void run() {
+                    controller.stop(SHUTDOWN_TIMEOUT);
+                }
+            }, SmacQueueTypeUtils.getQueueTypeName(outputQueue.getQueueType()) + " group commit shutdown thread"));
+
+            groupCommitControllers.put(outputQueue.getQueueType(), groupCommitController);
+        }
+
+        return groupCommitController;
+    }
+
+    /**
+     * Add a delivered message to the current batch of the output queue
+     *
+     * @param syncPath Output directory or segment file which must be synced for the message to be durable
+     * @param source Input file which must be deleted once the message is durable or null if it has been moved
+     * @param routingTask SMAC daemon routing task of the delivered message
+     * @param listener Listener which acknowledges the routing task once the batch has been synced
+     */
+    public synchronized void commit(Path syncPath, Path source, RoutingTask routingTask,
+            RoutingTaskListener listener) {
+
+        // Record the time at which the batch was started
+        if (this.pendingCommits.isEmpty()) {
+            this.firstPendingTime = System.currentTimeMillis();
+        }
+
+        this.pendingCommits.add(new PendingCommit(syncPath, source, routingTask, listener));
+
+        // Wake up the commit thread when a batch has been started or is full
+        if (this.pendingCommits.size() == 1 || this.pendingCommits.size() >= this.outputQueue.getGroupCommitSize()) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Sync and acknowledge the batches of delivered messages of the output queue until the controller is stopped
+     */
+    @Override
+    public void run() {
+
+        for (;;) {
+
+            // Batch of delivered messages which needs to be committed
+            ArrayList<PendingCommit> batch;
+
+            try {
+                batch = this.takeBatch();
+            } catch (InterruptedException e) {
+
+                // Log errors
+                Smac.logController.log(Level.SEVERE, GroupCommitController.class.getSimpleName(), e.getMessage());
+
+                return;
+            }
+
+            // The controller has been stopped and its last batch has been committed
+            if (batch == null) {
+                return;
+            }
+
+            this.commitBatch(batch);
+        }
+    }
+
+    /**
+     * Stop the group commit thread once the pending batch has been committed
+     *
+     * @param timeout Maximum time in milliseconds to wait for the pending batch to be committed
+     */
+    public void stop(long timeout) {
+
+        synchronized (this) {
+
+            // Commit the pending batch without waiting for its group commit interval to elapse
+            this.running = false;
+            this.notifyAll();
+        }
+
+        try {
+            this.thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sync the output directories and segment files of a batch and acknowledge the routing tasks whose messages are
+     * durable
+     *
+     * @param batch Batch of delivered messages which needs to be committed
+     */
+    private void commitBatch(ArrayList<PendingCommit> batch) {
+
+        // Output directories and segment files modified by the batch and the reasons for which they were not synced
+        HashMap<Path, String> syncFailures = new HashMap<>();
+        for (PendingCommit pendingCommit : batch) {
+
+            // Sync each output directory or segment file once for the whole batch
+            if (syncFailures.containsKey(pendingCommit.syncPath)) {
+                continue;
+            }
+
+            try {
+
+                SmacFileUtils.sync(pendingCommit.syncPath);
+                syncFailures.put(pendingCommit.syncPath, null);
+
+            } catch (IOException e) {
+
+                // Log errors
+                String syncFailure = "The path " + pendingCommit.syncPath + " could not be synced: " + e;
+                Smac.logController.log(Level.SEVERE, GroupCommitController.class.getSimpleName(), syncFailure);
+
+                syncFailures.put(pendingCommit.syncPath, syncFailure);
+            }
+        }
+
+        // Acknowledge the routing tasks of the batch
+        for (PendingCommit pendingCommit : batch) {
+
+            try {
+
+                // Messages which were copied are not durable, their input files and locks are kept so that they are
+                // delivered again while moved messages have already left their input queue
+                String syncFailure = syncFailures.get(pendingCommit.syncPath);
+                if (syncFailure != null && pendingCommit.source != null) {
+                    pendingCommit.listener.routingTaskFailed(pendingCommit.routingTask, syncFailure);
+                } else {
+                    OutputController.acknowledge(pendingCommit.source, pendingCommit.routingTask,
+                            pendingCommit.listener);
+                }
+
+            } catch (RuntimeException e) {
+
+                // The other routing tasks of the batch and the following batches must still be acknowledged
+                Smac.logController.log(Level.SEVERE, GroupCommitController.class.getSimpleName(),
+                        "The routing task of the file " + pendingCommit.routingTask.getEmlFile() +
+                        " could not be acknowledged: " + e);
+            }
+        }
+    }
+
+    /**
+     * Wait until a batch is full or its group commit interval has elapsed and take it
+     *
+     * @return Batch of delivered messages which needs to be committed or null if the controller has been stopped
+     * @throws InterruptedException
+     */
+    private synchronized ArrayList<PendingCommit> takeBatch() throws InterruptedException {
+
+        // Wait for a batch to be started
+        while (this.pendingCommits.isEmpty() && this.running) {
+            this.wait();
+        }
+
+        if (this.pendingCommits.isEmpty()) {
+            return null;
+        }
+
+        // Wait for the batch to be full or for its group commit interval to elapse
+        long deadline = this.firstPendingTime + this.outputQueue.getGroupCommitInterval();
+        long remaining = deadline - System.currentTimeMillis();
+        while (this.pendingCommits.size() < this.outputQueue.getGroupCommitSize() && remaining > 0 &&
+                this.running) {
+            this.wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        // Start a new batch
+        ArrayList<PendingCommit> batch = this.pendingCommits;
+        this.pendingCommits = new ArrayList<>(this.outputQueue.getGroupCommitSize());
+
+        return batch;
+    }
+
+    /**
+     * PendingCommit holds a delivered message waiting for its output directory or segment file to be synced.
+     */
+    private static class PendingCommit {
+
+        // Class attributes
+        private final RoutingTaskListener listener;
+        private final RoutingTask routingTask;
+        private final Path source;
+        private final Path syncPath;
+
+        /**
+         * PendingCommit constructor
+         *
+         * @param syncPath Output directory or segment file which must be synced
+         * @param source Input file which must be deleted once the message is durable or null
+         * @param routingTask SMAC daemon routing task of the delivered message
+         * @param listener Listener which acknowledges the routing task
+         */
+        private PendingCommit(Path syncPath, Path source, RoutingTask routingTask, RoutingTaskListener listener) {
+
+            // Initialise class attributes
+            this.listener = listener;
+            this.routingTask = routingTask;
+            this.source = source;
+            this.syncPath = syncPath;
+        }
+    }
+}
@@ -1,20 +1,31 @@
 package smac.controller;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.logging.Level;
 import smac.Smac;
 import smac.exception.DuplicateLockException;
+import smac.exception.DuplicateMessageException;
+import smac.exception.FileMoveException;
 import smac.exception.RuleNotFoundException;
 import smac.exception.UndefinedOutputQueueException;
+import smac.exception.UnparseableMessageException;
 import smac.model.InputQueue;
+import smac.model.InputQueueStatistics;
 import smac.model.RoutingTask;
+import smac.util.SmacAllocationCategory;
+import smac.util.SmacAllocationMeter;
 import smac.util.SmacDirectoryUtils;
 import smac.util.SmacDirectoryWatcherService;
+import smac.util.SmacFlightEvent;
+import smac.util.SmacFlightRecorder;
 import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacTraceStage;
 
 /**
  * InputQueueController monitors a SMAC input queue directory and carries out message routing based on the predefined
@@ -23,15 +34,17 @@ import smac.util.SmacQueueTypeUtils;
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 0.1
  */
-public class InputQueueController implements Runnable {
+public class InputQueueController implements Runnable, RoutingTaskListener {
 
     // Class attributes
+    private DeadLetterController deadLetterController;
     private File inputQueueDir;
     private OutputController outputController;
     private PriorityBlockingQueue<RoutingTask> processQueue;
     private Thread queueWatcherThread;
     private RoutingController routingController;
     private InputQueue smacQueue;
+    private InputQueueStatistics statistics;
 
     /**
      * InputQueueController constructor
@@ -42,11 +55,16 @@ public class InputQueueController implements Runnable {
     public InputQueueController(InputQueue smacQueue) throws MalformedURLException {
 
         // Initialise class attributes
+        this.deadLetterController = new DeadLetterController(smacQueue);
         this.inputQueueDir = new File(smacQueue.getQueueDirectory());
         this.outputController = new OutputController();
         this.processQueue = new PriorityBlockingQueue<>();
         this.routingController  = new RoutingController();
         this.smacQueue = smacQueue;
+        this.statistics = Smac.monitoringController.getInputQueueStatistics(smacQueue.getQueueType());
+
+        // Report the depth of the process queue
+        this.statistics.setProcessQueue(this.processQueue);
     }
 
     /**
@@ -70,6 +88,9 @@ public class InputQueueController implements Runnable {
             this.queueBacklogs();
         }
 
+        // The input queue is ready once its backlog and its directory watch service are both in place
+        this.statistics.setBacklogScanned(true);
+
         try {
 
             // Start the queue directory watcher service
@@ -82,7 +103,8 @@ public class InputQueueController implements Runnable {
             this.queueWatcherThread.setName(SmacQueueTypeUtils.getQueueTypeName(this.smacQueue.getQueueType()) +
                     " watch service thread");
 
-            // Start the queue watch service thread
+            // Start the queue watch service thread, whose directory has been registered by its constructor
+            this.statistics.setWatching(true);
             this.queueWatcherThread.start();
 
         } catch (MalformedURLException e) {
@@ -105,6 +127,7 @@ public class InputQueueController implements Runnable {
             try {
 
                 routingTask = this.processQueue.take();
+                routingTask.setTimestamp(SmacTraceStage.DEQUEUE, System.nanoTime());
 
             } catch (InterruptedException e) {
 
@@ -114,47 +137,170 @@ public class InputQueueController implements Runnable {
                 return;
             }
 
+            // Whether the routing task has been handed over to its output queue, moved to the dead-letter directory
+            // or scheduled for a retry
+            boolean isDeadLettered = false;
+            boolean isDelivered = false;
+            boolean isRetried = false;
+
+            // Account for the memory allocated while processing the routing task
+            boolean isAccounted = SmacAllocationMeter.begin();
+
             try {
 
                 // Route the SEPAmail message
                 this.routingController.route(routingTask);
 
-                // Move the EML file associated with the task to its output directory
-                this.outputController.move(routingTask);
+                // Move the EML file associated with the task to its output directory, whose size is taken before it
+                // leaves the input queue
+                Object moveEvent = SmacFlightRecorder.begin(SmacFlightEvent.MOVE);
+                long fileSize = moveEvent != null ? routingTask.getEmlFile().length() : 0;
+                try {
+
+                    this.outputController.move(routingTask, this);
 
-                // SEPAmail message associated to the current task has been moved
-                Smac.logController.log(Level.INFO, InputQueueController.class.getSimpleName(), "The file " +
-                        routingTask.getEmlFile().getAbsolutePath() + " was sent to the " +
-                        SmacQueueTypeUtils.getQueueTypeName(routingTask.getOutputQueueType()) + " queue.");
+                    // The routing task is acknowledged once its output queue has committed the move
+                    isDelivered = true;
+                    SmacAllocationMeter.mark(SmacAllocationCategory.MOVE);
 
-            } catch (RuleNotFoundException e) {
+                } finally {
+                    SmacFlightRecorder.commit(moveEvent, routingTask.getOutputQueueType(), fileSize, 1,
+                            isDelivered ? SmacFlightRecorder.OUTCOME_SUCCESS : SmacFlightRecorder.OUTCOME_FAILURE);
+                }
+
+            } catch (RuleNotFoundException | UnparseableMessageException e) {
 
                 // Log errors
                 Smac.logController.log(Level.WARNING, RoutingController.class.getSimpleName(), e.getMessage());
 
-            } catch (UndefinedOutputQueueException | MalformedURLException e) {
+                // Move the rejected SEPAmail message out of the input queue so that it is only processed once
+                if (this.deadLetterController.isEnabled() && this.deadLetterController.reject(routingTask, e)) {
 
-                // Log errors
-                Smac.logController.log(Level.WARNING, OutputController.class.getSimpleName(), e.getMessage());
+                    isDeadLettered = true;
+                    this.statistics.incrementDeadLettered();
+                    this.releaseLock(routingTask);
+                }
 
-            } finally {
+            } catch (FileNotFoundException e) {
+
+                // The SEPAmail message was removed or cannot be read
+                Smac.logController.log(Level.WARNING, RoutingController.class.getSimpleName(), e.getMessage());
+
+                // Retry a SEPAmail message which is still present but could not be read
+                if (routingTask.getEmlFile().exists()) {
+                    isRetried = this.retry(routingTask, e.getMessage());
+                }
 
-                // Remove the lock for the processed SEPAmail message container file
-                if (routingTask.getLockFile().delete()) {
+            } catch (DuplicateMessageException e) {
 
-                    // Lock was successfully deleted
-                    Smac.logController.log(Level.FINEST, InputQueueController.class.getSimpleName(), "The lock " +
-                            routingTask.getLockFile().getAbsolutePath() + " for " +
-                            routingTask.getEmlFile().getAbsolutePath() + " was removed.");
+                // Log errors
+                Smac.logController.log(Level.WARNING, DeduplicationController.class.getSimpleName(), e.getMessage());
 
+                // Remove a duplicate of a SEPAmail message which has already been delivered or check the duplicate
+                // again once the original SEPAmail message has been delivered
+                if (!e.isInFlight()) {
+                    this.statistics.incrementDuplicates();
+                    this.removeDuplicate(routingTask);
                 } else {
+                    isRetried = this.retry(routingTask, e.getMessage());
+                }
+
+            } catch (FileMoveException e) {
+
+                // Log errors once per throttle window while the output queue is failing
+                Smac.logController.logThrottled(Level.WARNING, OutputController.class.getSimpleName(),
+                        "move:" + routingTask.getOutputQueueType(), e.getMessage());
+                Smac.monitoringController.getOutputQueueStatistics(routingTask.getOutputQueueType()).incrementFailed();
+
+                // The output queue may become available again
+                isRetried = this.retry(routingTask, e.getMessage());
+
+            } catch (UndefinedOutputQueueException | MalformedURLException e) {
+
+                // Log errors once per throttle window for each output queue
+                Smac.logController.logThrottled(Level.WARNING, OutputController.class.getSimpleName(),
+                        e.getClass().getSimpleName() + ":" + routingTask.getOutputQueueType(), e.getMessage());
+
+            } catch (RuntimeException e) {
+
+                // A programming error leaves the SEPAmail message in its input queue instead of rejecting it and
+                // must not stop the processing of the input queue
+                Smac.logController.log(Level.SEVERE, InputQueueController.class.getSimpleName(), "The file " +
+                        routingTask.getEmlFile() + " could not be processed: " + e);
 
-                    // Lock could not be removed
-                    Smac.logController.log(Level.WARNING, InputQueueController.class.getSimpleName(), "The lock " +
-                            routingTask.getLockFile().getAbsolutePath() + " for " +
-                            routingTask.getEmlFile().getAbsolutePath() + " could not be removed.");
+            } finally {
+
+                // Remove the lock of a SEPAmail message which could not be delivered and will not be retried
+                if (!isDelivered) {
+
+                    this.releaseDeduplicationKey(routingTask);
+
+                    if (!isDeadLettered && !isRetried) {
+                        this.statistics.incrementFailed();
+                        this.releaseLock(routingTask);
+                    }
                 }
             }
+
+            // Attribute the memory allocated by the routing task to the parts of its processing
+            if (isAccounted) {
+
+                SmacAllocationMeter.end();
+                this.statistics.recordAllocation();
+            }
+        }
+    }
+
+    /**
+     * Acknowledge a routing task whose SEPAmail message has durably reached its output queue
+     *
+     * @param routingTask SMAC daemon routing task which has been completed
+     */
+    @Override
+    public void routingTaskCompleted(RoutingTask routingTask) {
+
+        // The output queue has acknowledged the SEPAmail message
+        routingTask.setTimestamp(SmacTraceStage.MOVE, System.nanoTime());
+
+        // SEPAmail message associated to the current task has been moved
+        Smac.logController.log(Level.INFO, InputQueueController.class.getSimpleName(),
+                "The file {0} was sent to the {1} queue.", routingTask.getEmlFile(), routingTask.getOutputQueueType());
+
+        // Record the SEPAmail message as delivered
+        if (Smac.deduplicationController != null) {
+            Smac.deduplicationController.commit(routingTask);
+        }
+
+        // Release the claim on the SEPAmail message
+        this.releaseLock(routingTask);
+
+        // Record the delivery and the time spent by the SEPAmail message in each stage
+        this.statistics.incrementRouted();
+        Smac.monitoringController.recordStages(routingTask);
+    }
+
+    /**
+     * Release a routing task whose SEPAmail message could not be delivered after being accepted by its output queue
+     *
+     * @param routingTask SMAC daemon routing task which has failed
+     * @param reason Reason for which the SEPAmail message could not be delivered
+     */
+    @Override
+    public void routingTaskFailed(RoutingTask routingTask, String reason) {
+
+        // SEPAmail message associated to the current task remains in its input queue
+        Smac.logController.logThrottled(Level.WARNING, OutputController.class.getSimpleName(),
+                "failed:" + routingTask.getOutputQueueType(), "The file {0} could not be sent to the {1} queue: {2}",
+                routingTask.getEmlFile(), routingTask.getOutputQueueType(), reason);
+
+        Smac.monitoringController.getOutputQueueStatistics(routingTask.getOutputQueueType()).incrementFailed();
+
+        // Release the claim on the SEPAmail message unless it will be retried
+        this.releaseDeduplicationKey(routingTask);
+
+        if (!this.retry(routingTask, reason)) {
+            this.statistics.incrementFailed();
+            this.releaseLock(routingTask);
         }
     }
 
@@ -232,6 +378,91 @@ public class InputQueueController implements Runnable {
         }
     }
 
+    /**
+     * Release the duplicate suppression reservation of a SEPAmail message which could not be delivered
+     *
+     * @param routingTask SMAC daemon routing task which holds the reservation
+     */
+    private void releaseDeduplicationKey(RoutingTask routingTask) {
+
+        if (Smac.deduplicationController != null) {
+            Smac.deduplicationController.release(routingTask);
+        }
+    }
+
+    /**
+     * Remove the lock of a processed SEPAmail message container file
+     *
+     * @param routingTask SMAC daemon routing task which holds the lock
+     */
+    private void releaseLock(RoutingTask routingTask) {
+
+        // Remove the lock for the processed SEPAmail message container file
+        Object lockEvent = SmacFlightRecorder.begin(SmacFlightEvent.LOCK_DELETE);
+        boolean isReleased = routingTask.getLockFile().delete();
+        SmacFlightRecorder.commit(lockEvent, routingTask.getInputQueueType(), routingTask.getEmlFile(),
+                isReleased ? SmacFlightRecorder.OUTCOME_SUCCESS : SmacFlightRecorder.OUTCOME_FAILURE);
+        routingTask.setTimestamp(SmacTraceStage.RELEASE, System.nanoTime());
+
+        if (isReleased) {
+
+            // Lock was successfully deleted
+            Smac.logController.log(Level.FINEST, InputQueueController.class.getSimpleName(),
+                    "The lock {0} for {1} was removed.", routingTask.getLockFile(), routingTask.getEmlFile());
+
+        } else {
+
+            // Lock could not be removed
+            Smac.logController.log(Level.WARNING, InputQueueController.class.getSimpleName(),
+                    "The lock {0} for {1} could not be removed.", routingTask.getLockFile(), routingTask.getEmlFile());
+        }
+    }
+
+    /**
+     * Schedule the retry of a routing task which failed with a transient error. The lock of the SEPAmail message is
+     * kept while the retry is pending.
+     *
+     * @param routingTask SMAC daemon routing task which has failed
+     * @param reason Reason for which the routing task has failed
+     * @return Whether the retry has been scheduled
+     */
+    private boolean retry(RoutingTask routingTask, String reason) {
+
+        // Check if the retry was scheduled
+        if (RetryController.getRetryController().schedule(routingTask, this.processQueue, reason)) {
+
+            this.statistics.incrementRetried();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Remove a duplicate SEPAmail message container file from the input queue
+     *
+     * @param routingTask SMAC daemon routing task of the duplicate SEPAmail message
+     */
+    private void removeDuplicate(RoutingTask routingTask) {
+
+        try {
+
+            // Delete the duplicate SEPAmail message
+            Files.deleteIfExists(routingTask.getEmlFile().toPath());
+
+            // Duplicate was successfully deleted
+            Smac.logController.log(Level.INFO, InputQueueController.class.getSimpleName(),
+                    "The duplicate file {0} was removed.", routingTask.getEmlFile());
+
+        } catch (IOException e) {
+
+            // Duplicate could not be removed
+            Smac.logController.log(Level.WARNING, InputQueueController.class.getSimpleName(),
+                    "The duplicate file {0} could not be removed: {1}", routingTask.getEmlFile(), e);
+        }
+    }
+
     /**
      * Add the list of existing SEPAmail message files to the SMAC daemon process queue
      */
@@ -277,12 +508,14 @@ public class InputQueueController implements Runnable {
                             + System.getProperty("file.separator") + messageFiles[i]), this.smacQueue.getQueueType());
 
                     // Add the task to the process queue
+                    routingTask.setTimestamp(SmacTraceStage.ENQUEUE, System.nanoTime());
                     this.processQueue.add(routingTask);
+                    this.statistics.incrementEnqueued();
 
                     // Indicate that the pending message was added to the process queue
-                    Smac.logController.log(Level.INFO, InputQueueController.class.getSimpleName(), "The file " +
-                            routingTask.getEmlFile().getAbsolutePath() + " was added to the " +
-                            SmacQueueTypeUtils.getQueueTypeName(this.smacQueue.getQueueType()) + " queue.");
+                    Smac.logController.log(Level.INFO, InputQueueController.class.getSimpleName(),
+                            "The file {0} was added to the {1} queue.", routingTask.getEmlFile(),
+                            this.smacQueue.getQueueType());
 
                 } catch (IOException e) {
 
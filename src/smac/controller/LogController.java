@@ -2,23 +2,53 @@ package smac.controller;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.util.logging.FileHandler;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.logging.LogRecord;
 import smac.Smac;
+import smac.util.SmacAllocationMeter;
+import smac.util.SmacLogArchiver;
 import smac.util.SmacLogFormatter;
+import smac.util.SmacLogOverflowPolicy;
+import smac.util.SmacLogThrottle;
+import smac.util.SmacLogWriter;
+import smac.util.SmacRingBuffer;
+import smac.util.SmacSyslogFormatter;
+import smac.util.SmacSyslogSender;
 
 /**
- * LogController allows the application to log all error messages to a log in Syslog format.
+ * LogController allows the application to log all error messages to a log in Syslog format. Log records are published
+ * in a lock-free ring buffer and written to the log file by a dedicated thread so that the routing threads never wait
+ * for the disk.
  *
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 1.0
  */
 public class LogController {
 
-    private static final Logger LOGGER = Logger.getLogger(Smac.class.getName());
+    // Log controller constants
+    private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+    private static final int SYSLOG_PORT = 514;
+
     private static LogController logController;
 
+    // Class attributes
+    private final AtomicLong dropped;
+    private final int levelValue;
+    private final SmacLogOverflowPolicy overflowPolicy;
+    private final int overflowThreshold;
+    private final SmacRingBuffer<LogRecord> ringBuffer;
+    private final SmacSyslogSender syslogSender;
+    private final SmacLogThrottle throttle;
+    private final SmacLogWriter writer;
+
     /**
      * LogController default constructor
      *
@@ -27,21 +57,86 @@ public class LogController {
      */
     private LogController() throws IOException, MalformedURLException {
 
-        // File formatter
-        SmacLogFormatter fileFormatter = new SmacLogFormatter();
+        // Initialise class attributes
+        this.dropped = new AtomicLong();
+        this.levelValue = Smac.config.getLogLevel().intValue();
+        this.overflowPolicy = Smac.config.getLogOverflowPolicy();
+        this.ringBuffer = new SmacRingBuffer<>(Smac.config.getLogBufferSize());
+        this.overflowThreshold = this.ringBuffer.getCapacity() / 4 * 3;
+        this.throttle = new SmacLogThrottle(Smac.config.getLogThrottleWindow(), Smac.config.getLogThrottleKeys(),
+                new SmacLogThrottle.SuppressionReporter() {
+
+                    /**
+                     * Log the number of similar messages which have been suppressed
+                     */
+                    @Override
+                    public void report(String key, Level level, String source, long suppressed) {
+                        publish(level, source, "{0} similar messages suppressed: {1}",
+                                new Object[] { Long.toString(suppressed), key });
+                    }
+                });
+
+        // Compress and purge the rotated log files in the background if the log file is rotated
+        SmacLogArchiver archiver = null;
+        if (Smac.config.getLogRotateSize() > 0 || Smac.config.getLogRotateInterval() > 0) {
+
+            archiver = new SmacLogArchiver(Paths.get(Smac.config.getLogFilename()), Smac.config.isLogRotateCompress(),
+                    Smac.config.getLogRotateKeep());
+            archiver.start();
+        }
+
+        // Start the thread which writes the log records to the log file
+        this.writer = new SmacLogWriter(Smac.config.getLogFilename(), new SmacLogFormatter(), this.ringBuffer,
+                this.dropped, archiver);
+        this.writer.setRotation(Smac.config.getLogRotateSize(), Smac.config.getLogRotateInterval());
+
+        // Send the log records to the syslog server if required
+        if (Smac.config.getSyslogUri() != null) {
+
+            URI syslogUri = URI.create(Smac.config.getSyslogUri());
 
-        // Logger file handler
-        FileHandler logFileHandler = new FileHandler(Smac.config.getLogFilename(), true);
+            this.syslogSender = new SmacSyslogSender(syslogUri.getHost(),
+                    syslogUri.getPort() > -1 ? syslogUri.getPort() : SYSLOG_PORT, "tcp".equals(syslogUri.getScheme()),
+                    new SmacSyslogFormatter(Smac.config.getSyslogFacility()), Smac.config.getSyslogQueueSize());
+            this.syslogSender.start();
+
+            this.writer.setSyslogSender(this.syslogSender);
+
+        } else {
+            this.syslogSender = null;
+        }
 
-        // File handler properties
-        logFileHandler.setFormatter(fileFormatter);
+        this.writer.start();
 
-        // Create logger
-        Logger logger = Logger.getLogger(Smac.class.getName());
+        // Report the suppressed messages of the elapsed throttle windows even if no similar message follows
+        Timer throttleTimer = new Timer("Log throttle thread", true);
+        throttleTimer.schedule(new TimerTask() {
 
-        // Set the properties of the logger
-        logger.setLevel(Smac.config.getLogLevel());
-        logger.addHandler(logFileHandler);
+            /**
+             * Report the messages suppressed in the elapsed throttle windows
+             */
+            @Override
+            public void run() {
+                throttle.flush(System.currentTimeMillis());
+            }
+        }, Smac.config.getLogThrottleWindow(), Smac.config.getLogThrottleWindow());
+
+        // Write the remaining log records when the SMAC daemon stops
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+            /**
+             * Stop the log writer and the syslog sender once the remaining log records have been written
+             */
+            @Override
+            public void run() {
+
+                writer.stop(SHUTDOWN_TIMEOUT);
+
+                if (syslogSender != null) {
+                    syslogSender.stop(SHUTDOWN_TIMEOUT);
+                }
+            }
+        }, "Log shutdown thread"));
     }
 
     /**
@@ -60,6 +155,16 @@ public class LogController {
         return logController;
     }
 
+    /**
+     * Check whether messages of a log level are written to the application log file
+     *
+     * @param level Log level
+     * @return Whether messages of the log level are logged
+     */
+    public boolean isLoggable(Level level) {
+        return level.intValue() >= this.levelValue && this.levelValue != Level.OFF.intValue();
+    }
+
     /**
      * Write application messages to the application log file
      *
@@ -67,10 +172,171 @@ public class LogController {
      * @param source Log message source class
      * @param message Message that needs to be written to the application log file
      */
-    public synchronized void log(Level level, String source, String message) {
+    public void log(Level level, String source, String message) {
+
+        // Check if the message needs to be logged
+        if (this.isLoggable(level)) {
+            long allocated = SmacAllocationMeter.logBegin();
+            this.publish(level, source, message, null);
+            SmacAllocationMeter.logEnd(allocated);
+        }
+    }
+
+    /**
+     * Write an application message with one parameter to the application log file. The message is only formatted by
+     * the log writer thread if its level is logged.
+     *
+     * @param level Log level
+     * @param source Log message source class
+     * @param pattern MessageFormat pattern of the message
+     * @param param1 Parameter {0} of the message
+     */
+    public void log(Level level, String source, String pattern, Object param1) {
+
+        // Check if the message needs to be logged
+        if (this.isLoggable(level)) {
+            long allocated = SmacAllocationMeter.logBegin();
+            this.publish(level, source, pattern, new Object[] { param1 });
+            SmacAllocationMeter.logEnd(allocated);
+        }
+    }
 
-        // Write message to log file
-        LOGGER.logp(level, source, "", message);
+    /**
+     * Write an application message with two parameters to the application log file. The message is only formatted by
+     * the log writer thread if its level is logged.
+     *
+     * @param level Log level
+     * @param source Log message source class
+     * @param pattern MessageFormat pattern of the message
+     * @param param1 Parameter {0} of the message
+     * @param param2 Parameter {1} of the message
+     */
+    public void log(Level level, String source, String pattern, Object param1, Object param2) {
+
+        // Check if the message needs to be logged
+        if (this.isLoggable(level)) {
+            long allocated = SmacAllocationMeter.logBegin();
+            this.publish(level, source, pattern, new Object[] { param1, param2 });
+            SmacAllocationMeter.logEnd(allocated);
+        }
+    }
+
+    /**
+     * Write an application message with three parameters to the application log file. The message is only formatted
+     * by the log writer thread if its level is logged.
+     *
+     * @param level Log level
+     * @param source Log message source class
+     * @param pattern MessageFormat pattern of the message
+     * @param param1 Parameter {0} of the message
+     * @param param2 Parameter {1} of the message
+     * @param param3 Parameter {2} of the message
+     */
+    public void log(Level level, String source, String pattern, Object param1, Object param2, Object param3) {
+
+        // Check if the message needs to be logged
+        if (this.isLoggable(level)) {
+            long allocated = SmacAllocationMeter.logBegin();
+            this.publish(level, source, pattern, new Object[] { param1, param2, param3 });
+            SmacAllocationMeter.logEnd(allocated);
+        }
+    }
+
+    /**
+     * Write an application message to the application log file unless similar messages have already been logged within
+     * the throttle time window, in which case it is only counted and reported in a single suppression record
+     *
+     * @param level Log level
+     * @param source Log message source class
+     * @param key Key identifying similar messages
+     * @param pattern MessageFormat pattern of the message or message if it has no parameters
+     * @param params Parameters of the message
+     */
+    public void logThrottled(Level level, String source, String key, String pattern, Object... params) {
+
+        // Check if the message needs to be logged
+        if (this.isLoggable(level) && this.throttle.acquire(key, level, source, System.currentTimeMillis())) {
+            long allocated = SmacAllocationMeter.logBegin();
+            this.publish(level, source, pattern, params);
+            SmacAllocationMeter.logEnd(allocated);
+        }
+    }
+
+    /**
+     * Build a log record and publish it to the log writer thread
+     *
+     * @param level Log level
+     * @param source Log message source class
+     * @param message Message or MessageFormat pattern of the message
+     * @param params Parameters of the message or null if the message has no parameters
+     */
+    private void publish(Level level, String source, String message, Object[] params) {
+
+        // Log record written by the log writer thread
+        LogRecord record = new LogRecord(level, message);
+        record.setSourceClassName(source);
+        record.setSourceMethodName("");
+        record.setParameters(params);
+
+        this.publish(record);
+    }
+
+    /**
+     * Publish a log record in the ring buffer according to the overflow policy of the log buffer
+     *
+     * @param record Log record
+     */
+    private void publish(LogRecord record) {
+
+        switch (this.overflowPolicy) {
+
+            case DROP:
+
+                // Drop the record when the ring buffer is full
+                if (!this.ringBuffer.offer(record)) {
+                    this.dropped.incrementAndGet();
+                }
+                break;
+
+            case DROP_FINEST:
+
+                // Drop the least important records when the ring buffer is nearly full
+                if (record.getLevel().intValue() < Level.INFO.intValue() &&
+                        this.ringBuffer.size() >= this.overflowThreshold) {
+                    this.dropped.incrementAndGet();
+                    break;
+                }
+
+                this.offer(record);
+                break;
+
+            default:
+                this.offer(record);
+                break;
+        }
+
+        // Wake up the log writer thread
+        this.writer.signal();
+    }
+
+    /**
+     * Add a log record to the ring buffer, waiting for the log writer thread to make room if the ring buffer is full
+     *
+     * @param record Log record
+     */
+    private void offer(LogRecord record) {
+
+        while (!this.ringBuffer.offer(record)) {
+
+            // The record is lost if the log writer thread has been stopped
+            if (!this.writer.isRunning()) {
+                this.dropped.incrementAndGet();
+                return;
+            }
+
+            this.writer.signal();
+            LockSupport.parkNanos(FULL_WAIT);
+        }
     }
 
     /**
@@ -0,0 +1,688 @@
+package smac.controller;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import smac.Smac;
+import smac.model.InputQueue;
+import smac.model.InputQueueStatistics;
+import smac.model.OutputQueue;
+import smac.model.OutputQueueStatistics;
+import smac.model.RoutingTask;
+import smac.util.SmacAllocationCategory;
+import smac.util.SmacAllocationMeter;
+import smac.util.SmacHistogram;
+import smac.util.SmacHttpServer;
+import smac.util.SmacQueueType;
+import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacTraceStage;
+import smac.util.SmacTraceWriter;
+
+/**
+ * MonitoringController holds the statistics of the SMAC input and output queues and exposes those of the configured
+ * queues as MBeans on the platform MBean server and, when enabled, in Prometheus text format on an HTTP endpoint which
+ * also serves the liveness and readiness checks of the SMAC daemon. A sample of the completed routing tasks can be
+ * traced stage by stage to a trace file, and the heap memory allocated by each routing task can be accounted for.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class MonitoringController {
+
+    // Monitoring constants
+    public static final String JMX_DOMAIN = "smac";
+    public static final String HEALTH_CONTENT_TYPE = "text/plain; charset=utf-8";
+    public static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Bounds of the Prometheus histogram buckets, from about 1 microsecond to 69 seconds for latencies in nanoseconds
+    // and from 256 bytes to 4 gigabytes for allocations, which match bucket boundaries of the SMAC histograms
+    private static final long[] ALLOCATION_BUCKETS = getPowersOfTwo(8, 32);
+    private static final long[] LATENCY_BUCKETS = getPowersOfTwo(10, 36);
+
+    // Trace constants
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+    private static final int TRACE_QUEUE_SIZE = 10000;
+
+    private static MonitoringController monitoringController;
+
+    // Class attributes
+    private SmacHttpServer httpServer;
+    private final EnumMap<SmacQueueType, InputQueueStatistics> inputQueueStatistics;
+    private final EnumSet<SmacQueueType> inputQueueTypes;
+    private final EnumMap<SmacQueueType, OutputQueueStatistics> outputQueueStatistics;
+    private final EnumSet<SmacQueueType> outputQueueTypes;
+    private final AtomicLong traceCount;
+    private SmacTraceWriter traceWriter;
+
+    /**
+     * MonitoringController default constructor
+     */
+    private MonitoringController() {
+
+        // Initialise class attributes
+        this.httpServer = null;
+        this.inputQueueStatistics = new EnumMap<>(SmacQueueType.class);
+        this.inputQueueTypes = EnumSet.noneOf(SmacQueueType.class);
+        this.outputQueueStatistics = new EnumMap<>(SmacQueueType.class);
+        this.outputQueueTypes = EnumSet.noneOf(SmacQueueType.class);
+        this.traceCount = new AtomicLong();
+        this.traceWriter = null;
+
+        // Statistics are available for every queue type so that they never need to be created on the hot path
+        for (SmacQueueType queueType : SmacQueueType.values()) {
+            this.inputQueueStatistics.put(queueType, new InputQueueStatistics());
+            this.outputQueueStatistics.put(queueType, new OutputQueueStatistics());
+        }
+
+        // Expose the statistics of the configured queues
+        for (InputQueue inputQueue : Smac.config.getInputQueues()) {
+            if (inputQueue.getIsActive()) {
+                this.inputQueueTypes.add(inputQueue.getQueueType());
+                this.register("InputQueue", inputQueue.getQueueType(),
+                        this.inputQueueStatistics.get(inputQueue.getQueueType()));
+            }
+        }
+
+        for (OutputQueue outputQueue : Smac.config.getOutputQueues()) {
+            this.outputQueueTypes.add(outputQueue.getQueueType());
+            this.register("OutputQueue", outputQueue.getQueueType(),
+                    this.outputQueueStatistics.get(outputQueue.getQueueType()));
+        }
+    }
+
+    /**
+     * Get an instance of the MonitoringController class
+     *
+     * @return MonitoringController class instance
+     */
+    public static synchronized MonitoringController getMonitoringController() {
+
+        // Check if an instance of the controller has already been declared
+        if (monitoringController == null) {
+            monitoringController = new MonitoringController();
+        }
+
+        return monitoringController;
+    }
+
+    /**
+     * Get the statistics of an input queue
+     *
+     * @param queueType SMAC input queue type
+     * @return Input queue statistics
+     */
+    public InputQueueStatistics getInputQueueStatistics(SmacQueueType queueType) {
+        return this.inputQueueStatistics.get(queueType);
+    }
+
+    /**
+     * Get the statistics of an output queue
+     *
+     * @param queueType SMAC output queue type
+     * @return Output queue statistics
+     */
+    public OutputQueueStatistics getOutputQueueStatistics(SmacQueueType queueType) {
+        return this.outputQueueStatistics.get(queueType);
+    }
+
+    /**
+     * Check whether the SMAC daemon is alive. The daemon is no longer alive once an active input queue whose backlog
+     * has been scanned is not watched anymore, since its new SEPAmail messages would never be routed.
+     *
+     * @param body Health check report
+     * @return Whether the SMAC daemon is alive
+     */
+    public boolean isLive(StringBuilder body) {
+
+        // Liveness of the SMAC daemon
+        boolean live = true;
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+
+            InputQueueStatistics statistics = this.inputQueueStatistics.get(queueType);
+            if (statistics.isBacklogScanned() && !statistics.isWatching()) {
+                live = false;
+            }
+        }
+
+        body.append(live ? "UP\n" : "DOWN\n");
+        this.appendInputQueueStates(body);
+
+        return live;
+    }
+
+    /**
+     * Check whether the SMAC daemon is ready to route SEPAmail messages, that is once its configuration has been parsed
+     * and every active input queue is watched and has had its backlog queued
+     *
+     * @param body Health check report
+     * @return Whether the SMAC daemon is ready
+     */
+    public boolean isReady(StringBuilder body) {
+
+        // Readiness of the SMAC daemon
+        boolean ready = Smac.config != null;
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+
+            InputQueueStatistics statistics = this.inputQueueStatistics.get(queueType);
+            if (!statistics.isBacklogScanned() || !statistics.isWatching()) {
+                ready = false;
+            }
+        }
+
+        body.append(ready ? "READY\n" : "NOT READY\n");
+        this.appendInputQueueStates(body);
+
+        return ready;
+    }
+
+    /**
+     * Record the latency of each stage of a routing task whose SEPAmail message has been delivered and whose lock has
+     * been released, and trace the routing task if it is sampled
+     *
+     * @param routingTask Completed SMAC daemon routing task
+     */
+    public void recordStages(RoutingTask routingTask) {
+
+        // Record the stage latencies of the input queue and the move latency of the output queue
+        this.inputQueueStatistics.get(routingTask.getInputQueueType()).recordStages(routingTask);
+        this.outputQueueStatistics.get(routingTask.getOutputQueueType()).recordDelivered(
+                routingTask.getTimestamp(SmacTraceStage.MOVE) - routingTask.getTimestamp(SmacTraceStage.ROUTE));
+
+        // Trace one routing task out of the sample size
+        if (this.traceWriter != null && this.traceCount.getAndIncrement() % Smac.config.getTraceSample() == 0) {
+            this.traceWriter.offer(new LogRecord(Level.INFO, this.formatTrace(routingTask)));
+        }
+    }
+
+    /**
+     * Start the monitoring HTTP endpoint and the trace writer if they have been enabled in the configuration file
+     */
+    public synchronized void start() {
+
+        this.startAllocationAccounting();
+        this.startHttpServer();
+        this.startTraceWriter();
+    }
+
+    /**
+     * Format the trace of a routing task: its queues, its file, its number of retries and the latency of each of its
+     * stages since the previous one and of the whole routing in microseconds
+     *
+     * @param routingTask Completed SMAC daemon routing task
+     * @return Trace line
+     */
+    private String formatTrace(RoutingTask routingTask) {
+
+        // String builder to create the trace line
+        StringBuilder trace = new StringBuilder(256);
+
+        trace.append(SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()));
+        trace.append(' ');
+        trace.append(SmacQueueTypeUtils.getQueueTypeName(routingTask.getOutputQueueType()));
+        trace.append(' ');
+        trace.append(routingTask.getEmlFile().getPath());
+        trace.append(" attempts=");
+        trace.append(routingTask.getAttempts());
+
+        // Time at which the previous stage was reached
+        long previous = routingTask.getTimestamp(SmacTraceStage.WATCH);
+
+        for (SmacTraceStage stage : SmacTraceStage.values()) {
+
+            if (stage != SmacTraceStage.WATCH) {
+
+                long timestamp = routingTask.getTimestamp(stage);
+
+                trace.append(' ');
+                trace.append(stage.name().toLowerCase());
+                trace.append('=');
+                trace.append(TimeUnit.NANOSECONDS.toMicros(timestamp - previous));
+
+                previous = timestamp;
+            }
+        }
+
+        trace.append(" total=");
+        trace.append(TimeUnit.NANOSECONDS.toMicros(previous - routingTask.getTimestamp(SmacTraceStage.WATCH)));
+
+        return trace.toString();
+    }
+
+    /**
+     * Start accounting for the memory allocated by each routing task if the allocation accounting mode has been
+     * enabled in the configuration file
+     */
+    private void startAllocationAccounting() {
+
+        // Check if the allocation accounting mode is enabled
+        if (!Smac.config.isAllocationAccountingEnabled()) {
+            return;
+        }
+
+        if (SmacAllocationMeter.enable()) {
+
+            Smac.logController.log(Level.INFO, MonitoringController.class.getSimpleName(),
+                    "The heap memory allocated by each routing task is accounted for.");
+
+        } else {
+
+            Smac.logController.log(Level.WARNING, MonitoringController.class.getSimpleName(),
+                    "The JVM does not measure the memory allocated by each thread, allocations are not accounted for.");
+        }
+    }
+
+    /**
+     * Start the monitoring HTTP endpoint if it has been enabled in the configuration file
+     */
+    private void startHttpServer() {
+
+        // Check if the monitoring HTTP endpoint is enabled and has not already been started
+        if (Smac.config.getHttpPort() == 0 || this.httpServer != null) {
+            return;
+        }
+
+        try {
+
+            this.httpServer = new SmacHttpServer(Smac.config.getHttpAddress(), Smac.config.getHttpPort());
+
+            // Queue statistics in Prometheus text format
+            this.httpServer.addEndpoint("/metrics", METRICS_CONTENT_TYPE, new SmacHttpServer.Endpoint() {
+
+                /**
+                 * Write the queue statistics
+                 */
+                @Override
+                public int write(StringBuilder body) {
+
+                    appendMetrics(body);
+
+                    return 200;
+                }
+            });
+
+            // Liveness check
+            this.httpServer.addEndpoint("/health", HEALTH_CONTENT_TYPE, new SmacHttpServer.Endpoint() {
+
+                /**
+                 * Write the liveness of the SMAC daemon
+                 */
+                @Override
+                public int write(StringBuilder body) {
+                    return isLive(body) ? 200 : 503;
+                }
+            });
+
+            // Readiness check
+            this.httpServer.addEndpoint("/health/ready", HEALTH_CONTENT_TYPE, new SmacHttpServer.Endpoint() {
+
+                /**
+                 * Write the readiness of the SMAC daemon
+                 */
+                @Override
+                public int write(StringBuilder body) {
+                    return isReady(body) ? 200 : 503;
+                }
+            });
+
+            this.httpServer.start();
+
+            // Log the port of the monitoring HTTP endpoint
+            Smac.logController.log(Level.INFO, MonitoringController.class.getSimpleName(),
+                    "The monitoring HTTP endpoint is listening on port {0}.",
+                    Integer.toString(this.httpServer.getPort()));
+
+        } catch (IOException e) {
+
+            // Log errors
+            this.httpServer = null;
+            Smac.logController.log(Level.SEVERE, MonitoringController.class.getSimpleName(),
+                    "The monitoring HTTP endpoint could not be started: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start the trace writer if a trace file has been defined in the configuration file
+     */
+    private void startTraceWriter() {
+
+        // Check if tracing is enabled and has not already been started
+        if (this.traceWriter != null) {
+            return;
+        }
+
+        try {
+
+            // Name and path of the trace file
+            String traceFilename = Smac.config.getTraceFilename();
+            if (traceFilename == null) {
+                return;
+            }
+
+            this.traceWriter = new SmacTraceWriter(traceFilename, TRACE_QUEUE_SIZE);
+            this.traceWriter.start();
+
+            // Write the remaining traces when the SMAC daemon stops
+            final SmacTraceWriter writer = this.traceWriter;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+                /**
+                 * Stop the trace writer once the remaining traces have been written
+                 */
+                @Override
+                public void run() {
+                    writer.stop(SHUTDOWN_TIMEOUT);
+                }
+            }, "Trace shutdown thread"));
+
+            // Log the trace file and the sample size
+            Smac.logController.log(Level.INFO, MonitoringController.class.getSimpleName(),
+                    "One routing task out of {0} is traced to {1}.", Integer.toString(Smac.config.getTraceSample()),
+                    traceFilename);
+
+        } catch (IOException e) {
+
+            // Log errors
+            this.traceWriter = null;
+            Smac.logController.log(Level.SEVERE, MonitoringController.class.getSimpleName(),
+                    "The trace file could not be opened: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append the state of the active input queues to a health check report
+     *
+     * @param body Health check report
+     */
+    private void appendInputQueueStates(StringBuilder body) {
+
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+
+            InputQueueStatistics statistics = this.inputQueueStatistics.get(queueType);
+
+            body.append(SmacQueueTypeUtils.getQueueTypeName(queueType));
+            body.append(": backlog ");
+            body.append(statistics.isBacklogScanned() ? "scanned" : "pending");
+            body.append(", watcher ");
+            body.append(statistics.isWatching() ? "running" : "stopped");
+            body.append('\n');
+        }
+    }
+
+    /**
+     * Append the statistics of the configured queues in Prometheus text format
+     *
+     * @param body Metrics in Prometheus text format
+     */
+    private void appendMetrics(StringBuilder body) {
+
+        // Readiness of the SMAC daemon
+        this.appendFamily(body, "smac_ready", "Whether the SMAC daemon is ready to route SEPAmail messages", "gauge");
+        body.append("smac_ready ");
+        body.append(this.isReady(new StringBuilder()) ? 1 : 0);
+        body.append('\n');
+
+        // Input queue counters
+        this.appendFamily(body, "smac_input_enqueued_total",
+                "Number of SEPAmail messages added to the process queue", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_enqueued_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getEnqueued());
+        }
+
+        this.appendFamily(body, "smac_input_routed_total",
+                "Number of SEPAmail messages delivered to their output queue", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_routed_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getRouted());
+        }
+
+        this.appendFamily(body, "smac_input_failed_total",
+                "Number of SEPAmail messages which could not be delivered and were not retried", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_failed_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getFailed());
+        }
+
+        this.appendFamily(body, "smac_input_retried_total",
+                "Number of retries scheduled after transient failures", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_retried_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getRetried());
+        }
+
+        this.appendFamily(body, "smac_input_duplicates_total",
+                "Number of duplicate SEPAmail messages which were suppressed", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_duplicates_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getDuplicates());
+        }
+
+        this.appendFamily(body, "smac_input_dead_lettered_total",
+                "Number of SEPAmail messages moved to the dead-letter directory", "counter");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_dead_lettered_total", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getDeadLettered());
+        }
+
+        // Input queue backlog
+        this.appendFamily(body, "smac_input_process_queue_depth",
+                "Number of SEPAmail messages waiting in the process queue", "gauge");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_process_queue_depth", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getProcessQueueDepth());
+        }
+
+        this.appendFamily(body, "smac_input_oldest_pending_age_seconds",
+                "Age of the oldest SEPAmail message waiting in the process queue", "gauge");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendSample(body, "smac_input_oldest_pending_age_seconds", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getOldestPendingAge() / 1000.0);
+        }
+
+        // Input queue latencies
+        this.appendFamily(body, "smac_input_stage_latency_seconds",
+                "Latency of each stage of the delivered SEPAmail messages since their previous stage", "histogram");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            for (SmacTraceStage stage : SmacTraceStage.values()) {
+                if (stage != SmacTraceStage.WATCH) {
+                    this.appendHistogram(body, "smac_input_stage_latency_seconds", queueType,
+                            "stage=\"" + stage.name().toLowerCase() + "\"",
+                            this.inputQueueStatistics.get(queueType).getStageLatencyHistogram(stage),
+                            LATENCY_BUCKETS, 1e9);
+                }
+            }
+        }
+
+        this.appendFamily(body, "smac_input_end_to_end_latency_seconds",
+                "Latency of the delivered SEPAmail messages from the moment they are noticed until their release",
+                "histogram");
+        for (SmacQueueType queueType : this.inputQueueTypes) {
+            this.appendHistogram(body, "smac_input_end_to_end_latency_seconds", queueType, null,
+                    this.inputQueueStatistics.get(queueType).getEndToEndLatencyHistogram(), LATENCY_BUCKETS, 1e9);
+        }
+
+        // Memory allocated per routing task when the allocation accounting mode is enabled
+        if (SmacAllocationMeter.isEnabled()) {
+
+            this.appendFamily(body, "smac_input_allocated_bytes",
+                    "Heap memory allocated per routing task by each part of its processing", "histogram");
+            for (SmacQueueType queueType : this.inputQueueTypes) {
+                for (SmacAllocationCategory category : SmacAllocationCategory.values()) {
+                    this.appendHistogram(body, "smac_input_allocated_bytes", queueType,
+                            "category=\"" + category.name().toLowerCase() + "\"",
+                            this.inputQueueStatistics.get(queueType).getAllocatedBytesHistogram(category),
+                            ALLOCATION_BUCKETS, 1);
+                }
+            }
+
+            this.appendFamily(body, "smac_input_total_allocated_bytes", "Heap memory allocated per routing task",
+                    "histogram");
+            for (SmacQueueType queueType : this.inputQueueTypes) {
+                this.appendHistogram(body, "smac_input_total_allocated_bytes", queueType, null,
+                        this.inputQueueStatistics.get(queueType).getTotalAllocatedBytesHistogram(),
+                        ALLOCATION_BUCKETS, 1);
+            }
+        }
+
+        // Output queue statistics
+        this.appendFamily(body, "smac_output_delivered_total",
+                "Number of SEPAmail messages durably delivered to the output queue", "counter");
+        for (SmacQueueType queueType : this.outputQueueTypes) {
+            this.appendSample(body, "smac_output_delivered_total", queueType, null,
+                    this.outputQueueStatistics.get(queueType).getDelivered());
+        }
+
+        this.appendFamily(body, "smac_output_failed_total",
+                "Number of SEPAmail messages which could not be delivered to the output queue", "counter");
+        for (SmacQueueType queueType : this.outputQueueTypes) {
+            this.appendSample(body, "smac_output_failed_total", queueType, null,
+                    this.outputQueueStatistics.get(queueType).getFailed());
+        }
+
+        this.appendFamily(body, "smac_output_move_latency_seconds",
+                "Latency of moving the SEPAmail messages to the output queue until they are acknowledged",
+                "histogram");
+        for (SmacQueueType queueType : this.outputQueueTypes) {
+            this.appendHistogram(body, "smac_output_move_latency_seconds", queueType, null,
+                    this.outputQueueStatistics.get(queueType).getMoveLatencyHistogram(), LATENCY_BUCKETS, 1e9);
+        }
+    }
+
+    /**
+     * Append the help and type lines of a Prometheus metric family
+     *
+     * @param body Metrics in Prometheus text format
+     * @param name Name of the metric
+     * @param help Description of the metric
+     * @param type Prometheus type of the metric
+     */
+    private void appendFamily(StringBuilder body, String name, String help, String type) {
+
+        body.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        body.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Append a sample of a Prometheus metric for a queue
+     *
+     * @param body Metrics in Prometheus text format
+     * @param name Name of the metric
+     * @param queueType SMAC queue type
+     * @param labels Additional labels of the sample or null
+     * @param value Value of the sample
+     */
+    private void appendSample(StringBuilder body, String name, SmacQueueType queueType, String labels,
+            Object value) {
+
+        body.append(name);
+        body.append("{queue=\"");
+        body.append(SmacQueueTypeUtils.getQueueTypeName(queueType));
+        body.append('"');
+
+        if (labels != null) {
+            body.append(',').append(labels);
+        }
+
+        body.append("} ");
+        body.append(value);
+        body.append('\n');
+    }
+
+    /**
+     * Append a histogram as a Prometheus histogram whose cumulative buckets allow windowed quantiles to be computed
+     * and aggregated across SMAC daemons
+     *
+     * @param body Metrics in Prometheus text format
+     * @param name Name of the metric
+     * @param queueType SMAC queue type
+     * @param labels Additional labels of the histogram or null
+     * @param histogram Histogram of values
+     * @param bounds Upper bounds of the buckets in histogram values
+     * @param unit Number of histogram values in one unit of the Prometheus histogram
+     */
+    private void appendHistogram(StringBuilder body, String name, SmacQueueType queueType, String labels,
+            SmacHistogram histogram, long[] bounds, double unit) {
+
+        // Labels preceding the bucket label
+        String prefix = labels != null ? labels + "," : "";
+
+        // Cumulative bucket counts followed by the total count
+        long[] counts = histogram.getCumulativeCounts(bounds);
+
+        for (int i = 0; i < bounds.length; i++) {
+            this.appendSample(body, name + "_bucket", queueType, prefix + "le=\"" + bounds[i] / unit + "\"",
+                    counts[i]);
+        }
+
+        this.appendSample(body, name + "_bucket", queueType, prefix + "le=\"+Inf\"", counts[bounds.length]);
+        this.appendSample(body, name + "_sum", queueType, labels, histogram.getSum() / unit);
+        this.appendSample(body, name + "_count", queueType, labels, counts[bounds.length]);
+    }
+
+    /**
+     * Get the consecutive powers of two between two exponents
+     *
+     * @param minExponent Exponent of the first power of two
+     * @param maxExponent Exponent of the last power of two
+     * @return Increasing powers of two
+     */
+    private static long[] getPowersOfTwo(int minExponent, int maxExponent) {
+
+        long[] powers = new long[maxExponent - minExponent + 1];
+        for (int i = 0; i < powers.length; i++) {
+            powers[i] = 1L << (minExponent + i);
+        }
+
+        return powers;
+    }
+
+    /**
+     * Register the statistics of a queue on the platform MBean server
+     *
+     * @param type JMX type of the queue
+     * @param queueType SMAC queue type
+     * @param statistics Statistics of the queue
+     */
+    private void register(String type, SmacQueueType queueType, Object statistics) {
+
+        try {
+
+            // Platform MBean server
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+            // Name of the MBean
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" +
+                    SmacQueueTypeUtils.getQueueTypeName(queueType));
+
+            if (!mBeanServer.isRegistered(name)) {
+                mBeanServer.registerMBean(statistics, name);
+            }
+
+        } catch (JMException e) {
+
+            // Log errors
+            Smac.logController.log(Level.WARNING, MonitoringController.class.getSimpleName(),
+                    "The statistics of the " + SmacQueueTypeUtils.getQueueTypeName(queueType) + " " + type +
+                    " could not be registered: " + e);
+        }
+    }
+
+    /**
+     * Override the clone method to prevent cloning of the class
+     *
+     * @return void
+     * @throws CloneNotSupportedException
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+}
@@ -1,17 +1,23 @@
 package smac.controller;
 
-import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
 import java.util.logging.Level;
 import smac.Smac;
+import smac.exception.FileMoveException;
 import smac.exception.UndefinedOutputQueueException;
 import smac.model.OutputQueue;
 import smac.model.RoutingTask;
-import smac.util.SmacDirectoryUtils;
+import smac.util.SmacDurabilityMode;
 import smac.util.SmacFileUtils;
+import smac.util.SmacOutputMode;
 import smac.util.SmacQueueType;
 import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacSegmentLog;
+import smac.util.SmacShardedDirectory;
 
 /**
  * OutputController moves a SEPAmail message to its routed SMAC output queue.
@@ -21,8 +27,12 @@ import smac.util.SmacQueueTypeUtils;
  */
 public class OutputController {
 
+    // Segment logs shared by the output controllers
+    private static final EnumMap<SmacQueueType, SmacSegmentLog> segmentLogs = new EnumMap<>(SmacQueueType.class);
+
     // Class attributes
-    private final ArrayList<OutputQueue> outputQueues;
+    private final EnumMap<SmacQueueType, SmacShardedDirectory> outputDirectories;
+    private final EnumMap<SmacQueueType, OutputQueue> outputQueues;
 
     /**
      * OutputController default constructor
@@ -30,41 +40,104 @@ public class OutputController {
     public OutputController() {
 
         // Initialise class attributes
-        this.outputQueues = Smac.config.getOutputQueues();
+        this.outputDirectories = new EnumMap<>(SmacQueueType.class);
+        this.outputQueues = new EnumMap<>(SmacQueueType.class);
+
+        // Index the output queues by queue type
+        for (OutputQueue outputQueue : Smac.config.getOutputQueues()) {
+            this.outputQueues.put(outputQueue.getQueueType(), outputQueue);
+        }
     }
 
     /**
-     * Move a SEPAmail message EML container file to its routed output directory
+     * Move a SEPAmail message EML container file to its routed output directory. The routing task is acknowledged
+     * through the given listener once the move is as durable as required by the output queue.
      *
      * @param routingTask SMAC daemon routing task instance with routing details
+     * @param listener Listener which acknowledges the routing task
      * @throws UndefinedOutputQueueException
      * @throws MalformedURLException
+     * @throws FileMoveException
      */
-    public void move(RoutingTask routingTask) throws UndefinedOutputQueueException, MalformedURLException {
+    public void move(RoutingTask routingTask, RoutingTaskListener listener) throws UndefinedOutputQueueException,
+            MalformedURLException, FileMoveException {
 
         // Get the output queue which corresponds to the output destination of the file associated to the current task
-        OutputQueue outputQueue = this.getOuputQueue(routingTask.getOutputQueueType());
+        OutputQueue outputQueue = this.outputQueues.get(routingTask.getOutputQueueType());
 
         // Check if output queue was obtained
         if (outputQueue != null) {
 
-            // Output queue directory
-            File outputQueueDir = new File(outputQueue.getQueueDirectory());
+            // Append the EML file to the segment log of the output queue
+            if (outputQueue.getOutputMode() == SmacOutputMode.SEGMENT) {
+
+                this.append(outputQueue, routingTask, listener);
+
+                return;
+            }
+
+            // Stream the EML file into the current archive of the output queue
+            if (outputQueue.getOutputMode() == SmacOutputMode.ZIP ||
+                    outputQueue.getOutputMode() == SmacOutputMode.TAR) {
+
+                this.archive(outputQueue, routingTask, listener);
+
+                return;
+            }
+
+            // Output queue directory which has already been validated
+            SmacShardedDirectory outputDirectory = this.outputDirectories.get(outputQueue.getQueueType());
+
+            // Directory of the output queue in which the EML file is moved
+            Path outputQueueDir;
+
+            // Path of the moved EML file
+            Path outputFile;
 
-            // Check if the output queue directory exists
-            if (!(outputQueueDir.exists() && outputQueueDir.isDirectory())) {
+            // Time at which the EML file is moved
+            long now = System.currentTimeMillis();
 
-                // Create the output queue directory
-                SmacDirectoryUtils.createFolderIfNotExist(outputQueueDir.getAbsolutePath());
+            try {
 
-                // Indicate that the output directory has been created
-                Smac.logController.log(Level.INFO, OutputController.class.getSimpleName(), "The directory " +
-                        outputQueueDir.getAbsolutePath() + " for the output queue " +
-                        SmacQueueTypeUtils.getQueueTypeName(outputQueue.getQueueType()) + " has been created.");
+                // Validate the output queue directory the first time it is used
+                if (outputDirectory == null) {
+                    outputDirectory = this.resolveOutputDirectory(outputQueue);
+                }
+
+                try {
+
+                    // Move the EML file
+                    outputQueueDir = outputDirectory.getDirectory(routingTask.getEmlFile().getName(), now);
+                    outputFile = SmacFileUtils.moveFile(routingTask.getEmlFile().toPath(), outputQueueDir);
+
+                } catch (IOException e) {
+
+                    // The output queue directory may have been removed or remounted since it was validated
+                    outputDirectory = this.resolveOutputDirectory(outputQueue);
+
+                    // Move the EML file to the validated output queue directory
+                    outputQueueDir = outputDirectory.getDirectory(routingTask.getEmlFile().getName(), now);
+                    outputFile = SmacFileUtils.moveFile(routingTask.getEmlFile().toPath(), outputQueueDir);
+                }
+
+            } catch (IOException e) {
+
+                // Validate the output queue directory again for the next message
+                this.outputDirectories.remove(outputQueue.getQueueType());
+
+                // The EML file is still in its input queue
+                throw new FileMoveException(routingTask.getEmlFile().getAbsolutePath(),
+                        outputQueue.getQueuePath().toString(), e);
+            }
+
+            // Input file which remains when the EML file has been copied to another file system
+            Path source = routingTask.getEmlFile().toPath();
+            if (!Files.exists(source)) {
+                source = null;
             }
 
-            // Move the EML file
-            SmacFileUtils.moveFile(routingTask.getEmlFile().getAbsolutePath(), outputQueueDir.getAbsolutePath());
+            // Acknowledge the routing task according to the durability mode of the output queue
+            this.commit(outputQueue, outputQueueDir, outputFile, source, routingTask, listener);
 
         } else {
 
@@ -77,25 +150,219 @@ public class OutputController {
     }
 
     /**
-     * Get the output queue object which corresponds to the given queue type
+     * Delete the input file of a message which has been copied to its output queue if required and acknowledge its
+     * routing task
      *
-     * @param queueType Type of queue
-     * @return OutputQueue object which corresponds to the given queue type
+     * @param source Input file of the message or null if the message has been moved
+     * @param routingTask SMAC daemon routing task of the delivered message
+     * @param listener Listener which acknowledges the routing task
      */
-    private OutputQueue getOuputQueue(SmacQueueType queueType) {
+    static void acknowledge(Path source, RoutingTask routingTask, RoutingTaskListener listener) {
 
-        // Scan the list of output queues
-        for (int i = 0; i < this.outputQueues.size(); i++) {
+        // Delete the input file which has been copied to its output queue
+        if (source != null) {
 
-            // Current output queue
-            OutputQueue currentQueue = this.outputQueues.get(i);
+            try {
 
-            // Check the queue type of the current output queue
-            if (currentQueue.getQueueType() == queueType) {
-                return currentQueue;
+                Files.deleteIfExists(source);
+
+            } catch (IOException e) {
+
+                // The message will be delivered again when the input queue backlog is processed
+                Smac.logController.log(Level.WARNING, OutputController.class.getSimpleName(), "The file " + source +
+                        " could not be removed from its input queue: " + e);
             }
         }
 
-        return null;
+        // Acknowledge the routing task
+        listener.routingTaskCompleted(routingTask);
+    }
+
+    /**
+     * Stream a SEPAmail message EML container file into the current archive of its output queue. The routing task is
+     * acknowledged once the archive has been sealed.
+     *
+     * @param outputQueue SMAC output queue in archive output mode
+     * @param routingTask SMAC daemon routing task instance with routing details
+     * @param listener Listener which acknowledges the routing task
+     * @throws MalformedURLException
+     * @throws FileMoveException
+     */
+    private void archive(OutputQueue outputQueue, RoutingTask routingTask, RoutingTaskListener listener)
+            throws MalformedURLException, FileMoveException {
+
+        try {
+
+            // Add the message to the archive
+            ArchiveController.getArchiveController(outputQueue).append(routingTask, listener);
+
+        } catch (IOException e) {
+
+            // The EML file is still in its input queue
+            throw new FileMoveException(routingTask.getEmlFile().getAbsolutePath(),
+                    outputQueue.getQueuePath().toString(), e);
+        }
+    }
+
+    /**
+     * Get the segment log of an output queue and open it if required
+     *
+     * @param outputQueue SMAC output queue in segment output mode
+     * @return Segment log of the output queue
+     * @throws MalformedURLException
+     * @throws IOException
+     */
+    private static synchronized SmacSegmentLog getSegmentLog(OutputQueue outputQueue) throws MalformedURLException,
+            IOException {
+
+        // Segment log of the output queue
+        SmacSegmentLog segmentLog = segmentLogs.get(outputQueue.getQueueType());
+
+        // Check if the segment log has already been opened
+        if (segmentLog == null) {
+
+            segmentLog = new SmacSegmentLog(outputQueue.getQueuePath(), outputQueue.getSegmentSize(),
+                    outputQueue.getDurabilityMode() != SmacDurabilityMode.NONE);
+
+            segmentLogs.put(outputQueue.getQueueType(), segmentLog);
+        }
+
+        return segmentLog;
+    }
+
+    /**
+     * Append a SEPAmail message EML container file to the segment log of its output queue and acknowledge its routing
+     * task once the input file has been removed
+     *
+     * @param outputQueue SMAC output queue in segment output mode
+     * @param routingTask SMAC daemon routing task instance with routing details
+     * @param listener Listener which acknowledges the routing task
+     * @throws MalformedURLException
+     * @throws FileMoveException
+     */
+    private void append(OutputQueue outputQueue, RoutingTask routingTask, RoutingTaskListener listener)
+            throws MalformedURLException, FileMoveException {
+
+        // Input file of the message
+        Path source = routingTask.getEmlFile().toPath();
+
+        // Segment to which the message is appended
+        Path segment;
+
+        try {
+
+            // Append the message to the segment log
+            SmacSegmentLog segmentLog = getSegmentLog(outputQueue);
+            segment = segmentLog.append(source);
+
+            // Sync the segment before the input file is removed in strict durability mode
+            if (outputQueue.getDurabilityMode() == SmacDurabilityMode.STRICT) {
+                segmentLog.force();
+            }
+
+        } catch (IOException e) {
+
+            // The EML file is still in its input queue
+            throw new FileMoveException(routingTask.getEmlFile().getAbsolutePath(),
+                    outputQueue.getQueuePath().toString(), e);
+        }
+
+        // Sync the segment together with the other messages of the batch in group commit durability mode
+        if (outputQueue.getDurabilityMode() == SmacDurabilityMode.GROUP) {
+
+            GroupCommitController.getGroupCommitController(outputQueue).commit(segment, source, routingTask,
+                    listener);
+
+            return;
+        }
+
+        // Remove the input file and acknowledge the routing task
+        acknowledge(source, routingTask, listener);
+    }
+
+    /**
+     * Make a moved message durable as required by its output queue and acknowledge its routing task
+     *
+     * @param outputQueue SMAC output queue to which the message has been moved
+     * @param outputQueueDir Output directory in which the message has been moved
+     * @param outputFile Path of the moved message
+     * @param source Input file which must be deleted once the message is durable or null if it has been renamed
+     * @param routingTask SMAC daemon routing task of the moved message
+     * @param listener Listener which acknowledges the routing task
+     */
+    private void commit(OutputQueue outputQueue, Path outputQueueDir, Path outputFile, Path source,
+            RoutingTask routingTask, RoutingTaskListener listener) {
+
+        // Check the durability mode of the output queue
+        switch (outputQueue.getDurabilityMode()) {
+
+            case GROUP:
+
+                // Sync the output directory together with the other messages of the batch
+                GroupCommitController.getGroupCommitController(outputQueue).commit(outputQueueDir, source,
+                        routingTask, listener);
+
+                return;
+
+            case STRICT:
+
+                try {
+
+                    // Sync the moved message and its directory entry
+                    SmacFileUtils.sync(outputFile);
+                    SmacFileUtils.sync(outputQueueDir);
+
+                } catch (IOException e) {
+
+                    // The message may not survive a power loss, its input file is kept when it has been copied
+                    String syncFailure = "The file " + outputFile + " could not be synced: " + e;
+                    Smac.logController.log(Level.SEVERE, OutputController.class.getSimpleName(), syncFailure);
+
+                    listener.routingTaskFailed(routingTask, syncFailure);
+
+                    return;
+                }
+
+                break;
+
+            default:
+        }
+
+        // Delete the input file of a copied message and acknowledge the routing task
+        acknowledge(source, routingTask, listener);
+    }
+
+    /**
+     * Check that the directory of an output queue exists, create it if required and keep it for subsequent moves
+     *
+     * @param outputQueue SMAC output queue
+     * @return Output queue directory and its sub-directories
+     * @throws MalformedURLException
+     * @throws IOException
+     */
+    private SmacShardedDirectory resolveOutputDirectory(OutputQueue outputQueue) throws MalformedURLException,
+            IOException {
+
+        // Output queue directory
+        Path outputQueueDir = outputQueue.getQueuePath();
+
+        // Check if the output queue directory exists
+        if (!Files.isDirectory(outputQueueDir)) {
+
+            // Create the output queue directory
+            Files.createDirectories(outputQueueDir);
+
+            // Indicate that the output directory has been created
+            Smac.logController.log(Level.INFO, OutputController.class.getSimpleName(), "The directory " +
+                    outputQueueDir + " for the output queue " +
+                    SmacQueueTypeUtils.getQueueTypeName(outputQueue.getQueueType()) + " has been created.");
+        }
+
+        // Keep the validated output queue directory
+        SmacShardedDirectory outputDirectory = new SmacShardedDirectory(outputQueueDir, outputQueue.getShardType(),
+                outputQueue.getDurabilityMode() != SmacDurabilityMode.NONE);
+        this.outputDirectories.put(outputQueue.getQueueType(), outputDirectory);
+
+        return outputDirectory;
     }
 }
@@ -0,0 +1,277 @@
+package smac.controller;
+
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import smac.Smac;
+import smac.model.RoutingTask;
+import smac.util.SmacQueueType;
+import smac.util.SmacTraceStage;
+
+/**
+ * RetryController re-submits the routing tasks which failed with a transient error to their input queue after an
+ * exponential backoff with jitter. The number of retries of a task and the number of tasks waiting to be retried, in
+ * total and per output queue, are bounded so that a broken output queue cannot starve the healthy ones.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class RetryController implements Runnable {
+
+    private static RetryController retryController;
+
+    // Class attributes
+    private int inFlight;
+    private final EnumMap<SmacQueueType, Integer> inFlightPerQueue;
+    private final Random random;
+    private final DelayQueue<PendingRetry> retryQueue;
+
+    /**
+     * RetryController default constructor
+     */
+    private RetryController() {
+
+        // Initialise class attributes
+        this.inFlight = 0;
+        this.inFlightPerQueue = new EnumMap<>(SmacQueueType.class);
+        this.random = new Random();
+        this.retryQueue = new DelayQueue<>();
+    }
+
+    /**
+     * Get an instance of the RetryController class and start its thread if required
+     *
+     * @return RetryController class instance
+     */
+    public static synchronized RetryController getRetryController() {
+
+        // Check if an instance of the controller has already been declared
+        if (retryController == null) {
+
+            retryController = new RetryController();
+
+            // Create the thread which re-submits the routing tasks once their backoff has elapsed
+            Thread worker = new Thread(retryController);
+            worker.setName("Retry thread");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        return retryController;
+    }
+
+    /**
+     * Re-submit the routing tasks whose backoff has elapsed to their input queue
+     */
+    @Override
+    public void run() {
+
+        for (;;) {
+
+            // Routing task whose backoff has elapsed
+            PendingRetry pendingRetry;
+
+            try {
+                pendingRetry = this.retryQueue.take();
+            } catch (InterruptedException e) {
+
+                // Log errors
+                Smac.logController.log(Level.SEVERE, RetryController.class.getSimpleName(), e.getMessage());
+
+                return;
+            }
+
+            // The routing task is no longer waiting to be retried
+            this.release(pendingRetry.outputQueueType);
+
+            // The routing task is routed again from scratch
+            RoutingTask routingTask = pendingRetry.routingTask;
+            routingTask.setIsRouted(false);
+            routingTask.setOutputQueueType(null);
+            routingTask.setTimestamp(SmacTraceStage.ENQUEUE, System.nanoTime());
+
+            pendingRetry.processQueue.add(routingTask);
+        }
+    }
+
+    /**
+     * Schedule the retry of a routing task which failed with a transient error
+     *
+     * @param routingTask SMAC daemon routing task which has failed
+     * @param processQueue Process queue of the input queue to which the routing task is re-submitted
+     * @param reason Reason for which the routing task has failed
+     * @return Whether the retry has been scheduled or the routing task must be abandoned
+     */
+    public boolean schedule(RoutingTask routingTask, BlockingQueue<RoutingTask> processQueue, String reason) {
+
+        // Check if the routing task may be retried
+        if (routingTask.getAttempts() >= Smac.config.getRetryAttempts()) {
+
+            // Log errors once per throttle window for each output queue
+            Smac.logController.logThrottled(Level.WARNING, RetryController.class.getSimpleName(),
+                    "exhausted:" + routingTask.getOutputQueueType(), "The file {0} has failed after {1} retries and " +
+                    "will be processed again when the SMAC daemon restarts: {2}", routingTask.getEmlFile(),
+                    Integer.toString(routingTask.getAttempts()), reason);
+
+            return false;
+        }
+
+        // Output queue of the failed routing task if it was routed
+        SmacQueueType outputQueueType = routingTask.getIsRouted() ? routingTask.getOutputQueueType() : null;
+
+        // Check that the retry capacity has not been exhausted
+        if (!this.reserve(outputQueueType)) {
+
+            // Log errors once per throttle window while the retry capacity is exhausted
+            Smac.logController.logThrottled(Level.WARNING, RetryController.class.getSimpleName(),
+                    "capacity:" + outputQueueType, "The file {0} cannot be retried since too many retries are " +
+                    "pending and will be processed again when the SMAC daemon restarts: {1}",
+                    routingTask.getEmlFile(), reason);
+
+            return false;
+        }
+
+        routingTask.setAttempts(routingTask.getAttempts() + 1);
+
+        // Exponential backoff with jitter between half and the whole of the backoff
+        long backoff = Smac.config.getRetryDelay();
+        for (int i = 1; i < routingTask.getAttempts() && backoff < Smac.config.getRetryMaxDelay(); i++) {
+            backoff *= 2;
+        }
+
+        backoff = Math.min(backoff, Smac.config.getRetryMaxDelay());
+
+        long delay;
+        synchronized (this.random) {
+            delay = backoff / 2 + (long)(this.random.nextDouble() * (backoff - backoff / 2));
+        }
+
+        // Log the retry, whose reason has already been logged by the caller, without building the message unless it
+        // is logged
+        Smac.logController.log(Level.INFO, RetryController.class.getSimpleName(),
+                "The file {0} will be retried in {1,number,#} ms (attempt {2,number,#}).", routingTask.getEmlFile(),
+                delay, routingTask.getAttempts());
+
+        this.retryQueue.add(new PendingRetry(routingTask, processQueue, outputQueueType, delay));
+
+        return true;
+    }
+
+    /**
+     * Release the retry capacity held by a routing task
+     *
+     * @param outputQueueType Output queue of the routing task or null if it was not routed
+     */
+    private synchronized void release(SmacQueueType outputQueueType) {
+
+        this.inFlight--;
+
+        if (outputQueueType != null) {
+            this.inFlightPerQueue.put(outputQueueType, this.inFlightPerQueue.get(outputQueueType) - 1);
+        }
+    }
+
+    /**
+     * Reserve retry capacity for a routing task
+     *
+     * @param outputQueueType Output queue of the routing task or null if it was not routed
+     * @return Whether retry capacity was available
+     */
+    private synchronized boolean reserve(SmacQueueType outputQueueType) {
+
+        // Check the total number of retries in flight
+        if (this.inFlight >= Smac.config.getRetryMaxInFlight()) {
+            return false;
+        }
+
+        // Check the number of retries in flight for the output queue
+        if (outputQueueType != null) {
+
+            Integer queueInFlight = this.inFlightPerQueue.get(outputQueueType);
+            if (queueInFlight == null) {
+                queueInFlight = 0;
+            }
+
+            if (queueInFlight >= Smac.config.getRetryMaxInFlightPerQueue()) {
+                return false;
+            }
+
+            this.inFlightPerQueue.put(outputQueueType, queueInFlight + 1);
+        }
+
+        this.inFlight++;
+
+        return true;
+    }
+
+    /**
+     * Override the clone method to prevent cloning of the class
+     *
+     * @return void
+     * @throws CloneNotSupportedException
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+
+    /**
+     * PendingRetry holds a routing task until its backoff has elapsed.
+     */
+    private static class PendingRetry implements Delayed {
+
+        // Class attributes
+        private final SmacQueueType outputQueueType;
+        private final BlockingQueue<RoutingTask> processQueue;
+        private final long retryTime;
+        private final RoutingTask routingTask;
+
+        /**
+         * PendingRetry constructor
+         *
+         * @param routingTask SMAC daemon routing task which needs to be retried
+         * @param processQueue Process queue to which the routing task is re-submitted
+         * @param outputQueueType Output queue of the routing task or null if it was not routed
+         * @param delay Backoff in milliseconds
+         */
+        private PendingRetry(RoutingTask routingTask, BlockingQueue<RoutingTask> processQueue,
+                SmacQueueType outputQueueType, long delay) {
+
+            // Initialise class attributes
+            this.outputQueueType = outputQueueType;
+            this.processQueue = processQueue;
+            this.retryTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            this.routingTask = routingTask;
+        }
+
+        /**
+         * Compare the retry time of two pending retries
+         *
+         * @param o Delayed object to which the pending retry is compared
+         * @return Whether the pending retry is due before, at the same time or after the given one
+         */
+        @Override
+        public int compareTo(Delayed o) {
+
+            // Remaining delays of the pending retries
+            long difference = this.getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+        }
+
+        /**
+         * Get the remaining backoff of the pending retry
+         *
+         * @param unit Time unit of the remaining backoff
+         * @return Remaining backoff
+         */
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(this.retryTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
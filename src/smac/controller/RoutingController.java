@@ -3,17 +3,25 @@ package smac.controller;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.logging.Level;
+import javax.mail.Address;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import smac.Smac;
+import smac.exception.DuplicateMessageException;
 import smac.exception.RuleNotFoundException;
+import smac.exception.UnparseableMessageException;
 import smac.model.OutputQueue;
 import smac.model.RoutingTask;
 import smac.model.Rule;
+import smac.util.SmacAllocationCategory;
+import smac.util.SmacAllocationMeter;
 import smac.util.SmacEmlUtils;
+import smac.util.SmacFlightEvent;
+import smac.util.SmacFlightRecorder;
 import smac.util.SmacQueueType;
 import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacTraceStage;
 
 /**
  * The RoutingController class routes a SEPAmail message to its appropriate output queue based on the set of rules
@@ -43,130 +51,180 @@ public class RoutingController {
      *
      * @param routingTask SMAC daemon routing task which points to a related SEPAmail message
      * @throws RuleNotFoundException
+     * @throws DuplicateMessageException
+     * @throws UnparseableMessageException
+     * @throws FileNotFoundException
      */
-    public void route(RoutingTask routingTask) throws RuleNotFoundException {
+    public void route(RoutingTask routingTask) throws RuleNotFoundException, DuplicateMessageException,
+            UnparseableMessageException, FileNotFoundException {
 
         try {
 
             // Log SMAC routing task processing
-            Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(), "Processing " +
-                    routingTask.getEmlFile().getAbsolutePath() + " in queue " +
-                    SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()) + ".");
+            Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(),
+                    "Processing {0} in queue {1}.", routingTask.getEmlFile(), routingTask.getInputQueueType());
 
             // Read and parse the EML file associated with the SMAC routing task
-            MimeMessage emlMessage = SmacEmlUtils.loadEml(routingTask.getEmlFile());
+            MimeMessage emlMessage;
+            Object parseEvent = SmacFlightRecorder.begin(SmacFlightEvent.PARSE);
+            String parseOutcome = SmacFlightRecorder.OUTCOME_FAILURE;
+            try {
 
-            // Check if we have the 'sepamail-mode' key in the SEPAmail message container file
-            String[] sepamailHeader = emlMessage.getHeader("sepamail-mode");
-            if (sepamailHeader != null) {
-                if (sepamailHeader.length > 0) {
+                emlMessage = SmacEmlUtils.loadEml(routingTask.getEmlFile());
+                parseOutcome = SmacFlightRecorder.OUTCOME_SUCCESS;
 
-                    // Route messages based on its sepamail-mode key
-                    switch (sepamailHeader[0]) {
+            } finally {
+                SmacFlightRecorder.commit(parseEvent, routingTask.getInputQueueType(), routingTask.getEmlFile(),
+                        parseOutcome);
+            }
 
-                        case "canonical":
+            routingTask.setTimestamp(SmacTraceStage.PARSE, System.nanoTime());
+            SmacAllocationMeter.mark(SmacAllocationCategory.PARSE);
 
-                            // Preliminary routing for canonical mode
-                            this.doPreliminaryRouting(routingTask, "canonical");
+            // Suppress SEPAmail messages which have already been delivered
+            if (Smac.deduplicationController != null) {
+                Smac.deduplicationController.reserve(routingTask, emlMessage);
+            }
 
-                            break;
+            // Determine the output queue of the parsed SEPAmail message
+            Object ruleEvent = SmacFlightRecorder.begin(SmacFlightEvent.RULE);
+            try {
+                this.route(routingTask, emlMessage);
+            } finally {
+
+                // The outcome of the rule evaluation is the output queue of the SEPAmail message
+                if (ruleEvent != null) {
+                    SmacFlightRecorder.commit(ruleEvent, routingTask.getInputQueueType(), routingTask.getEmlFile(),
+                            routingTask.getIsRouted() ?
+                            SmacQueueTypeUtils.getQueueTypeName(routingTask.getOutputQueueType()) :
+                            SmacFlightRecorder.OUTCOME_FAILURE);
+                }
+            }
 
-                        case "flash":
+            routingTask.setTimestamp(SmacTraceStage.ROUTE, System.nanoTime());
+            SmacAllocationMeter.mark(SmacAllocationCategory.ROUTE);
 
-                            // Preliminary routing for flash mode
-                            this.doPreliminaryRouting(routingTask, "flash");
+        } catch (MessagingException e) {
 
-                            break;
+            // The SEPAmail message container or its headers are malformed
+            throw new UnparseableMessageException(routingTask.getEmlFile().getAbsolutePath(), e);
+        }
+    }
 
-                        default:
+    /**
+     * Determine the output queue of a SEPAmail message which has already been loaded
+     *
+     * @param routingTask SMAC daemon routing task which points to a related SEPAmail message
+     * @param emlMessage Parsed SEPAmail message container associated with the routing task
+     * @throws RuleNotFoundException
+     * @throws MessagingException
+     */
+    public void route(RoutingTask routingTask, MimeMessage emlMessage) throws RuleNotFoundException,
+            MessagingException {
 
-                    }
-                }
-            }
+        // Check if we have the 'sepamail-mode' key in the SEPAmail message container file
+        String[] sepamailHeader = emlMessage.getHeader("sepamail-mode");
+        if (sepamailHeader != null) {
+            if (sepamailHeader.length > 0) {
 
-            // Check if task has been routed with preliminary routing
-            if (routingTask.getIsRouted()) {
+                // Route messages based on its sepamail-mode key
+                switch (sepamailHeader[0]) {
 
-                // Log the rule with which the current SEPAmail message will be routed
-                Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(), "Routing " +
-                        routingTask.getEmlFile().getAbsolutePath() + " in queue " +
-                        SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()) +
-                        " with 'sepamail-mode' code to " +
-                        SmacQueueTypeUtils.getQueueTypeName(routingTask.getOutputQueueType()) + ".");
+                    case "canonical":
 
-                return;
-            }
+                        // Preliminary routing for canonical mode
+                        this.doPreliminaryRouting(routingTask, "canonical");
 
-            // Get the 'from' address of the EML message
-            String from = null;
-            if (emlMessage.getFrom().length > 0) {
-                from = emlMessage.getFrom()[0].toString().trim();
-            }
+                        break;
 
-            // Get the 'to' address of the EML message
-            String to = null;
-            if (emlMessage.getRecipients(Message.RecipientType.TO).length > 0) {
-                to = emlMessage.getRecipients(Message.RecipientType.TO)[0].toString().trim();
-            }
+                    case "flash":
 
-            // Check if the from and to addresses have been defined
-            if (from != null && to != null) {
+                        // Preliminary routing for flash mode
+                        this.doPreliminaryRouting(routingTask, "flash");
 
-                // Try to obtain at least a rule using the 4-uplets
-                ArrayList<Rule> matchingRules = this.getMatchingRules(from, to, routingTask.getInputQueueType());
+                        break;
 
-                // Check if we have matching rules
-                if (matchingRules.size() > 0) {
+                    default:
 
-                    // Route the SEPAmail message container file with the first matching rule
-                    routingTask.setOutputQueueType(matchingRules.get(0).getOutputQueueType());
-                    routingTask.setIsRouted(true);
+                }
+            }
+        }
 
-                    // Log the rule with which the current SEPAmail message will be routed
-                    Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(), "Routing " +
-                            routingTask.getEmlFile().getAbsolutePath() + " in queue " +
-                            SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()) + " with rule " +
-                            matchingRules.get(0) + ".");
+        // Check if task has been routed with preliminary routing
+        if (routingTask.getIsRouted()) {
 
-                    // Log warning if we have more than one matching 4-uplet rule
-                    if (matchingRules.size() > 1) {
+            // Log the rule with which the current SEPAmail message will be routed
+            Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(),
+                    "Routing {0} in queue {1} with ''sepamail-mode'' code to {2}.", routingTask.getEmlFile(),
+                    routingTask.getInputQueueType(), routingTask.getOutputQueueType());
 
-                        Smac.logController.log(Level.WARNING, RoutingController.class.getSimpleName(),
-                                "There are more than one rule similar to " + matchingRules.get(0) + " by which " +
-                                routingTask.getEmlFile().getAbsolutePath() + " can be routed.");
-                    }
+            return;
+        }
 
-                    return;
-                }
-            }
+        // Get the 'from' address of the EML message, which is missing when the message has no From header
+        String from = null;
+        Address[] fromAddresses = emlMessage.getFrom();
+        if (fromAddresses != null && fromAddresses.length > 0 && fromAddresses[0] != null) {
+            from = fromAddresses[0].toString().trim();
+        }
 
-            // Get a general rule to route the SEPAmail message
-            Rule routingRule = this.getGeneralRule(routingTask.getInputQueueType());
+        // Get the 'to' address of the EML message, which is missing when the message has no To header
+        String to = null;
+        Address[] toAddresses = emlMessage.getRecipients(Message.RecipientType.TO);
+        if (toAddresses != null && toAddresses.length > 0 && toAddresses[0] != null) {
+            to = toAddresses[0].toString().trim();
+        }
 
-            // Check if a rule was obtained
-            if (routingRule != null) {
+        // Check if the from and to addresses have been defined
+        if (from != null && to != null) {
 
-                // Log the rule with which the current SEPAmail message will be routed
-                Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(), "Routing " +
-                        routingTask.getEmlFile().getAbsolutePath() + " in queue " +
-                        SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()) + " with rule " +
-                        routingRule + ".");
+            // Try to obtain at least a rule using the 4-uplets
+            ArrayList<Rule> matchingRules = this.getMatchingRules(from, to, routingTask.getInputQueueType());
 
-                // Set the SMAC routing task properties
+            // Check if we have matching rules
+            if (matchingRules.size() > 0) {
+
+                // Route the SEPAmail message container file with the first matching rule
+                routingTask.setOutputQueueType(matchingRules.get(0).getOutputQueueType());
                 routingTask.setIsRouted(true);
-                routingTask.setOutputQueueType(routingRule.getOutputQueueType());
 
-            } else {
+                // Log the rule with which the current SEPAmail message will be routed
+                Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(),
+                        "Routing {0} in queue {1} with rule {2}.", routingTask.getEmlFile(),
+                        routingTask.getInputQueueType(), matchingRules.get(0));
+
+                // Log warning if we have more than one matching 4-uplet rule
+                if (matchingRules.size() > 1) {
+
+                    Smac.logController.log(Level.WARNING, RoutingController.class.getSimpleName(),
+                            "There are more than one rule similar to {0} by which {1} can be routed.",
+                            matchingRules.get(0), routingTask.getEmlFile());
+                }
 
-                // An appropriate routing rule could not be found
-                throw new RuleNotFoundException(routingTask.getEmlFile().getAbsolutePath(),
-                        SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()));
+                return;
             }
+        }
+
+        // Get a general rule to route the SEPAmail message
+        Rule routingRule = this.getGeneralRule(routingTask.getInputQueueType());
+
+        // Check if a rule was obtained
+        if (routingRule != null) {
+
+            // Log the rule with which the current SEPAmail message will be routed
+            Smac.logController.log(Level.FINEST, RoutingController.class.getSimpleName(),
+                    "Routing {0} in queue {1} with rule {2}.", routingTask.getEmlFile(),
+                    routingTask.getInputQueueType(), routingRule);
+
+            // Set the SMAC routing task properties
+            routingTask.setIsRouted(true);
+            routingTask.setOutputQueueType(routingRule.getOutputQueueType());
 
-        } catch (FileNotFoundException | MessagingException e) {
+        } else {
 
-            // Log errors
-            Smac.logController.log(Level.WARNING, RoutingController.class.getSimpleName(), e.getMessage());
+            // An appropriate routing rule could not be found
+            throw new RuleNotFoundException(routingTask.getEmlFile().getAbsolutePath(),
+                    SmacQueueTypeUtils.getQueueTypeName(routingTask.getInputQueueType()));
         }
     }
 
@@ -0,0 +1,27 @@
+package smac.controller;
+
+import smac.model.RoutingTask;
+
+/**
+ * RoutingTaskListener is notified once the SEPAmail message of a routing task has durably reached its output queue.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public interface RoutingTaskListener {
+
+    /**
+     * Acknowledge a routing task whose SEPAmail message has been delivered to its output queue
+     *
+     * @param routingTask SMAC daemon routing task which has been completed
+     */
+    void routingTaskCompleted(RoutingTask routingTask);
+
+    /**
+     * Release a routing task whose SEPAmail message was accepted by its output queue but could not be delivered
+     *
+     * @param routingTask SMAC daemon routing task which has failed
+     * @param reason Reason for which the SEPAmail message could not be delivered
+     */
+    void routingTaskFailed(RoutingTask routingTask, String reason);
+}
@@ -0,0 +1,338 @@
+package smac.controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import smac.Smac;
+import smac.exception.DuplicateLockException;
+import smac.exception.RuleNotFoundException;
+import smac.model.OutputQueue;
+import smac.model.RoutingTask;
+import smac.util.SmacEmlUtils;
+import smac.util.SmacQueueType;
+import smac.util.SmacQueueTypeUtils;
+
+/**
+ * SimulationController replays a corpus of SEPAmail message container files through the SMAC daemon routing rules in
+ * memory. Files are neither locked nor moved so that rule changes can be validated against past traffic.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SimulationController {
+
+    // Simulation constants
+    private static final int MAX_UNROUTABLE_SAMPLES = 100;
+    private static final long PROGRESS_INTERVAL = 1000000;
+
+    // Class attributes
+    private final AtomicLongArray distribution;
+    private final ThreadPoolExecutor executor;
+    private final SmacQueueType inputQueueType;
+    private final ArrayList<OutputQueue> outputQueues;
+    private final AtomicLong processed;
+    private final RoutingController routingController;
+    private final AtomicLong undeliverable;
+    private final AtomicLong unroutable;
+    private final AtomicInteger unroutableSampleCount;
+    private final ConcurrentLinkedQueue<String> unroutableSamples;
+    private long elapsedTime;
+
+    /**
+     * SimulationController constructor
+     *
+     * @param inputQueueType SMAC input queue type in which the replayed SEPAmail messages are assumed to arrive
+     */
+    public SimulationController(SmacQueueType inputQueueType) {
+
+        // Number of routing workers
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        // Initialise class attributes
+        this.distribution = new AtomicLongArray(SmacQueueType.values().length);
+        this.elapsedTime = 0;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(workers * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.inputQueueType = inputQueueType;
+        this.outputQueues = Smac.config.getOutputQueues();
+        this.processed = new AtomicLong();
+        this.routingController = new RoutingController();
+        this.undeliverable = new AtomicLong();
+        this.unroutable = new AtomicLong();
+        this.unroutableSampleCount = new AtomicInteger();
+        this.unroutableSamples = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Route every SEPAmail message container file found in a directory tree or in a zip archive
+     *
+     * @param source Directory or zip archive containing the EML files that need to be replayed
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void simulate(File source) throws IOException, InterruptedException {
+
+        // Time at which the simulation started
+        long startTime = System.nanoTime();
+
+        try {
+
+            // Check the type of corpus that needs to be replayed
+            if (source.isDirectory()) {
+                this.simulateDirectory(source);
+            } else if (source.isFile() && source.getName().toLowerCase().endsWith(".zip")) {
+                this.simulateArchive(source);
+            } else {
+                throw new IOException("The path " + source.getAbsolutePath() +
+                        " is neither a directory nor a zip archive of EML files.");
+            }
+
+        } finally {
+
+            // Wait for pending routing decisions to complete
+            this.executor.shutdown();
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            // Duration of the simulation
+            this.elapsedTime = System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Write the simulation report showing the output queue distribution, unroutable messages and throughput
+     *
+     * @param out Stream to which the report is written
+     */
+    public void printReport(PrintStream out) {
+
+        // Number of messages replayed
+        long total = this.processed.get();
+
+        // Elapsed time in seconds
+        double seconds = this.elapsedTime / 1000000000.0;
+
+        out.println("SMAC routing simulation for the " + SmacQueueTypeUtils.getQueueTypeName(this.inputQueueType) +
+                " input queue");
+        out.println("Messages processed: " + total);
+        out.println(String.format("Elapsed time: %.3f s", seconds));
+        out.println(String.format("Throughput: %.0f messages/s", seconds > 0 ? total / seconds : 0));
+
+        // Output queue distribution
+        out.println("Output queue distribution:");
+        for (SmacQueueType queueType : SmacQueueType.values()) {
+
+            // Number of messages routed to the current queue
+            long count = this.distribution.get(queueType.ordinal());
+
+            if (count > 0) {
+                out.println(String.format("  %s: %d (%.2f%%)%s", SmacQueueTypeUtils.getQueueTypeName(queueType),
+                        count, count * 100.0 / total, this.isOutputQueueDefined(queueType) ? "" : " undefined"));
+            }
+        }
+
+        // Messages routed to output queues which are not configured
+        out.println("Messages routed to undefined output queues: " + this.undeliverable.get());
+
+        // Unroutable messages
+        out.println("Unroutable messages: " + this.unroutable.get());
+        for (String sample : this.unroutableSamples) {
+            out.println("  " + sample);
+        }
+
+        if (this.unroutable.get() > this.unroutableSamples.size()) {
+            out.println("  ... " + (this.unroutable.get() - this.unroutableSamples.size()) + " more");
+        }
+    }
+
+    /**
+     * Record a message for which no routing decision could be made
+     *
+     * @param emlFile SEPAmail message container file
+     * @param reason Reason for which the message could not be routed
+     */
+    private void addUnroutable(File emlFile, String reason) {
+
+        // Count the unroutable message
+        this.unroutable.incrementAndGet();
+
+        // Keep a bounded sample of unroutable files for the report
+        if (this.unroutableSampleCount.incrementAndGet() <= MAX_UNROUTABLE_SAMPLES) {
+            this.unroutableSamples.add(emlFile.getPath() + ": " + reason);
+        }
+    }
+
+    /**
+     * Check whether an output queue has been configured for the given queue type
+     *
+     * @param queueType Output queue type
+     * @return Whether the output queue has been configured
+     */
+    private boolean isOutputQueueDefined(SmacQueueType queueType) {
+        return this.outputQueues.indexOf(new OutputQueue(queueType)) > -1;
+    }
+
+    /**
+     * Route a single SEPAmail message read from the given stream and record the routing decision
+     *
+     * @param emlFile File which identifies the SEPAmail message in the replayed corpus
+     * @param source Stream from which the SEPAmail message container is read
+     */
+    private void simulateMessage(File emlFile, InputStream source) {
+
+        try {
+
+            // Routing task which does not lock the replayed file
+            RoutingTask routingTask = new RoutingTask(emlFile, this.inputQueueType, false);
+
+            // Parse the SEPAmail message container
+            MimeMessage emlMessage = SmacEmlUtils.loadEml(source);
+
+            // Determine the output queue of the message
+            this.routingController.route(routingTask, emlMessage);
+
+            // Record the routing decision, messages routed to an undefined output queue have been routed but would
+            // not be delivered
+            this.distribution.incrementAndGet(routingTask.getOutputQueueType().ordinal());
+            if (!this.isOutputQueueDefined(routingTask.getOutputQueueType())) {
+                this.undeliverable.incrementAndGet();
+            }
+
+        } catch (RuleNotFoundException | MessagingException | IOException | DuplicateLockException e) {
+
+            // The message could not be routed
+            this.addUnroutable(emlFile, e.getMessage());
+
+        } catch (RuntimeException e) {
+
+            // The message container is malformed
+            this.addUnroutable(emlFile, e.toString());
+
+        } finally {
+
+            try {
+                source.close();
+            } catch (IOException e) {
+                // Nothing more can be done for a replayed file which cannot be closed
+            }
+
+            // Display progress for large corpora
+            long count = this.processed.incrementAndGet();
+            if (count % PROGRESS_INTERVAL == 0) {
+                System.out.println(count + " messages processed.");
+            }
+        }
+    }
+
+    /**
+     * Replay the EML files contained in a zip archive
+     *
+     * @param archive Zip archive containing EML files
+     * @throws IOException
+     */
+    private void simulateArchive(final File archive) throws IOException {
+
+        try (final ZipFile zipFile = new ZipFile(archive)) {
+
+            // Submit each EML entry of the archive to the routing workers
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+
+                // Current archive entry
+                final ZipEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".eml")) {
+
+                    this.executor.execute(new Runnable() {
+
+                        /**
+                         * Route the SEPAmail message stored in the archive entry
+                         */
+                        @Override
+                        public void run() {
+
+                            // File identifying the archive entry
+                            File emlFile = new File(archive, entry.getName());
+
+                            try {
+                                simulateMessage(emlFile, zipFile.getInputStream(entry));
+                            } catch (IOException e) {
+                                addUnroutable(emlFile, e.getMessage());
+                            }
+                        }
+                    });
+                }
+            }
+
+            // The archive must remain open until every entry has been read
+            this.executor.shutdown();
+            try {
+                this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Replay the EML files found in a directory tree
+     *
+     * @param directory Root directory of the EML files
+     * @throws IOException
+     */
+    private void simulateDirectory(File directory) throws IOException {
+
+        // Walk the directory tree without listing it in memory
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+
+            /**
+             * Submit each EML file of the directory tree to the routing workers
+             */
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+
+                if (attrs.isRegularFile() && file.getFileName().toString().toLowerCase().endsWith(".eml")) {
+
+                    // File that needs to be routed
+                    final File emlFile = file.toFile();
+
+                    executor.execute(new Runnable() {
+
+                        /**
+                         * Route the SEPAmail message stored in the file
+                         */
+                        @Override
+                        public void run() {
+
+                            try {
+                                simulateMessage(emlFile, new FileInputStream(emlFile));
+                            } catch (IOException e) {
+                                addUnroutable(emlFile, e.getMessage());
+                            }
+                        }
+                    });
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
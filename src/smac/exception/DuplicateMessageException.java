@@ -0,0 +1,40 @@
+package smac.exception;
+
+/**
+ * The DuplicateMessageException class is the exception raised when a SEPAmail message has already been delivered or is
+ * being delivered by the SMAC daemon.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class DuplicateMessageException extends Exception {
+
+    // Class attributes
+    private final boolean inFlight;
+
+    /**
+     * Check whether the original SEPAmail message is still being delivered
+     *
+     * @return Whether the original SEPAmail message has not been delivered yet
+     */
+    public boolean isInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * DuplicateMessageException constructor
+     *
+     * @param inputFile Absolute file name of the duplicate SEPAmail message
+     * @param key Message-ID or content hash identifying the SEPAmail message
+     * @param inFlight Whether the original SEPAmail message has not been delivered yet
+     */
+    public DuplicateMessageException(String inputFile, String key, boolean inFlight) {
+
+        // Initialise the parent class
+        super("The file at " + inputFile + " is a duplicate of the SEPAmail message " + key +
+                (inFlight ? " which is being delivered." : " which has already been delivered."));
+
+        // Initialise class attributes
+        this.inFlight = inFlight;
+    }
+}
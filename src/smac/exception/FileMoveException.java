@@ -0,0 +1,24 @@
+package smac.exception;
+
+/**
+ * The FileMoveException class is the exception thrown when a SEPAmail message container file could not be moved to
+ * its output queue directory.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class FileMoveException extends Exception {
+
+    /**
+     * FileMoveException constructor
+     *
+     * @param file Absolute file name of the file being moved
+     * @param destination Absolute path of the destination directory
+     * @param cause Underlying file system error
+     */
+    public FileMoveException(String file, String destination, Throwable cause) {
+
+        // Initialise the parent class
+        super("The file " + file + " could not be moved to " + destination + ": " + cause, cause);
+    }
+}
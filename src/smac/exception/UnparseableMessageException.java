@@ -0,0 +1,23 @@
+package smac.exception;
+
+/**
+ * The UnparseableMessageException class is the exception raised when a SEPAmail message container file cannot be
+ * parsed by the SMAC daemon.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class UnparseableMessageException extends Exception {
+
+    /**
+     * UnparseableMessageException constructor
+     *
+     * @param file SEPAmail message container EML file
+     * @param cause Error raised while parsing the SEPAmail message container
+     */
+    public UnparseableMessageException(String file, Throwable cause) {
+
+        // Initialise the parent class
+        super("The SEPAmail message container " + file + " could not be parsed: " + cause, cause);
+    }
+}
@@ -0,0 +1,108 @@
+package smac.model;
+
+import java.beans.ConstructorProperties;
+import smac.util.SmacHistogram;
+
+/**
+ * AllocationStatistics is a snapshot of a histogram of the heap memory allocated per routing task, in bytes, exposed
+ * through JMX.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class AllocationStatistics {
+
+    // Class attributes
+    private final long count;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+
+    /**
+     * AllocationStatistics constructor
+     *
+     * @param count Number of accounted routing tasks
+     * @param mean Mean allocated bytes
+     * @param p50 Median allocated bytes
+     * @param p99 99th percentile allocated bytes
+     * @param p999 99.9th percentile allocated bytes
+     * @param max Largest allocated bytes
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p99", "p999", "max"})
+    public AllocationStatistics(long count, double mean, long p50, long p99, long p999, long max) {
+
+        // Initialise class attributes
+        this.count = count;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * AllocationStatistics constructor which takes a snapshot of a histogram of allocated bytes
+     *
+     * @param histogram Histogram of allocated bytes
+     */
+    public AllocationStatistics(SmacHistogram histogram) {
+        this(histogram.getCount(), histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(99),
+                histogram.getPercentile(99.9), histogram.getMax());
+    }
+
+    /**
+     * Get the number of accounted routing tasks
+     *
+     * @return Number of accounted routing tasks
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the largest number of bytes allocated by a routing task
+     *
+     * @return Largest allocated bytes
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Get the mean number of bytes allocated by a routing task
+     *
+     * @return Mean allocated bytes
+     */
+    public double getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Get the median number of bytes allocated by a routing task
+     *
+     * @return Median allocated bytes
+     */
+    public long getP50() {
+        return this.p50;
+    }
+
+    /**
+     * Get the 99th percentile of the bytes allocated by a routing task
+     *
+     * @return 99th percentile allocated bytes
+     */
+    public long getP99() {
+        return this.p99;
+    }
+
+    /**
+     * Get the 99.9th percentile of the bytes allocated by a routing task
+     *
+     * @return 99.9th percentile allocated bytes
+     */
+    public long getP999() {
+        return this.p999;
+    }
+}
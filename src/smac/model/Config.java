@@ -4,6 +4,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.logging.Level;
+import smac.util.SmacLogOverflowPolicy;
 
 /**
  * Config defines the configuration settings of the SMAC daemon.
@@ -13,12 +14,111 @@ import java.util.logging.Level;
  */
 public class Config {
 
+    // Default deduplication settings
+    public static final long DEFAULT_DEDUPLICATION_CAPACITY = 10000000;
+
+    // Default log settings
+    public static final int DEFAULT_LOG_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_LOG_ROTATE_KEEP = 10;
+    public static final int DEFAULT_LOG_THROTTLE_KEYS = 1024;
+    public static final long DEFAULT_LOG_THROTTLE_WINDOW = 60000;
+
+    // Default trace settings
+    public static final int DEFAULT_TRACE_SAMPLE = 100;
+
+    // Default retry settings
+    public static final int DEFAULT_RETRY_ATTEMPTS = 5;
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+    public static final long DEFAULT_RETRY_MAX_DELAY = 60000;
+    public static final int DEFAULT_RETRY_MAX_IN_FLIGHT = 1000;
+    public static final int DEFAULT_RETRY_MAX_IN_FLIGHT_PER_QUEUE = 250;
+    public static final int DEFAULT_SYSLOG_FACILITY = 1;
+    public static final int DEFAULT_SYSLOG_QUEUE_SIZE = 10000;
+
     // Class attributes
+    private boolean allocationAccountingEnabled;
+    private long deduplicationCapacity;
+    private String deduplicationDirectory;
+    private String httpAddress;
+    private int httpPort;
+    private int logBufferSize;
     private String logFilename;
     private String logLevel;
+    private SmacLogOverflowPolicy logOverflowPolicy;
+    private boolean logRotateCompress;
+    private long logRotateInterval;
+    private int logRotateKeep;
+    private long logRotateSize;
+    private int logThrottleKeys;
+    private long logThrottleWindow;
     private ArrayList<InputQueue> inputQueues;
     private ArrayList<OutputQueue> outputQueues;
+    private int retryAttempts;
+    private long retryDelay;
+    private long retryMaxDelay;
+    private int retryMaxInFlight;
+    private int retryMaxInFlightPerQueue;
     private ArrayList<Rule> rules;
+    private int syslogFacility;
+    private int syslogQueueSize;
+    private String syslogUri;
+    private String traceFilename;
+    private int traceSample;
+
+    /**
+     * Get the number of most recent delivered SEPAmail messages retained for duplicate suppression
+     *
+     * @return Capacity of the duplicate suppression store
+     */
+    public long getDeduplicationCapacity() {
+        return this.deduplicationCapacity;
+    }
+
+    /**
+     * Get the directory in which the duplicate suppression state is persisted
+     *
+     * @return Directory of the duplicate suppression state or null if duplicate suppression is disabled
+     * @throws MalformedURLException
+     */
+    public String getDeduplicationDirectory() throws MalformedURLException {
+
+        // Check if duplicate suppression has been enabled
+        if (this.deduplicationDirectory == null) {
+            return null;
+        }
+
+        // Convert the deduplication directory URL to directory
+        URL url = new URL(this.deduplicationDirectory);
+
+        return url.getFile();
+    }
+
+    /**
+     * Get the address on which the monitoring HTTP endpoint listens
+     *
+     * @return Listen address of the monitoring HTTP endpoint or null to listen on all interfaces
+     */
+    public String getHttpAddress() {
+        return this.httpAddress;
+    }
+
+    /**
+     * Get the port on which the monitoring HTTP endpoint listens
+     *
+     * @return Listen port of the monitoring HTTP endpoint or 0 if the endpoint is disabled
+     */
+    public int getHttpPort() {
+        return this.httpPort;
+    }
+
+    /**
+     * Get the number of log records which can wait to be written to the log file
+     *
+     * @return Size of the log ring buffer
+     */
+    public int getLogBufferSize() {
+        return this.logBufferSize;
+    }
 
     /**
      * Get the name and path of the SMAC daemon log file
@@ -58,6 +158,60 @@ public class Config {
         }
     }
 
+    /**
+     * Get the policy applied to log records which do not fit in the log ring buffer
+     *
+     * @return Log overflow policy
+     */
+    public SmacLogOverflowPolicy getLogOverflowPolicy() {
+        return this.logOverflowPolicy;
+    }
+
+    /**
+     * Get the maximum age in milliseconds of the log file before it is rotated
+     *
+     * @return Log rotation interval or 0 if the log file is not rotated by age
+     */
+    public long getLogRotateInterval() {
+        return this.logRotateInterval;
+    }
+
+    /**
+     * Get the number of rotated log files which are kept
+     *
+     * @return Number of rotated log files kept or 0 if they are all kept
+     */
+    public int getLogRotateKeep() {
+        return this.logRotateKeep;
+    }
+
+    /**
+     * Get the maximum size in bytes of the log file before it is rotated
+     *
+     * @return Log rotation size or 0 if the log file is not rotated by size
+     */
+    public long getLogRotateSize() {
+        return this.logRotateSize;
+    }
+
+    /**
+     * Get the maximum number of keys of similar log messages which are throttled
+     *
+     * @return Maximum number of throttled log message keys
+     */
+    public int getLogThrottleKeys() {
+        return this.logThrottleKeys;
+    }
+
+    /**
+     * Get the time window in milliseconds within which similar log messages are suppressed
+     *
+     * @return Log throttle time window
+     */
+    public long getLogThrottleWindow() {
+        return this.logThrottleWindow;
+    }
+
     /**
      * Get the list of output queues configured for the SMAC daemon
      *
@@ -67,6 +221,51 @@ public class Config {
         return this.outputQueues;
     }
 
+    /**
+     * Get the maximum number of times a routing task which failed with a transient error is retried
+     *
+     * @return Maximum number of retries of a routing task
+     */
+    public int getRetryAttempts() {
+        return this.retryAttempts;
+    }
+
+    /**
+     * Get the delay in milliseconds before the first retry of a routing task, which doubles on each retry
+     *
+     * @return Initial retry delay in milliseconds
+     */
+    public long getRetryDelay() {
+        return this.retryDelay;
+    }
+
+    /**
+     * Get the maximum delay in milliseconds between two retries of a routing task
+     *
+     * @return Maximum retry delay in milliseconds
+     */
+    public long getRetryMaxDelay() {
+        return this.retryMaxDelay;
+    }
+
+    /**
+     * Get the maximum number of routing tasks waiting to be retried
+     *
+     * @return Maximum number of retries in flight
+     */
+    public int getRetryMaxInFlight() {
+        return this.retryMaxInFlight;
+    }
+
+    /**
+     * Get the maximum number of routing tasks of a single output queue waiting to be retried
+     *
+     * @return Maximum number of retries in flight per output queue
+     */
+    public int getRetryMaxInFlightPerQueue() {
+        return this.retryMaxInFlightPerQueue;
+    }
+
     /**
      * Get the rule set for the SMAC daemon message routing
      *
@@ -76,6 +275,115 @@ public class Config {
         return this.rules;
     }
 
+    /**
+     * Get the syslog facility code of the SMAC daemon messages
+     *
+     * @return Syslog facility code
+     */
+    public int getSyslogFacility() {
+        return this.syslogFacility;
+    }
+
+    /**
+     * Get the number of log records which can wait to be sent to the syslog server
+     *
+     * @return Size of the syslog send queue
+     */
+    public int getSyslogQueueSize() {
+        return this.syslogQueueSize;
+    }
+
+    /**
+     * Get the URI of the syslog server to which log records are sent
+     *
+     * @return Syslog server URI (udp://host:port or tcp://host:port) or null if log records are only written locally
+     */
+    public String getSyslogUri() {
+        return this.syslogUri;
+    }
+
+    /**
+     * Get the name and path of the file to which the sampled routing task traces are written
+     *
+     * @return Name and path of the trace file or null if routing tasks are not traced
+     * @throws MalformedURLException
+     */
+    public String getTraceFilename() throws MalformedURLException {
+
+        // Check if tracing has been enabled
+        if (this.traceFilename == null) {
+            return null;
+        }
+
+        // Convert the trace file URL to file
+        URL url = new URL(this.traceFilename);
+
+        return url.getFile();
+    }
+
+    /**
+     * Get the number of completed routing tasks out of which one is traced
+     *
+     * @return Trace sample size
+     */
+    public int getTraceSample() {
+        return this.traceSample;
+    }
+
+    /**
+     * Check whether the heap memory allocated by each routing task is accounted for
+     *
+     * @return Whether the allocation accounting mode is enabled
+     */
+    public boolean isAllocationAccountingEnabled() {
+        return this.allocationAccountingEnabled;
+    }
+
+    /**
+     * Check whether duplicate SEPAmail messages are suppressed
+     *
+     * @return Whether duplicate suppression has been enabled
+     */
+    public boolean isDeduplicationEnabled() {
+        return this.deduplicationDirectory != null;
+    }
+
+    /**
+     * Check whether rotated log files are compressed with gzip
+     *
+     * @return Whether rotated log files are compressed
+     */
+    public boolean isLogRotateCompress() {
+        return this.logRotateCompress;
+    }
+
+    /**
+     * Set whether the heap memory allocated by each routing task is accounted for
+     *
+     * @param allocationAccountingEnabled Whether the allocation accounting mode is enabled
+     */
+    public void setAllocationAccountingEnabled(boolean allocationAccountingEnabled) {
+        this.allocationAccountingEnabled = allocationAccountingEnabled;
+    }
+
+    /**
+     * Set the number of most recent delivered SEPAmail messages retained for duplicate suppression
+     *
+     * @param deduplicationCapacity Capacity of the duplicate suppression store
+     */
+    public void setDeduplicationCapacity(long deduplicationCapacity) {
+        this.deduplicationCapacity = deduplicationCapacity;
+    }
+
+    /**
+     * Set the directory URL in which the duplicate suppression state is persisted
+     *
+     * @param deduplicationDirectory Directory URL of the duplicate suppression state
+     */
+    public void setDeduplicationDirectory(String deduplicationDirectory) {
+        this.deduplicationDirectory = deduplicationDirectory;
+    }
+
     /**
      * Set the list of input queues configured for the SMAC daemon
      *
@@ -85,6 +393,105 @@ public class Config {
         this.inputQueues = inputQueues;
     }
 
+    /**
+     * Set the address on which the monitoring HTTP endpoint listens
+     *
+     * @param httpAddress Listen address of the monitoring HTTP endpoint
+     */
+    public void setHttpAddress(String httpAddress) {
+        this.httpAddress = httpAddress;
+    }
+
+    /**
+     * Set the port on which the monitoring HTTP endpoint listens
+     *
+     * @param httpPort Listen port of the monitoring HTTP endpoint, 0 disabling the endpoint
+     */
+    public void setHttpPort(int httpPort) {
+        this.httpPort = httpPort;
+    }
+
+    /**
+     * Set the number of log records which can wait to be written to the log file
+     *
+     * @param logBufferSize Size of the log ring buffer
+     */
+    public void setLogBufferSize(int logBufferSize) {
+        this.logBufferSize = logBufferSize;
+    }
+
+    /**
+     * Set the SMAC daemon log level
+     *
+     * @param logLevel SMAC daemon log level name
+     */
+    public void setLogLevel(String logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    /**
+     * Set the policy applied to log records which do not fit in the log ring buffer
+     *
+     * @param logOverflowPolicy Log overflow policy
+     */
+    public void setLogOverflowPolicy(SmacLogOverflowPolicy logOverflowPolicy) {
+        this.logOverflowPolicy = logOverflowPolicy;
+    }
+
+    /**
+     * Set whether rotated log files are compressed with gzip
+     *
+     * @param logRotateCompress Whether rotated log files are compressed
+     */
+    public void setLogRotateCompress(boolean logRotateCompress) {
+        this.logRotateCompress = logRotateCompress;
+    }
+
+    /**
+     * Set the maximum age in milliseconds of the log file before it is rotated
+     *
+     * @param logRotateInterval Log rotation interval or 0 if the log file is not rotated by age
+     */
+    public void setLogRotateInterval(long logRotateInterval) {
+        this.logRotateInterval = logRotateInterval;
+    }
+
+    /**
+     * Set the number of rotated log files which are kept
+     *
+     * @param logRotateKeep Number of rotated log files kept or 0 if they are all kept
+     */
+    public void setLogRotateKeep(int logRotateKeep) {
+        this.logRotateKeep = logRotateKeep;
+    }
+
+    /**
+     * Set the maximum size in bytes of the log file before it is rotated
+     *
+     * @param logRotateSize Log rotation size or 0 if the log file is not rotated by size
+     */
+    public void setLogRotateSize(long logRotateSize) {
+        this.logRotateSize = logRotateSize;
+    }
+
+    /**
+     * Set the maximum number of keys of similar log messages which are throttled
+     *
+     * @param logThrottleKeys Maximum number of throttled log message keys
+     */
+    public void setLogThrottleKeys(int logThrottleKeys) {
+        this.logThrottleKeys = logThrottleKeys;
+    }
+
+    /**
+     * Set the time window in milliseconds within which similar log messages are suppressed
+     *
+     * @param logThrottleWindow Log throttle time window
+     */
+    public void setLogThrottleWindow(long logThrottleWindow) {
+        this.logThrottleWindow = logThrottleWindow;
+    }
+
     /**
      * Set the list of output queues configured for the SMAC daemon
      *
@@ -94,6 +501,51 @@ public class Config {
         this.outputQueues = outputQueues;
     }
 
+    /**
+     * Set the maximum number of times a routing task which failed with a transient error is retried
+     *
+     * @param retryAttempts Maximum number of retries of a routing task
+     */
+    public void setRetryAttempts(int retryAttempts) {
+        this.retryAttempts = retryAttempts;
+    }
+
+    /**
+     * Set the delay in milliseconds before the first retry of a routing task, which doubles on each retry
+     *
+     * @param retryDelay Initial retry delay in milliseconds
+     */
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Set the maximum delay in milliseconds between two retries of a routing task
+     *
+     * @param retryMaxDelay Maximum retry delay in milliseconds
+     */
+    public void setRetryMaxDelay(long retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * Set the maximum number of routing tasks waiting to be retried
+     *
+     * @param retryMaxInFlight Maximum number of retries in flight
+     */
+    public void setRetryMaxInFlight(int retryMaxInFlight) {
+        this.retryMaxInFlight = retryMaxInFlight;
+    }
+
+    /**
+     * Set the maximum number of routing tasks of a single output queue waiting to be retried
+     *
+     * @param retryMaxInFlightPerQueue Maximum number of retries in flight per output queue
+     */
+    public void setRetryMaxInFlightPerQueue(int retryMaxInFlightPerQueue) {
+        this.retryMaxInFlightPerQueue = retryMaxInFlightPerQueue;
+    }
+
     /**
      * Set the rule set for the SMAC daemon message routing
      *
@@ -103,6 +555,51 @@ public class Config {
         this.rules = rules;
     }
 
+    /**
+     * Set the syslog facility code of the SMAC daemon messages
+     *
+     * @param syslogFacility Syslog facility code
+     */
+    public void setSyslogFacility(int syslogFacility) {
+        this.syslogFacility = syslogFacility;
+    }
+
+    /**
+     * Set the number of log records which can wait to be sent to the syslog server
+     *
+     * @param syslogQueueSize Size of the syslog send queue
+     */
+    public void setSyslogQueueSize(int syslogQueueSize) {
+        this.syslogQueueSize = syslogQueueSize;
+    }
+
+    /**
+     * Set the URI of the syslog server to which log records are sent
+     *
+     * @param syslogUri Syslog server URI (udp://host:port or tcp://host:port)
+     */
+    public void setSyslogUri(String syslogUri) {
+        this.syslogUri = syslogUri;
+    }
+
+    /**
+     * Set the URL of the file to which the sampled routing task traces are written
+     *
+     * @param traceFilename Trace file URL
+     */
+    public void setTraceFilename(String traceFilename) {
+        this.traceFilename = traceFilename;
+    }
+
+    /**
+     * Set the number of completed routing tasks out of which one is traced
+     *
+     * @param traceSample Trace sample size
+     */
+    public void setTraceSample(int traceSample) {
+        this.traceSample = traceSample;
+    }
+
     /**
      * Config constructor
      *
@@ -112,11 +609,34 @@ public class Config {
     public Config(String logFilename, String logLevel) {
 
         // Initialise class attributes
+        this.allocationAccountingEnabled = false;
+        this.deduplicationCapacity = DEFAULT_DEDUPLICATION_CAPACITY;
+        this.deduplicationDirectory = null;
+        this.httpAddress = null;
+        this.httpPort = 0;
         this.inputQueues = new ArrayList<>();
+        this.logBufferSize = DEFAULT_LOG_BUFFER_SIZE;
         this.logFilename = logFilename;
         this.logLevel = logLevel;
+        this.logOverflowPolicy = SmacLogOverflowPolicy.BLOCK;
+        this.logRotateCompress = true;
+        this.logRotateInterval = 0;
+        this.logRotateKeep = DEFAULT_LOG_ROTATE_KEEP;
+        this.logRotateSize = 0;
+        this.logThrottleKeys = DEFAULT_LOG_THROTTLE_KEYS;
+        this.logThrottleWindow = DEFAULT_LOG_THROTTLE_WINDOW;
         this.outputQueues = new ArrayList<>();
+        this.retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+        this.retryDelay = DEFAULT_RETRY_DELAY;
+        this.retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+        this.retryMaxInFlight = DEFAULT_RETRY_MAX_IN_FLIGHT;
+        this.retryMaxInFlightPerQueue = DEFAULT_RETRY_MAX_IN_FLIGHT_PER_QUEUE;
         this.rules = new ArrayList<>();
+        this.syslogFacility = DEFAULT_SYSLOG_FACILITY;
+        this.syslogQueueSize = DEFAULT_SYSLOG_QUEUE_SIZE;
+        this.syslogUri = null;
+        this.traceFilename = null;
+        this.traceSample = DEFAULT_TRACE_SAMPLE;
     }
 
     /**
@@ -14,10 +14,30 @@ import smac.util.SmacQueueTypeUtils;
 public class InputQueue {
 
     // Class attributes
+    private String deadLetterDirectory;
     private boolean isActive;
     private String queueDirectory;
     private SmacQueueType queueType;
 
+    /**
+     * Get the file system directory to which the unroutable and unparseable messages of the queue are moved
+     *
+     * @return Dead-letter directory of the queue or null if it has not been defined
+     * @throws MalformedURLException
+     */
+    public String getDeadLetterDirectory() throws MalformedURLException {
+
+        // Check if a dead-letter directory has been defined
+        if (this.deadLetterDirectory == null) {
+            return null;
+        }
+
+        // Convert dead-letter directory URL to directory
+        URL url = new URL(this.deadLetterDirectory);
+
+        return url.getFile();
+    }
+
     /**
      * Get the active status of the SMAC queue
      *
@@ -50,6 +70,15 @@ public class InputQueue {
         return this.queueType;
     }
 
+    /**
+     * Set the file system directory to which the unroutable and unparseable messages of the queue are moved
+     *
+     * @param deadLetterDirectory Dead-letter directory URL of the queue
+     */
+    public void setDeadLetterDirectory(String deadLetterDirectory) {
+        this.deadLetterDirectory = deadLetterDirectory;
+    }
+
     /**
      * Set the active status of the SMAC queue
      *
@@ -85,6 +114,7 @@ public class InputQueue {
     public InputQueue(SmacQueueType queueType) {
 
         // Initialise class attributes
+        this.deadLetterDirectory = null;
         this.isActive = false;
         this.queueDirectory = "";
         this.queueType = queueType;
@@ -99,6 +129,7 @@ public class InputQueue {
     public InputQueue(String queueDirectory, SmacQueueType queueType) {
 
         // Initialise class attributes
+        this.deadLetterDirectory = null;
         this.isActive = false;
         this.queueDirectory = queueDirectory;
         this.queueType = queueType;
@@ -0,0 +1,427 @@
+package smac.model;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import smac.util.SmacAllocationCategory;
+import smac.util.SmacAllocationMeter;
+import smac.util.SmacHistogram;
+import smac.util.SmacTraceStage;
+
+/**
+ * InputQueueStatistics holds the routing counters and latency histograms of a SMAC input queue. The latency of each
+ * stage of a routing task is the time elapsed since its previous stage. Counters and histograms are updated without
+ * locks so that they can be recorded on the routing hot path.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class InputQueueStatistics implements InputQueueStatisticsMXBean {
+
+    // Class attributes
+    private final EnumMap<SmacAllocationCategory, SmacHistogram> allocatedBytes;
+    private volatile boolean backlogScanned;
+    private final AtomicLong deadLettered;
+    private final AtomicLong duplicates;
+    private final SmacHistogram endToEndLatency;
+    private final AtomicLong enqueued;
+    private final AtomicLong failed;
+    private volatile BlockingQueue<RoutingTask> processQueue;
+    private final AtomicLong retried;
+    private final AtomicLong routed;
+    private final EnumMap<SmacTraceStage, SmacHistogram> stageLatency;
+    private final SmacHistogram totalAllocatedBytes;
+    private volatile boolean watching;
+
+    /**
+     * InputQueueStatistics default constructor
+     */
+    public InputQueueStatistics() {
+
+        // Initialise class attributes
+        this.allocatedBytes = new EnumMap<>(SmacAllocationCategory.class);
+        this.backlogScanned = false;
+        this.deadLettered = new AtomicLong();
+        this.duplicates = new AtomicLong();
+        this.endToEndLatency = new SmacHistogram();
+        this.enqueued = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.processQueue = null;
+        this.retried = new AtomicLong();
+        this.routed = new AtomicLong();
+        this.stageLatency = new EnumMap<>(SmacTraceStage.class);
+        this.totalAllocatedBytes = new SmacHistogram();
+        this.watching = false;
+
+        for (SmacAllocationCategory category : SmacAllocationCategory.values()) {
+            this.allocatedBytes.put(category, new SmacHistogram());
+        }
+
+        // The first stage has no latency
+        for (SmacTraceStage stage : SmacTraceStage.values()) {
+            if (stage != SmacTraceStage.WATCH) {
+                this.stageLatency.put(stage, new SmacHistogram());
+            }
+        }
+    }
+
+    /**
+     * Get the heap memory allocated per routing task by each part of the processing and in total, when the allocation
+     * accounting mode is enabled
+     *
+     * @return Allocation statistics by part of the processing
+     */
+    @Override
+    public Map<String, AllocationStatistics> getAllocation() {
+
+        // Allocation statistics by part of the processing
+        Map<String, AllocationStatistics> allocation = new LinkedHashMap<>();
+
+        for (SmacAllocationCategory category : SmacAllocationCategory.values()) {
+            allocation.put(category.name().toLowerCase(), new AllocationStatistics(this.allocatedBytes.get(category)));
+        }
+
+        allocation.put("total", new AllocationStatistics(this.totalAllocatedBytes));
+
+        return allocation;
+    }
+
+    /**
+     * Get the histogram of the bytes allocated per routing task by a part of the processing
+     *
+     * @param category Part of the processing
+     * @return Allocated bytes histogram
+     */
+    public SmacHistogram getAllocatedBytesHistogram(SmacAllocationCategory category) {
+        return this.allocatedBytes.get(category);
+    }
+
+    /**
+     * Get the number of SEPAmail messages moved to the dead-letter directory
+     *
+     * @return Number of dead-lettered messages
+     */
+    @Override
+    public long getDeadLettered() {
+        return this.deadLettered.get();
+    }
+
+    /**
+     * Get the number of duplicate SEPAmail messages which were suppressed
+     *
+     * @return Number of duplicate messages
+     */
+    @Override
+    public long getDuplicates() {
+        return this.duplicates.get();
+    }
+
+    /**
+     * Get the latency from the moment the SEPAmail messages are noticed until their lock is released
+     *
+     * @return End-to-end latency statistics
+     */
+    @Override
+    public LatencyStatistics getEndToEndLatency() {
+        return new LatencyStatistics(this.endToEndLatency);
+    }
+
+    /**
+     * Get the histogram of the end-to-end latencies in nanoseconds
+     *
+     * @return End-to-end latency histogram
+     */
+    public SmacHistogram getEndToEndLatencyHistogram() {
+        return this.endToEndLatency;
+    }
+
+    /**
+     * Get the latency of locking the SEPAmail messages and adding them to the process queue
+     *
+     * @return Enqueue latency statistics
+     */
+    @Override
+    public LatencyStatistics getEnqueueLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.ENQUEUE));
+    }
+
+    /**
+     * Get the number of SEPAmail messages added to the process queue
+     *
+     * @return Number of enqueued messages
+     */
+    @Override
+    public long getEnqueued() {
+        return this.enqueued.get();
+    }
+
+    /**
+     * Get the number of SEPAmail messages which could not be delivered and were not retried
+     *
+     * @return Number of failed messages
+     */
+    @Override
+    public long getFailed() {
+        return this.failed.get();
+    }
+
+    /**
+     * Get the latency of moving the SEPAmail messages to their output queue until they are acknowledged
+     *
+     * @return Move latency statistics
+     */
+    @Override
+    public LatencyStatistics getMoveLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.MOVE));
+    }
+
+    /**
+     * Get the age of the oldest SEPAmail message waiting in the process queue
+     *
+     * @return Age of the oldest pending message in milliseconds or 0 if the process queue is empty
+     */
+    @Override
+    public long getOldestPendingAge() {
+
+        // Process queue of the input queue
+        BlockingQueue<RoutingTask> queue = this.processQueue;
+
+        if (queue == null) {
+            return 0;
+        }
+
+        // Earliest time at which a pending routing task was enqueued
+        long now = System.nanoTime();
+        long oldest = now;
+        for (RoutingTask routingTask : queue) {
+            if (routingTask.getTimestamp(SmacTraceStage.ENQUEUE) - oldest < 0) {
+                oldest = routingTask.getTimestamp(SmacTraceStage.ENQUEUE);
+            }
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(now - oldest);
+    }
+
+    /**
+     * Get the latency of parsing the SEPAmail messages
+     *
+     * @return Parse latency statistics
+     */
+    @Override
+    public LatencyStatistics getParseLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.PARSE));
+    }
+
+    /**
+     * Get the number of SEPAmail messages waiting in the process queue
+     *
+     * @return Process queue depth
+     */
+    @Override
+    public int getProcessQueueDepth() {
+
+        // Process queue of the input queue
+        BlockingQueue<RoutingTask> queue = this.processQueue;
+
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Get the latency of removing the lock of the SEPAmail messages once they have been acknowledged
+     *
+     * @return Release latency statistics
+     */
+    @Override
+    public LatencyStatistics getReleaseLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.RELEASE));
+    }
+
+    /**
+     * Get the number of retries scheduled after transient failures
+     *
+     * @return Number of retries
+     */
+    @Override
+    public long getRetried() {
+        return this.retried.get();
+    }
+
+    /**
+     * Get the latency of determining the output queue of the SEPAmail messages
+     *
+     * @return Route latency statistics
+     */
+    @Override
+    public LatencyStatistics getRouteLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.ROUTE));
+    }
+
+    /**
+     * Get the number of SEPAmail messages delivered to their output queue
+     *
+     * @return Number of routed messages
+     */
+    @Override
+    public long getRouted() {
+        return this.routed.get();
+    }
+
+    /**
+     * Get the histogram of the bytes allocated per routing task
+     *
+     * @return Total allocated bytes histogram
+     */
+    public SmacHistogram getTotalAllocatedBytesHistogram() {
+        return this.totalAllocatedBytes;
+    }
+
+    /**
+     * Get the histogram of the latencies in nanoseconds of a stage since the previous stage
+     *
+     * @param stage Trace stage other than the first one
+     * @return Stage latency histogram
+     */
+    public SmacHistogram getStageLatencyHistogram(SmacTraceStage stage) {
+        return this.stageLatency.get(stage);
+    }
+
+    /**
+     * Get the latency of the SEPAmail messages waiting in the process queue
+     *
+     * @return Wait latency statistics
+     */
+    @Override
+    public LatencyStatistics getWaitLatency() {
+        return new LatencyStatistics(this.stageLatency.get(SmacTraceStage.DEQUEUE));
+    }
+
+    /**
+     * Count a SEPAmail message moved to the dead-letter directory
+     */
+    public void incrementDeadLettered() {
+        this.deadLettered.incrementAndGet();
+    }
+
+    /**
+     * Count a suppressed duplicate SEPAmail message
+     */
+    public void incrementDuplicates() {
+        this.duplicates.incrementAndGet();
+    }
+
+    /**
+     * Count a SEPAmail message added to the process queue
+     */
+    public void incrementEnqueued() {
+        this.enqueued.incrementAndGet();
+    }
+
+    /**
+     * Count a SEPAmail message which could not be delivered and will not be retried
+     */
+    public void incrementFailed() {
+        this.failed.incrementAndGet();
+    }
+
+    /**
+     * Count a retry scheduled after a transient failure
+     */
+    public void incrementRetried() {
+        this.retried.incrementAndGet();
+    }
+
+    /**
+     * Count a SEPAmail message delivered to its output queue
+     */
+    public void incrementRouted() {
+        this.routed.incrementAndGet();
+    }
+
+    /**
+     * Check whether the SEPAmail messages already present in the input queue directory at startup have been queued
+     *
+     * @return Whether the backlog scan has finished
+     */
+    public boolean isBacklogScanned() {
+        return this.backlogScanned;
+    }
+
+    /**
+     * Check whether the directory watch service of the input queue is registered and running
+     *
+     * @return Whether the input queue directory is being watched
+     */
+    public boolean isWatching() {
+        return this.watching;
+    }
+
+    /**
+     * Record the memory allocated by the routing task which the current thread has just processed
+     */
+    public void recordAllocation() {
+
+        // Parts of the processing which were not reached are not recorded
+        for (SmacAllocationCategory category : SmacAllocationCategory.values()) {
+
+            long bytes = SmacAllocationMeter.getAllocatedBytes(category);
+            if (bytes >= 0) {
+                this.allocatedBytes.get(category).record(bytes);
+            }
+        }
+
+        this.totalAllocatedBytes.record(SmacAllocationMeter.getTotalAllocatedBytes());
+    }
+
+    /**
+     * Record the latency of each stage of a routing task whose lock has been released
+     *
+     * @param routingTask Completed SMAC daemon routing task
+     */
+    public void recordStages(RoutingTask routingTask) {
+
+        // Time at which the previous stage was reached
+        long previous = routingTask.getTimestamp(SmacTraceStage.WATCH);
+
+        for (SmacTraceStage stage : SmacTraceStage.values()) {
+
+            if (stage != SmacTraceStage.WATCH) {
+
+                long timestamp = routingTask.getTimestamp(stage);
+                this.stageLatency.get(stage).record(timestamp - previous);
+                previous = timestamp;
+            }
+        }
+
+        this.endToEndLatency.record(previous - routingTask.getTimestamp(SmacTraceStage.WATCH));
+    }
+
+    /**
+     * Set whether the backlog scan of the input queue directory has finished
+     *
+     * @param backlogScanned Whether the backlog scan has finished
+     */
+    public void setBacklogScanned(boolean backlogScanned) {
+        this.backlogScanned = backlogScanned;
+    }
+
+    /**
+     * Set the process queue whose depth and oldest pending message are reported
+     *
+     * @param processQueue Process queue of the input queue
+     */
+    public void setProcessQueue(BlockingQueue<RoutingTask> processQueue) {
+        this.processQueue = processQueue;
+    }
+
+    /**
+     * Set whether the directory watch service of the input queue is registered and running
+     *
+     * @param watching Whether the input queue directory is being watched
+     */
+    public void setWatching(boolean watching) {
+        this.watching = watching;
+    }
+}
@@ -0,0 +1,125 @@
+package smac.model;
+
+import java.util.Map;
+
+/**
+ * InputQueueStatisticsMXBean defines the statistics of a SMAC input queue which are exposed through JMX.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public interface InputQueueStatisticsMXBean {
+
+    /**
+     * Get the heap memory allocated per routing task by each part of the processing and in total, when the allocation
+     * accounting mode is enabled
+     *
+     * @return Allocation statistics by part of the processing
+     */
+    Map<String, AllocationStatistics> getAllocation();
+
+    /**
+     * Get the number of SEPAmail messages moved to the dead-letter directory
+     *
+     * @return Number of dead-lettered messages
+     */
+    long getDeadLettered();
+
+    /**
+     * Get the number of duplicate SEPAmail messages which were suppressed
+     *
+     * @return Number of duplicate messages
+     */
+    long getDuplicates();
+
+    /**
+     * Get the latency from the moment the SEPAmail messages are noticed until their lock is released
+     *
+     * @return End-to-end latency statistics
+     */
+    LatencyStatistics getEndToEndLatency();
+
+    /**
+     * Get the latency of locking the SEPAmail messages and adding them to the process queue
+     *
+     * @return Enqueue latency statistics
+     */
+    LatencyStatistics getEnqueueLatency();
+
+    /**
+     * Get the number of SEPAmail messages added to the process queue
+     *
+     * @return Number of enqueued messages
+     */
+    long getEnqueued();
+
+    /**
+     * Get the number of SEPAmail messages which could not be delivered and were not retried
+     *
+     * @return Number of failed messages
+     */
+    long getFailed();
+
+    /**
+     * Get the latency of moving the SEPAmail messages to their output queue until they are acknowledged
+     *
+     * @return Move latency statistics
+     */
+    LatencyStatistics getMoveLatency();
+
+    /**
+     * Get the age of the oldest SEPAmail message waiting in the process queue
+     *
+     * @return Age of the oldest pending message in milliseconds or 0 if the process queue is empty
+     */
+    long getOldestPendingAge();
+
+    /**
+     * Get the latency of parsing the SEPAmail messages
+     *
+     * @return Parse latency statistics
+     */
+    LatencyStatistics getParseLatency();
+
+    /**
+     * Get the number of SEPAmail messages waiting in the process queue
+     *
+     * @return Process queue depth
+     */
+    int getProcessQueueDepth();
+
+    /**
+     * Get the latency of removing the lock of the SEPAmail messages once they have been acknowledged
+     *
+     * @return Release latency statistics
+     */
+    LatencyStatistics getReleaseLatency();
+
+    /**
+     * Get the number of retries scheduled after transient failures
+     *
+     * @return Number of retries
+     */
+    long getRetried();
+
+    /**
+     * Get the number of SEPAmail messages delivered to their output queue
+     *
+     * @return Number of routed messages
+     */
+    long getRouted();
+
+    /**
+     * Get the latency of determining the output queue of the SEPAmail messages
+     *
+     * @return Route latency statistics
+     */
+    LatencyStatistics getRouteLatency();
+
+    /**
+     * Get the latency of the SEPAmail messages waiting in the process queue
+     *
+     * @return Wait latency statistics
+     */
+    LatencyStatistics getWaitLatency();
+}
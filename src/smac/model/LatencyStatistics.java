@@ -0,0 +1,107 @@
+package smac.model;
+
+import java.beans.ConstructorProperties;
+import smac.util.SmacHistogram;
+
+/**
+ * LatencyStatistics is a snapshot of a latency histogram, in microseconds, exposed through JMX.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class LatencyStatistics {
+
+    // Class attributes
+    private final long count;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+
+    /**
+     * LatencyStatistics constructor
+     *
+     * @param count Number of recorded latencies
+     * @param mean Mean latency in microseconds
+     * @param p50 Median latency in microseconds
+     * @param p99 99th percentile latency in microseconds
+     * @param p999 99.9th percentile latency in microseconds
+     * @param max Largest latency in microseconds
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p99", "p999", "max"})
+    public LatencyStatistics(long count, double mean, long p50, long p99, long p999, long max) {
+
+        // Initialise class attributes
+        this.count = count;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * LatencyStatistics constructor which takes a snapshot of a histogram of latencies in nanoseconds
+     *
+     * @param histogram Histogram of latencies in nanoseconds
+     */
+    public LatencyStatistics(SmacHistogram histogram) {
+        this(histogram.getCount(), histogram.getMean() / 1000, histogram.getPercentile(50) / 1000,
+                histogram.getPercentile(99) / 1000, histogram.getPercentile(99.9) / 1000, histogram.getMax() / 1000);
+    }
+
+    /**
+     * Get the number of recorded latencies
+     *
+     * @return Number of recorded latencies
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the largest latency
+     *
+     * @return Largest latency in microseconds
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Get the mean latency
+     *
+     * @return Mean latency in microseconds
+     */
+    public double getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Get the median latency
+     *
+     * @return Median latency in microseconds
+     */
+    public long getP50() {
+        return this.p50;
+    }
+
+    /**
+     * Get the 99th percentile latency
+     *
+     * @return 99th percentile latency in microseconds
+     */
+    public long getP99() {
+        return this.p99;
+    }
+
+    /**
+     * Get the 99.9th percentile latency
+     *
+     * @return 99.9th percentile latency in microseconds
+     */
+    public long getP999() {
+        return this.p999;
+    }
+}
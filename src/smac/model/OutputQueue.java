@@ -2,8 +2,13 @@ package smac.model;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import smac.util.SmacDurabilityMode;
+import smac.util.SmacOutputMode;
 import smac.util.SmacQueueType;
 import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacShardType;
 
 /**
  * OutputQueue defines a queue that is being used as an output channel by the SMAC daemon.
@@ -13,9 +18,80 @@ import smac.util.SmacQueueTypeUtils;
  */
 public class OutputQueue {
 
+    // Default output queue settings
+    public static final long DEFAULT_ARCHIVE_INTERVAL = 60000;
+    public static final long DEFAULT_ARCHIVE_SIZE = 67108864;
+    public static final long DEFAULT_GROUP_COMMIT_INTERVAL = 10;
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 256;
+    public static final long DEFAULT_SEGMENT_SIZE = 268435456;
+
     // Class attributes
+    private long archiveInterval;
+    private long archiveSize;
+    private SmacDurabilityMode durabilityMode;
+    private long groupCommitInterval;
+    private int groupCommitSize;
+    private SmacOutputMode outputMode;
     private String queueDirectory;
+    private Path queuePath;
     private SmacQueueType queueType;
+    private long segmentSize;
+    private SmacShardType shardType;
+
+    /**
+     * Get the maximum time in milliseconds during which an archive remains open in archive output mode
+     *
+     * @return Maximum age of an archive in milliseconds
+     */
+    public long getArchiveInterval() {
+        return this.archiveInterval;
+    }
+
+    /**
+     * Get the number of bytes of message content above which an archive is sealed in archive output mode
+     *
+     * @return Maximum size of the content of an archive in bytes
+     */
+    public long getArchiveSize() {
+        return this.archiveSize;
+    }
+
+    /**
+     * Get the durability mode of the output queue
+     *
+     * @return Durability mode of the output queue
+     */
+    public SmacDurabilityMode getDurabilityMode() {
+        return this.durabilityMode;
+    }
+
+    /**
+     * Get the maximum time in milliseconds during which moved messages are batched before being synced in group
+     * commit durability mode
+     *
+     * @return Maximum group commit delay in milliseconds
+     */
+    public long getGroupCommitInterval() {
+        return this.groupCommitInterval;
+    }
+
+    /**
+     * Get the maximum number of moved messages which are synced together in group commit durability mode
+     *
+     * @return Maximum number of messages in a group commit
+     */
+    public int getGroupCommitSize() {
+        return this.groupCommitSize;
+    }
+
+    /**
+     * Get the mode in which routed messages are written to the output queue
+     *
+     * @return Output mode of the output queue
+     */
+    public SmacOutputMode getOutputMode() {
+        return this.outputMode;
+    }
 
     /**
      * Get the file system directory which has been defined as the queue
@@ -31,6 +107,23 @@ public class OutputQueue {
         return url.getFile();
     }
 
+    /**
+     * Get the absolute path of the file system directory which has been defined as the queue. The queue directory URL
+     * is only parsed the first time the path is requested.
+     *
+     * @return Absolute path of the file system directory which has been defined as the queue
+     * @throws MalformedURLException
+     */
+    public Path getQueuePath() throws MalformedURLException {
+
+        // Resolve the queue directory URL once
+        if (this.queuePath == null) {
+            this.queuePath = Paths.get(this.getQueueDirectory()).toAbsolutePath();
+        }
+
+        return this.queuePath;
+    }
+
     /**
      * Get the SMAC daemon queue type
      *
@@ -40,6 +133,79 @@ public class OutputQueue {
         return this.queueType;
     }
 
+    /**
+     * Get the size in bytes above which a new segment is started in segment output mode
+     *
+     * @return Maximum size of a segment in bytes
+     */
+    public long getSegmentSize() {
+        return this.segmentSize;
+    }
+
+    /**
+     * Get the sharding scheme of the output queue directory
+     *
+     * @return Sharding scheme of the output queue directory
+     */
+    public SmacShardType getShardType() {
+        return this.shardType;
+    }
+
+    /**
+     * Set the maximum time in milliseconds during which an archive remains open in archive output mode
+     *
+     * @param archiveInterval Maximum age of an archive in milliseconds
+     */
+    public void setArchiveInterval(long archiveInterval) {
+        this.archiveInterval = archiveInterval;
+    }
+
+    /**
+     * Set the number of bytes of message content above which an archive is sealed in archive output mode
+     *
+     * @param archiveSize Maximum size of the content of an archive in bytes
+     */
+    public void setArchiveSize(long archiveSize) {
+        this.archiveSize = archiveSize;
+    }
+
+    /**
+     * Set the durability mode of the output queue
+     *
+     * @param durabilityMode Durability mode of the output queue
+     */
+    public void setDurabilityMode(SmacDurabilityMode durabilityMode) {
+        this.durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Set the maximum time in milliseconds during which moved messages are batched before being synced in group
+     * commit durability mode
+     *
+     * @param groupCommitInterval Maximum group commit delay in milliseconds
+     */
+    public void setGroupCommitInterval(long groupCommitInterval) {
+        this.groupCommitInterval = groupCommitInterval;
+    }
+
+    /**
+     * Set the maximum number of moved messages which are synced together in group commit durability mode
+     *
+     * @param groupCommitSize Maximum number of messages in a group commit
+     */
+    public void setGroupCommitSize(int groupCommitSize) {
+        this.groupCommitSize = groupCommitSize;
+    }
+
+    /**
+     * Set the mode in which routed messages are written to the output queue
+     *
+     * @param outputMode Output mode of the output queue
+     */
+    public void setOutputMode(SmacOutputMode outputMode) {
+        this.outputMode = outputMode;
+    }
+
     /**
      * Set the file system directory which will be defined as the SMAC daemon queue
      *
@@ -47,6 +213,7 @@ public class OutputQueue {
      */
     public void setQueueDirectory(String queueDirectory) {
         this.queueDirectory = queueDirectory;
+        this.queuePath = null;
     }
 
     /**
@@ -58,6 +225,24 @@ public class OutputQueue {
         this.queueType = queueType;
     }
 
+    /**
+     * Set the size in bytes above which a new segment is started in segment output mode
+     *
+     * @param segmentSize Maximum size of a segment in bytes
+     */
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Set the sharding scheme of the output queue directory
+     *
+     * @param shardType Sharding scheme of the output queue directory
+     */
+    public void setShardType(SmacShardType shardType) {
+        this.shardType = shardType;
+    }
+
     /**
      * OutputQueue constructor
      *
@@ -66,8 +251,17 @@ public class OutputQueue {
     public OutputQueue(SmacQueueType queueType) {
 
         // Initialise class attributes
+        this.archiveInterval = DEFAULT_ARCHIVE_INTERVAL;
+        this.archiveSize = DEFAULT_ARCHIVE_SIZE;
+        this.durabilityMode = SmacDurabilityMode.NONE;
+        this.groupCommitInterval = DEFAULT_GROUP_COMMIT_INTERVAL;
+        this.groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+        this.outputMode = SmacOutputMode.FILE;
         this.queueDirectory = "";
+        this.queuePath = null;
         this.queueType = queueType;
+        this.segmentSize = DEFAULT_SEGMENT_SIZE;
+        this.shardType = SmacShardType.NONE;
     }
 
     /**
@@ -79,8 +273,17 @@ public class OutputQueue {
     public OutputQueue(SmacQueueType queueType, String queueDirectory) {
 
         // Initialise class attributes
+        this.archiveInterval = DEFAULT_ARCHIVE_INTERVAL;
+        this.archiveSize = DEFAULT_ARCHIVE_SIZE;
+        this.durabilityMode = SmacDurabilityMode.NONE;
+        this.groupCommitInterval = DEFAULT_GROUP_COMMIT_INTERVAL;
+        this.groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+        this.outputMode = SmacOutputMode.FILE;
         this.queueDirectory = queueDirectory;
+        this.queuePath = null;
         this.queueType = queueType;
+        this.segmentSize = DEFAULT_SEGMENT_SIZE;
+        this.shardType = SmacShardType.NONE;
     }
 
     /**
@@ -132,6 +335,7 @@ public class OutputQueue {
     @Override
     public String toString() {
         return "Queue type name: " + SmacQueueTypeUtils.getQueueTypeName(this.queueType) + ", Directory: "
-                + this.queueDirectory;
+                + this.queueDirectory + ", Mode: " + this.outputMode + ", Durability: " + this.durabilityMode
+                + ", Sharding: " + this.shardType;
     }
 }
@@ -0,0 +1,87 @@
+package smac.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import smac.util.SmacHistogram;
+
+/**
+ * OutputQueueStatistics holds the delivery counters and move latency histogram of a SMAC output queue. Counters and the
+ * histogram are updated without locks so that they can be recorded on the routing hot path.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class OutputQueueStatistics implements OutputQueueStatisticsMXBean {
+
+    // Class attributes
+    private final AtomicLong delivered;
+    private final AtomicLong failed;
+    private final SmacHistogram moveLatency;
+
+    /**
+     * OutputQueueStatistics default constructor
+     */
+    public OutputQueueStatistics() {
+
+        // Initialise class attributes
+        this.delivered = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.moveLatency = new SmacHistogram();
+    }
+
+    /**
+     * Get the number of SEPAmail messages durably delivered to the output queue
+     *
+     * @return Number of delivered messages
+     */
+    @Override
+    public long getDelivered() {
+        return this.delivered.get();
+    }
+
+    /**
+     * Get the number of SEPAmail messages which could not be delivered to the output queue
+     *
+     * @return Number of failed deliveries
+     */
+    @Override
+    public long getFailed() {
+        return this.failed.get();
+    }
+
+    /**
+     * Get the latency of moving the SEPAmail messages to the output queue until they are acknowledged
+     *
+     * @return Move latency statistics
+     */
+    @Override
+    public LatencyStatistics getMoveLatency() {
+        return new LatencyStatistics(this.moveLatency);
+    }
+
+    /**
+     * Get the histogram of the move latencies in nanoseconds
+     *
+     * @return Move latency histogram
+     */
+    public SmacHistogram getMoveLatencyHistogram() {
+        return this.moveLatency;
+    }
+
+    /**
+     * Count a SEPAmail message which could not be delivered to the output queue
+     */
+    public void incrementFailed() {
+        this.failed.incrementAndGet();
+    }
+
+    /**
+     * Record a SEPAmail message durably delivered to the output queue
+     *
+     * @param moveLatency Time in nanoseconds between the start of the move and its acknowledgement
+     */
+    public void recordDelivered(long moveLatency) {
+
+        this.delivered.incrementAndGet();
+        this.moveLatency.record(moveLatency);
+    }
+}
@@ -0,0 +1,31 @@
+package smac.model;
+
+/**
+ * OutputQueueStatisticsMXBean defines the statistics of a SMAC output queue which are exposed through JMX.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public interface OutputQueueStatisticsMXBean {
+
+    /**
+     * Get the number of SEPAmail messages durably delivered to the output queue
+     *
+     * @return Number of delivered messages
+     */
+    long getDelivered();
+
+    /**
+     * Get the number of SEPAmail messages which could not be delivered to the output queue
+     *
+     * @return Number of failed deliveries
+     */
+    long getFailed();
+
+    /**
+     * Get the latency of moving the SEPAmail messages to the output queue until they are acknowledged
+     *
+     * @return Move latency statistics
+     */
+    LatencyStatistics getMoveLatency();
+}
@@ -5,8 +5,11 @@ import java.io.IOException;
 import java.util.logging.Level;
 import smac.Smac;
 import smac.exception.DuplicateLockException;
+import smac.util.SmacFlightEvent;
+import smac.util.SmacFlightRecorder;
 import smac.util.SmacQueueType;
 import smac.util.SmacQueueTypeUtils;
+import smac.util.SmacTraceStage;
 
 /**
  * RoutingTask defines the details of a task that must be carried out by the SMAC daemon.
@@ -17,11 +20,32 @@ import smac.util.SmacQueueTypeUtils;
 public class RoutingTask implements Comparable<RoutingTask> {
 
     // Class attributes
+    private int attempts;
+    private byte[] deduplicationKey;
     private File emlFile;
     private SmacQueueType inputQueueType;
     private boolean isRouted;
     private File lockFile;
     private SmacQueueType outputQueueType;
+    private final long[] timestamps;
+
+    /**
+     * Get the number of times the routing task has been retried after a transient failure
+     *
+     * @return Number of retries of the routing task
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Get the digest identifying the SEPAmail message for duplicate suppression
+     *
+     * @return SHA-256 digest of the Message-ID or content of the SEPAmail message or null if it has not been reserved
+     */
+    public byte[] getDeduplicationKey() {
+        return this.deduplicationKey;
+    }
 
     /**
      * Get the SMAC daemon task input file
@@ -53,7 +77,7 @@ public class RoutingTask implements Comparable<RoutingTask> {
     /**
      * Get the lock file of the SMAC daemon task
      *
-     * @return Lock file of the SMAC daemon task
+     * @return Lock file of the SMAC daemon task or null if the task was created without a lock
      */
     public File getLockFile() {
         return this.lockFile;
@@ -68,6 +92,34 @@ public class RoutingTask implements Comparable<RoutingTask> {
         return this.outputQueueType;
     }
 
+    /**
+     * Get the time at which the routing task reached a stage
+     *
+     * @param stage Trace stage
+     * @return Time in nanoseconds of System.nanoTime() at which the stage was last reached
+     */
+    public long getTimestamp(SmacTraceStage stage) {
+        return this.timestamps[stage.ordinal()];
+    }
+
+    /**
+     * Set the number of times the routing task has been retried after a transient failure
+     *
+     * @param attempts Number of retries of the routing task
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Set the digest identifying the SEPAmail message for duplicate suppression
+     *
+     * @param deduplicationKey SHA-256 digest of the Message-ID or content of the SEPAmail message
+     */
+    public void setDeduplicationKey(byte[] deduplicationKey) {
+        this.deduplicationKey = deduplicationKey;
+    }
+
     /**
      * Set the routed status of a SMAC daemon task - when a task is routed, it means that the task has been processed
      *
@@ -86,6 +138,16 @@ public class RoutingTask implements Comparable<RoutingTask> {
         this.outputQueueType = outputQueueType;
     }
 
+    /**
+     * Set the time at which the routing task reached a stage
+     *
+     * @param stage Trace stage
+     * @param timestamp Time in nanoseconds of System.nanoTime() at which the stage was reached
+     */
+    public void setTimestamp(SmacTraceStage stage, long timestamp) {
+        this.timestamps[stage.ordinal()] = timestamp;
+    }
+
     /**
      * RoutingTask constructor
      *
@@ -97,13 +159,40 @@ public class RoutingTask implements Comparable<RoutingTask> {
     public RoutingTask(File emlFile, SmacQueueType inputQueueType) throws IOException, DuplicateLockException {
 
         // Initialise class attributes
-        this.emlFile = emlFile;
+        this(emlFile, inputQueueType, true);
+    }
+
+    /**
+     * RoutingTask constructor
+     *
+     * @param emlFile SMAC daemon task EML file
+     * @param inputQueueType SMAC daemon input queue type of the current SMAC daemon task
+     * @param lock Whether a lock file must be created for the EML file of the task
+     * @throws IOException
+     * @throws DuplicateLockException
+     */
+    public RoutingTask(File emlFile, SmacQueueType inputQueueType, boolean lock) throws IOException,
+            DuplicateLockException {
+
+        // Initialise class attributes
+        this.attempts = 0;
+        this.deduplicationKey = null;
+        this.emlFile = emlFile.getAbsoluteFile();
         this.inputQueueType = inputQueueType;
         this.isRouted = false;
+        this.lockFile = null;
         this.outputQueueType = null;
+        this.timestamps = new long[SmacTraceStage.values().length];
+
+        // The routing task is noticed and enqueued as it is created unless its stages are timestamped later on
+        long now = System.nanoTime();
+        this.timestamps[SmacTraceStage.WATCH.ordinal()] = now;
+        this.timestamps[SmacTraceStage.ENQUEUE.ordinal()] = now;
 
-        // Create lock file for the current SMAC daemon task
-        this.createLockFile();
+        // Create lock file for the current SMAC daemon task if required
+        if (lock) {
+            this.createLockFile();
+        }
     }
 
     /**
@@ -135,7 +224,7 @@ public class RoutingTask implements Comparable<RoutingTask> {
         // SMAC daemon routing task details
         task += "Input queue: " + SmacQueueTypeUtils.getQueueTypeName(this.inputQueueType) + lineSeparator;
         task += "SEPAmail message container file: " + this.emlFile.getAbsolutePath() + lineSeparator;
-        task += "Lock file: " + this.lockFile.getAbsolutePath() + lineSeparator;
+        task += "Lock file: " + (this.lockFile != null ? this.lockFile.getAbsolutePath() : "None") + lineSeparator;
         task += "Routed: " + (this.isRouted ? "Yes" : "No") + lineSeparator;
 
         // Check if the task has been routed
@@ -155,14 +244,23 @@ public class RoutingTask implements Comparable<RoutingTask> {
     private void createLockFile() throws IOException, DuplicateLockException {
 
         // Lock file
-        this.lockFile = new File(this.emlFile.getAbsoluteFile() + ".lock");
+        this.lockFile = new File(this.emlFile.getPath() + ".lock");
 
         // Create the lock file
-        if (this.lockFile.createNewFile()) {
+        boolean isCreated = false;
+        Object lockEvent = SmacFlightRecorder.begin(SmacFlightEvent.LOCK_CREATE);
+        try {
+            isCreated = this.lockFile.createNewFile();
+        } finally {
+            SmacFlightRecorder.commit(lockEvent, this.inputQueueType, this.emlFile,
+                    isCreated ? SmacFlightRecorder.OUTCOME_SUCCESS : SmacFlightRecorder.OUTCOME_FAILURE);
+        }
+
+        if (isCreated) {
 
             // Lock file has been created
-            Smac.logController.log(Level.FINEST, RoutingTask.class.getSimpleName(), "The lock " +
-                    this.lockFile.getAbsoluteFile() + " has been created.");
+            Smac.logController.log(Level.FINEST, RoutingTask.class.getSimpleName(), "The lock {0} has been created.",
+                    this.lockFile);
 
         } else {
 
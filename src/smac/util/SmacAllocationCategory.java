@@ -0,0 +1,36 @@
+package smac.util;
+
+/**
+ * SmacAllocationCategory defines the parts of the processing of a routing task to which the allocated heap memory is
+ * attributed by the allocation accounting mode.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacAllocationCategory {
+
+    /**
+     * Reading and parsing the SEPAmail message container file
+     */
+    PARSE,
+
+    /**
+     * Duplicate suppression and evaluation of the routing rules
+     */
+    ROUTE,
+
+    /**
+     * Handing the SEPAmail message over to its output queue
+     */
+    MOVE,
+
+    /**
+     * Publishing log records, whatever the part of the processing which logs them
+     */
+    LOG,
+
+    /**
+     * Remaining processing such as error handling, statistics and lock release
+     */
+    OTHER
+}
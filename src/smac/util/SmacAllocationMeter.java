@@ -0,0 +1,262 @@
+package smac.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * SmacAllocationMeter attributes the heap memory allocated by a thread while it processes a routing task to the parts
+ * of the processing, using the allocated bytes counter which HotSpot keeps for each thread. Accounting is a diagnostic
+ * mode: until it is enabled, every call returns immediately.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SmacAllocationMeter {
+
+    // Accounts of the threads which process routing tasks
+    private static final ThreadLocal<Account> ACCOUNTS = new ThreadLocal<Account>() {
+
+        /**
+         * Create the account of the current thread
+         */
+        @Override
+        protected Account initialValue() {
+            return new Account();
+        }
+    };
+
+    // Thread management bean reading the allocated bytes counters, null while accounting is disabled
+    private static volatile com.sun.management.ThreadMXBean threadMXBean;
+
+    /**
+     * SmacAllocationMeter constructor
+     */
+    private SmacAllocationMeter() {
+    }
+
+    /**
+     * Start accounting for the memory allocated by the current thread while it processes a routing task
+     *
+     * @return Whether the allocations of the routing task are accounted for
+     */
+    public static boolean begin() {
+
+        // Thread management bean
+        com.sun.management.ThreadMXBean bean = threadMXBean;
+        if (bean == null) {
+            return false;
+        }
+
+        ACCOUNTS.get().begin(getAllocatedBytes(bean));
+
+        return true;
+    }
+
+    /**
+     * Enable the allocation accounting mode
+     *
+     * @return Whether the JVM supports the measurement of the memory allocated by each thread
+     */
+    public static synchronized boolean enable() {
+
+        // Thread management bean of the JVM
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        // The allocated bytes counters are a HotSpot extension
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+
+        com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean)bean;
+        if (!hotspotBean.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+
+        hotspotBean.setThreadAllocatedMemoryEnabled(true);
+        threadMXBean = hotspotBean;
+
+        return true;
+    }
+
+    /**
+     * Stop accounting for the memory allocated by the current thread and attribute the allocations since the last
+     * part of the processing to the remaining processing
+     */
+    public static void end() {
+
+        // Thread management bean
+        com.sun.management.ThreadMXBean bean = threadMXBean;
+        if (bean != null) {
+            ACCOUNTS.get().end(getAllocatedBytes(bean));
+        }
+    }
+
+    /**
+     * Get the memory allocated for a part of the last routing task processed by the current thread
+     *
+     * @param category Part of the processing
+     * @return Allocated bytes or -1 if the part of the processing was not reached
+     */
+    public static long getAllocatedBytes(SmacAllocationCategory category) {
+        return ACCOUNTS.get().allocated[category.ordinal()];
+    }
+
+    /**
+     * Get the memory allocated for the whole last routing task processed by the current thread
+     *
+     * @return Allocated bytes
+     */
+    public static long getTotalAllocatedBytes() {
+        return ACCOUNTS.get().total;
+    }
+
+    /**
+     * Check whether the allocation accounting mode is enabled
+     *
+     * @return Whether allocations are accounted for
+     */
+    public static boolean isEnabled() {
+        return threadMXBean != null;
+    }
+
+    /**
+     * Start measuring the memory allocated to publish a log record
+     *
+     * @return Allocated bytes counter of the current thread or -1 if its allocations are not accounted for
+     */
+    public static long logBegin() {
+
+        // Thread management bean
+        com.sun.management.ThreadMXBean bean = threadMXBean;
+        if (bean == null || !ACCOUNTS.get().active) {
+            return -1;
+        }
+
+        return getAllocatedBytes(bean);
+    }
+
+    /**
+     * Attribute the memory allocated to publish a log record to logging
+     *
+     * @param start Allocated bytes counter returned by logBegin
+     */
+    public static void logEnd(long start) {
+
+        // Thread management bean
+        com.sun.management.ThreadMXBean bean = threadMXBean;
+        if (start >= 0 && bean != null) {
+            ACCOUNTS.get().log += getAllocatedBytes(bean) - start;
+        }
+    }
+
+    /**
+     * Attribute the memory allocated by the current thread since the previous part of the processing, apart from
+     * logging, to a part of the processing which has just completed
+     *
+     * @param category Part of the processing
+     */
+    public static void mark(SmacAllocationCategory category) {
+
+        // Thread management bean
+        com.sun.management.ThreadMXBean bean = threadMXBean;
+        if (bean != null) {
+
+            Account account = ACCOUNTS.get();
+            if (account.active) {
+                account.mark(category, getAllocatedBytes(bean));
+            }
+        }
+    }
+
+    /**
+     * Read the allocated bytes counter of the current thread
+     *
+     * @param bean Thread management bean
+     * @return Bytes allocated by the current thread since it started
+     */
+    private static long getAllocatedBytes(com.sun.management.ThreadMXBean bean) {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Account holds the allocated bytes counters of the routing task which a thread is processing.
+     */
+    private static class Account {
+
+        // Class attributes
+        private boolean active;
+        private final long[] allocated;
+        private long last;
+        private long log;
+        private long logAtLast;
+        private long start;
+        private long total;
+
+        /**
+         * Account default constructor
+         */
+        private Account() {
+
+            // Initialise class attributes
+            this.active = false;
+            this.allocated = new long[SmacAllocationCategory.values().length];
+            this.last = 0;
+            this.log = 0;
+            this.logAtLast = 0;
+            this.start = 0;
+            this.total = 0;
+        }
+
+        /**
+         * Start accounting for a routing task
+         *
+         * @param now Allocated bytes counter of the thread
+         */
+        private void begin(long now) {
+
+            // Parts of the processing which are not reached are not reported
+            for (int i = 0; i < this.allocated.length; i++) {
+                this.allocated[i] = -1;
+            }
+
+            this.active = true;
+            this.last = now;
+            this.log = 0;
+            this.logAtLast = 0;
+            this.start = now;
+            this.total = 0;
+        }
+
+        /**
+         * Stop accounting for the routing task
+         *
+         * @param now Allocated bytes counter of the thread
+         */
+        private void end(long now) {
+
+            if (!this.active) {
+                return;
+            }
+
+            this.mark(SmacAllocationCategory.OTHER, now);
+
+            this.active = false;
+            this.allocated[SmacAllocationCategory.LOG.ordinal()] = this.log;
+            this.total = now - this.start;
+        }
+
+        /**
+         * Attribute the allocations since the previous part of the processing, apart from logging, to a part of the
+         * processing
+         *
+         * @param category Part of the processing
+         * @param now Allocated bytes counter of the thread
+         */
+        private void mark(SmacAllocationCategory category, long now) {
+
+            this.allocated[category.ordinal()] = now - this.last - (this.log - this.logAtLast);
+            this.last = now;
+            this.logAtLast = this.log;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package smac.util;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * SmacArchive streams SEPAmail message container files into a zip or tar archive which is sealed with a manifest
+ * listing the name, size and CRC-32 checksum of every archived file.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacArchive {
+
+    // Archive constants
+    public static final String MANIFEST_NAME = "MANIFEST";
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_LENGTH = 100;
+
+    // Class attributes
+    private final byte[] buffer;
+    private long contentSize;
+    private boolean damaged;
+    private final HashSet<String> entryNames;
+    private final FileOutputStream fileStream;
+    private final SmacOutputMode format;
+    private final StringBuilder manifest;
+    private final OutputStream out;
+    private final ZipOutputStream zipStream;
+
+    /**
+     * SmacArchive constructor
+     *
+     * @param file Path of the archive file being written
+     * @param format Archive format which is either ZIP or TAR
+     * @throws IOException
+     */
+    public SmacArchive(Path file, SmacOutputMode format) throws IOException {
+
+        // Initialise class attributes
+        this.buffer = new byte[65536];
+        this.contentSize = 0;
+        this.damaged = false;
+        this.entryNames = new HashSet<>();
+        this.fileStream = new FileOutputStream(file.toFile());
+        this.format = format;
+        this.manifest = new StringBuilder();
+
+        // Archive stream
+        OutputStream bufferedStream = new BufferedOutputStream(this.fileStream, 65536);
+        if (format == SmacOutputMode.ZIP) {
+            this.zipStream = new ZipOutputStream(bufferedStream, StandardCharsets.UTF_8);
+            this.zipStream.setLevel(Deflater.BEST_SPEED);
+            this.out = this.zipStream;
+        } else {
+            this.zipStream = null;
+            this.out = bufferedStream;
+        }
+    }
+
+    /**
+     * Stream a file into the archive. The archive is left untouched when the file cannot be opened or its name does
+     * not fit in an entry header but is damaged when the file cannot be streamed completely.
+     *
+     * @param source Path of the file which needs to be archived
+     * @throws IOException
+     */
+    public void add(Path source) throws IOException {
+
+        // Name, size and modification time of the archived file
+        String name = source.getFileName().toString();
+        long size = Files.size(source);
+        long time = Files.getLastModifiedTime(source).toMillis();
+
+        // Reject a file whose name does not fit in the USTAR header before anything is written
+        if (this.format != SmacOutputMode.ZIP && name.getBytes(StandardCharsets.UTF_8).length > TAR_NAME_LENGTH) {
+            throw new IOException("The file name " + name + " is too long for a tar archive.");
+        }
+
+        // Checksum of the archived file
+        CRC32 crc = new CRC32();
+
+        try (InputStream in = Files.newInputStream(source)) {
+
+            // The archive cannot be used anymore once an entry has been partially written
+            this.damaged = true;
+
+            // Write the entry header
+            this.putEntry(name, size, time);
+
+            // Stream the file content
+            long copied = 0;
+            int count = in.read(this.buffer);
+            while (count > 0) {
+                this.out.write(this.buffer, 0, count);
+                crc.update(this.buffer, 0, count);
+                copied += count;
+                count = in.read(this.buffer);
+            }
+
+            if (copied != size) {
+                throw new IOException("The file " + source + " changed while being archived.");
+            }
+
+            // Complete the entry
+            this.closeEntry(size);
+
+            this.damaged = false;
+        }
+
+        // Record the archived file in the manifest
+        this.manifest.append(name).append('\t').append(size).append('\t')
+                .append(String.format("%08x", crc.getValue())).append('\n');
+
+        this.contentSize += size;
+        this.entryNames.add(name);
+    }
+
+    /**
+     * Close the archive without sealing it
+     */
+    public void abort() {
+
+        try {
+            this.fileStream.close();
+        } catch (IOException e) {
+            // The archive is being discarded
+        }
+    }
+
+    /**
+     * Check whether a file with the given name has already been archived
+     *
+     * @param name File name
+     * @return Whether the archive already contains a file with the given name
+     */
+    public boolean contains(String name) {
+        return this.entryNames.contains(name);
+    }
+
+    /**
+     * Get the number of bytes of archived file content
+     *
+     * @return Number of bytes of archived file content
+     */
+    public long getContentSize() {
+        return this.contentSize;
+    }
+
+    /**
+     * Get the number of files in the archive
+     *
+     * @return Number of files in the archive
+     */
+    public int getEntryCount() {
+        return this.entryNames.size();
+    }
+
+    /**
+     * Check whether an entry of the archive was partially written so that the archive cannot be sealed
+     *
+     * @return Whether the archive is damaged
+     */
+    public boolean isDamaged() {
+        return this.damaged;
+    }
+
+    /**
+     * Write the manifest, complete the archive and close it
+     *
+     * @param sync Whether the archive must be synced to disk before being closed
+     * @throws IOException
+     */
+    public void seal(boolean sync) throws IOException {
+
+        try {
+
+            // Write the manifest as the last entry of the archive
+            byte[] manifestContent = this.manifest.toString().getBytes(StandardCharsets.UTF_8);
+            this.putEntry(MANIFEST_NAME, manifestContent.length, System.currentTimeMillis());
+            this.out.write(manifestContent);
+            this.closeEntry(manifestContent.length);
+
+            // Complete the archive
+            if (this.zipStream != null) {
+                this.zipStream.finish();
+            } else {
+                this.out.write(new byte[TAR_BLOCK_SIZE * 2]);
+            }
+
+            this.out.flush();
+
+            // Make the archive content durable
+            if (sync) {
+                this.fileStream.getChannel().force(true);
+            }
+
+        } finally {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Complete the current archive entry
+     *
+     * @param size Size of the entry content
+     * @throws IOException
+     */
+    private void closeEntry(long size) throws IOException {
+
+        if (this.format == SmacOutputMode.ZIP) {
+            this.zipStream.closeEntry();
+        } else {
+
+            // Pad the entry content to a whole number of tar blocks
+            int padding = (int)((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+            this.out.write(new byte[padding]);
+        }
+    }
+
+    /**
+     * Write the header of a new archive entry
+     *
+     * @param name Name of the entry
+     * @param size Size of the entry content
+     * @param time Modification time of the entry in milliseconds since 1970
+     * @throws IOException
+     */
+    private void putEntry(String name, long size, long time) throws IOException {
+
+        if (this.format == SmacOutputMode.ZIP) {
+
+            // Zip entry header
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(time);
+            this.zipStream.putNextEntry(entry);
+
+        } else {
+
+            // USTAR entry header
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+            this.putOctal(header, 100, 8, 0644);
+            this.putOctal(header, 108, 8, 0);
+            this.putOctal(header, 116, 8, 0);
+            this.putOctal(header, 124, 12, size);
+            this.putOctal(header, 136, 12, time / 1000);
+            header[156] = '0';
+            System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+
+            // Header checksum computed with the checksum field filled with spaces
+            for (int i = 148; i < 156; i++) {
+                header[i] = ' ';
+            }
+
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xff;
+            }
+
+            this.putOctal(header, 148, 7, checksum);
+            this.out.write(header);
+        }
+    }
+
+    /**
+     * Write a zero padded, NUL terminated octal number in a tar header field
+     *
+     * @param header Tar header
+     * @param offset Offset of the field
+     * @param length Length of the field including the terminating NUL
+     * @param value Value of the field
+     */
+    private void putOctal(byte[] header, int offset, int length, long value) {
+
+        // Octal digits of the value
+        String digits = Long.toOctalString(value);
+
+        // Zero pad the value
+        int padding = length - 1 - digits.length();
+        for (int i = 0; i < padding; i++) {
+            header[offset + i] = '0';
+        }
+
+        for (int i = 0; i < digits.length(); i++) {
+            header[offset + padding + i] = (byte)digits.charAt(i);
+        }
+
+        header[offset + length - 1] = 0;
+    }
+}
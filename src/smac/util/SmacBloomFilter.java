@@ -0,0 +1,166 @@
+package smac.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SmacBloomFilter is a Bloom filter whose bit array is memory mapped from a file so that it survives restarts of the
+ * SMAC daemon without being held in heap. Keys are 32 byte SHA-256 digests from which the bit positions are derived by
+ * double hashing. The filter is sized for a 1% false positive rate at its expected capacity.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacBloomFilter {
+
+    // Bloom filter constants
+    public static final int KEY_SIZE = 32;
+    private static final int HASH_COUNT = 7;
+    private static final int HEADER_SIZE = 32;
+    private static final long MAGIC = 0x534d4143424c4d31L;
+    private static final double BITS_PER_KEY = 9.6;
+
+    // Class attributes
+    private final MappedByteBuffer bits;
+    private final long bitCount;
+    private final boolean created;
+
+    /**
+     * SmacBloomFilter constructor which opens the filter file or creates an empty filter when the file does not
+     * exist or was sized for another capacity
+     *
+     * @param file Path of the filter file
+     * @param capacity Number of keys for which the filter is sized
+     * @throws IOException
+     */
+    public SmacBloomFilter(Path file, long capacity) throws IOException {
+
+        // Size of the bit array rounded up to a whole number of bytes
+        long byteCount = Math.min((long)Math.ceil(capacity * BITS_PER_KEY / 8), Integer.MAX_VALUE - HEADER_SIZE);
+
+        // Initialise class attributes
+        this.bitCount = byteCount * 8;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+
+            // Check whether the existing filter matches the requested capacity
+            boolean valid = false;
+            if (channel.size() == HEADER_SIZE + byteCount) {
+
+                // Read the filter header
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining()) {
+                    if (channel.read(header, header.position()) < 0) {
+                        throw new IOException("Unexpected end of Bloom filter " + file + ".");
+                    }
+                }
+
+                valid = header.getLong(0) == MAGIC && header.getLong(8) == this.bitCount &&
+                        header.getInt(16) == HASH_COUNT;
+            }
+
+            if (!valid) {
+
+                // Start an empty filter
+                channel.truncate(0);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putLong(MAGIC).putLong(this.bitCount).putInt(HASH_COUNT).rewind();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+
+                // Zero filled bit array
+                channel.write(ByteBuffer.allocate(1), HEADER_SIZE + byteCount - 1);
+                channel.force(true);
+            }
+
+            this.created = !valid;
+            this.bits = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, byteCount);
+        }
+    }
+
+    /**
+     * Force the bit array to be written to disk
+     */
+    public void force() {
+        this.bits.force();
+    }
+
+    /**
+     * Check whether the filter was created empty when it was opened
+     *
+     * @return Whether the filter needs to be populated again
+     */
+    public boolean isCreated() {
+        return this.created;
+    }
+
+    /**
+     * Check whether a key may have been added to the filter
+     *
+     * @param key SHA-256 digest of the key
+     * @return False if the key has never been added, true if it may have been added
+     */
+    public boolean mightContain(byte[] key) {
+
+        // Hash values derived from the digest
+        long hash1 = this.getLong(key, 0);
+        long hash2 = this.getLong(key, 8);
+
+        for (int i = 0; i < HASH_COUNT; i++) {
+
+            // Position of the current bit
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % this.bitCount;
+
+            if ((this.bits.get((int)(bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Add a key to the filter
+     *
+     * @param key SHA-256 digest of the key
+     */
+    public void put(byte[] key) {
+
+        // Hash values derived from the digest
+        long hash1 = this.getLong(key, 0);
+        long hash2 = this.getLong(key, 8);
+
+        for (int i = 0; i < HASH_COUNT; i++) {
+
+            // Position of the current bit
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % this.bitCount;
+            int index = (int)(bit >>> 3);
+
+            this.bits.put(index, (byte)(this.bits.get(index) | (1 << (bit & 7))));
+        }
+    }
+
+    /**
+     * Read a big-endian long from a digest
+     *
+     * @param key SHA-256 digest
+     * @param offset Offset of the long in the digest
+     * @return Long value
+     */
+    private long getLong(byte[] key, int offset) {
+
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (key[i] & 0xff);
+        }
+
+        return value;
+    }
+}
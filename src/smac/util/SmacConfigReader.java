@@ -3,6 +3,8 @@ package smac.util;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -92,7 +94,7 @@ public class SmacConfigReader {
                             smacConfigurationProperties.getProperty("log.level", "ALL"));
 
                     // Generate SMAC input and output queues and rules objects from the configuration file
-                    this.generateSmacConfig(smacConfigurationProperties);
+                    this.generateSmacConfig(smacConfigurationProperties, config);
 
                     // Sort the list of SMAC rules
                     Collections.sort(this.rules);
@@ -148,8 +150,9 @@ public class SmacConfigReader {
      * configuration file
      *
      * @param smacConfigurationProperties SMAC configuration properties
+     * @param config SMAC configuration object which receives the daemon wide settings
      */
-    private void generateSmacConfig(Properties smacConfigurationProperties) {
+    private void generateSmacConfig(Properties smacConfigurationProperties, Config config) {
 
         // Iterate through the list of property keys
         for (Iterator<String> it = smacConfigurationProperties.stringPropertyNames().iterator(); it.hasNext();) {
@@ -200,6 +203,20 @@ public class SmacConfigReader {
                         // Display the error occured while creating the SMAC output queue on terminal
                         System.out.println(e.getMessage());
                     }
+
+                } else {
+
+                    try {
+
+                        // Daemon wide setting for the current configuration file key
+                        this.setDaemonOption(config, currentKey, smacConfigurationProperties.getProperty(currentKey)
+                                .trim());
+
+                    } catch (InvalidConfigurationFileException e) {
+
+                        // Display the error occured while reading the daemon setting on terminal
+                        System.out.println(e.getMessage());
+                    }
                 }
             }
         }
@@ -264,6 +281,20 @@ public class SmacConfigReader {
                         throw new InvalidInputQueueConfigurationException(key, value);
                     }
 
+                } else if (queueKeyDefs[2].equals("deadletter")) {
+
+                    // Check if the value of the dead-letter directory is valid
+                    if (value.length() > 0 && value.startsWith("file://")) {
+
+                        // Set the dead-letter directory of the SMAC queue
+                        inputQueue.setDeadLetterDirectory(value);
+
+                    } else {
+
+                        // Invalid queue key definition
+                        throw new InvalidInputQueueConfigurationException(key, value);
+                    }
+
                 } else {
 
                     // Invalid queue key definition
@@ -289,25 +320,46 @@ public class SmacConfigReader {
     private void getOuputQueue(String key, String value) throws InvalidQueueTypeNameException,
             InvalidOutputQueueConfigurationException {
 
-        // Split the key
-        String[] outputKeyDefs = key.split("\\.");
+        // Split the key into the output queue type and the output queue setting
+        String[] outputKeyDefs = key.split("\\.", 3);
 
         // Check if the output key is valid
-        if (outputKeyDefs.length == 2) {
+        if (outputKeyDefs.length >= 2) {
 
-            // Check the value of the output directory URL
-            if (value.length() > 0 && value.startsWith("file://")) {
+            // Create instance of SMAC output queue for the given queue type
+            OutputQueue outputQueue = new OutputQueue(SmacQueueTypeUtils.getQueueType(outputKeyDefs[1]));
 
-                // Create SMAC output object
-                OutputQueue outputQueue = new OutputQueue(SmacQueueTypeUtils.getQueueType(outputKeyDefs[1]), value);
+            // Check if we have an output queue for the current queue type
+            if (this.outputQueues.contains(outputQueue)) {
+
+                // Get the already created instance of the SMAC output queue
+                outputQueue = this.outputQueues.get(this.outputQueues.indexOf(outputQueue));
+
+            } else {
 
                 // Add output object to list of SMAC output queues
                 this.outputQueues.add(outputQueue);
+            }
+
+            // Check which output queue setting is being defined
+            if (outputKeyDefs.length == 2) {
+
+                // Check the value of the output directory URL
+                if (value.length() > 0 && value.startsWith("file://")) {
+
+                    // Set the directory of the SMAC output queue
+                    outputQueue.setQueueDirectory(value);
+
+                } else {
+
+                    // Invalid output key definition
+                    throw new InvalidOutputQueueConfigurationException(key, value);
+                }
 
             } else {
 
-                // Invalid output key definition
-                throw new InvalidOutputQueueConfigurationException(key, value);
+                // Output queue setting
+                this.setOutputQueueOption(outputQueue, key, outputKeyDefs[2], value.trim());
             }
 
         } else {
@@ -391,4 +443,434 @@ public class SmacConfigReader {
             throw new InvalidRuleDefinitionException("The rule key " + key + " does not appear to be valid.");
         }
     }
+
+    /**
+     * Parse a daemon wide setting
+     *
+     * @param config SMAC configuration object being configured
+     * @param key Configuration key
+     * @param value Configuration value
+     * @throws InvalidConfigurationFileException
+     */
+    private void setDaemonOption(Config config, String key, String value) throws InvalidConfigurationFileException {
+
+        try {
+
+            // Check the daemon setting
+            switch (key) {
+
+                case "alloc.accounting":
+
+                    // Whether the heap memory allocated by each routing task is accounted for
+                    switch (value.toLowerCase()) {
+
+                        case "true":
+                            config.setAllocationAccountingEnabled(true);
+                            break;
+
+                        case "false":
+                            config.setAllocationAccountingEnabled(false);
+                            break;
+
+                        default:
+                            throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    break;
+
+                case "dedup.uri":
+
+                    // Directory in which the duplicate suppression state is persisted
+                    if (!value.startsWith("file://")) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setDeduplicationDirectory(value);
+
+                    break;
+
+                case "dedup.capacity":
+
+                    // Number of delivered messages for which the Bloom filter is sized
+                    config.setDeduplicationCapacity(this.parsePositiveLong(value));
+
+                    break;
+
+                case "http.address":
+
+                    // Address on which the monitoring HTTP endpoint listens
+                    config.setHttpAddress(value);
+
+                    break;
+
+                case "http.port":
+
+                    // Port on which the monitoring HTTP endpoint listens, 0 disabling the endpoint
+                    int httpPort = Integer.parseInt(value, 10);
+                    if (httpPort < 0 || httpPort > 65535) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setHttpPort(httpPort);
+
+                    break;
+
+                case "log.buffer":
+
+                    // Size of the log ring buffer
+                    config.setLogBufferSize((int)this.parsePositiveLong(value));
+
+                    break;
+
+                case "log.overflow":
+
+                    // Policy applied to log records which do not fit in the log ring buffer
+                    switch (value.toLowerCase()) {
+
+                        case "block":
+                            config.setLogOverflowPolicy(SmacLogOverflowPolicy.BLOCK);
+                            break;
+
+                        case "drop_finest":
+                            config.setLogOverflowPolicy(SmacLogOverflowPolicy.DROP_FINEST);
+                            break;
+
+                        case "drop":
+                            config.setLogOverflowPolicy(SmacLogOverflowPolicy.DROP);
+                            break;
+
+                        default:
+                            throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    break;
+
+                case "log.rotate.compress":
+
+                    // Whether rotated log files are compressed with gzip
+                    switch (value.toLowerCase()) {
+
+                        case "true":
+                            config.setLogRotateCompress(true);
+                            break;
+
+                        case "false":
+                            config.setLogRotateCompress(false);
+                            break;
+
+                        default:
+                            throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    break;
+
+                case "log.rotate.interval":
+
+                    // Maximum age of the log file in milliseconds
+                    config.setLogRotateInterval(this.parsePositiveLong(value));
+
+                    break;
+
+                case "log.rotate.keep":
+
+                    // Number of rotated log files kept, 0 keeping all of them
+                    int logRotateKeep = Integer.parseInt(value, 10);
+                    if (logRotateKeep < 0) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setLogRotateKeep(logRotateKeep);
+
+                    break;
+
+                case "log.rotate.size":
+
+                    // Maximum size of the log file in bytes
+                    config.setLogRotateSize(this.parsePositiveLong(value));
+
+                    break;
+
+                case "log.syslog":
+
+                    // Syslog server to which log records are sent
+                    try {
+
+                        URI syslogUri = new URI(value);
+                        if (!("udp".equals(syslogUri.getScheme()) || "tcp".equals(syslogUri.getScheme())) ||
+                                syslogUri.getHost() == null) {
+                            throw new InvalidConfigurationFileException(key, value);
+                        }
+
+                    } catch (URISyntaxException e) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setSyslogUri(value);
+
+                    break;
+
+                case "log.syslog.facility":
+
+                    // Syslog facility code of the SMAC daemon messages
+                    int syslogFacility = Integer.parseInt(value, 10);
+                    if (syslogFacility < 0 || syslogFacility > 23) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setSyslogFacility(syslogFacility);
+
+                    break;
+
+                case "log.syslog.queue":
+
+                    // Number of log records which can wait to be sent to the syslog server
+                    config.setSyslogQueueSize((int)this.parsePositiveLong(value));
+
+                    break;
+
+                case "log.throttle.keys":
+
+                    // Maximum number of keys of similar log messages which are throttled
+                    config.setLogThrottleKeys((int)this.parsePositiveLong(value));
+
+                    break;
+
+                case "log.throttle.window":
+
+                    // Time window in milliseconds within which similar log messages are suppressed
+                    config.setLogThrottleWindow(this.parsePositiveLong(value));
+
+                    break;
+
+                case "retry.attempts":
+
+                    // Maximum number of retries of a routing task, 0 disabling retries
+                    int retryAttempts = Integer.parseInt(value, 10);
+                    if (retryAttempts < 0) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setRetryAttempts(retryAttempts);
+
+                    break;
+
+                case "retry.delay":
+
+                    // Initial retry delay in milliseconds
+                    config.setRetryDelay(this.parsePositiveLong(value));
+
+                    break;
+
+                case "retry.delay.max":
+
+                    // Maximum retry delay in milliseconds
+                    config.setRetryMaxDelay(this.parsePositiveLong(value));
+
+                    break;
+
+                case "retry.inflight":
+
+                    // Maximum number of retries in flight
+                    config.setRetryMaxInFlight((int)this.parsePositiveLong(value));
+
+                    break;
+
+                case "retry.inflight.queue":
+
+                    // Maximum number of retries in flight per output queue
+                    config.setRetryMaxInFlightPerQueue((int)this.parsePositiveLong(value));
+
+                    break;
+
+                case "trace.out":
+
+                    // File to which the sampled routing task traces are written
+                    if (!value.startsWith("file://")) {
+                        throw new InvalidConfigurationFileException(key, value);
+                    }
+
+                    config.setTraceFilename(value);
+
+                    break;
+
+                case "trace.sample":
+
+                    // Number of completed routing tasks out of which one is traced
+                    config.setTraceSample((int)this.parsePositiveLong(value));
+
+                    break;
+
+                default:
+
+                    // Keys which are not known to the SMAC daemon are ignored
+            }
+
+        } catch (NumberFormatException e) {
+
+            // Invalid numeric daemon setting
+            throw new InvalidConfigurationFileException(key, value);
+        }
+    }
+
+    /**
+     * Parse an optional output queue setting
+     *
+     * @param outputQueue SMAC output queue being configured
+     * @param key SMAC output queue key
+     * @param option Name of the output queue setting
+     * @param value Value of the output queue setting
+     * @throws InvalidOutputQueueConfigurationException
+     */
+    private void setOutputQueueOption(OutputQueue outputQueue, String key, String option, String value)
+            throws InvalidOutputQueueConfigurationException {
+
+        try {
+
+            // Check the output queue setting
+            switch (option) {
+
+                case "durability":
+
+                    // Durability mode of the output queue
+                    switch (value.toLowerCase()) {
+
+                        case "none":
+                            outputQueue.setDurabilityMode(SmacDurabilityMode.NONE);
+                            break;
+
+                        case "group":
+                            outputQueue.setDurabilityMode(SmacDurabilityMode.GROUP);
+                            break;
+
+                        case "strict":
+                            outputQueue.setDurabilityMode(SmacDurabilityMode.STRICT);
+                            break;
+
+                        default:
+                            throw new InvalidOutputQueueConfigurationException(key, value);
+                    }
+
+                    break;
+
+                case "mode":
+
+                    // Output mode of the output queue
+                    switch (value.toLowerCase()) {
+
+                        case "file":
+                            outputQueue.setOutputMode(SmacOutputMode.FILE);
+                            break;
+
+                        case "segment":
+                            outputQueue.setOutputMode(SmacOutputMode.SEGMENT);
+                            break;
+
+                        case "zip":
+                            outputQueue.setOutputMode(SmacOutputMode.ZIP);
+                            break;
+
+                        case "tar":
+                            outputQueue.setOutputMode(SmacOutputMode.TAR);
+                            break;
+
+                        default:
+                            throw new InvalidOutputQueueConfigurationException(key, value);
+                    }
+
+                    break;
+
+                case "archive.interval":
+
+                    // Maximum age of an archive in milliseconds
+                    outputQueue.setArchiveInterval(this.parsePositiveLong(value));
+
+                    break;
+
+                case "archive.size":
+
+                    // Maximum size of the content of an archive in bytes
+                    outputQueue.setArchiveSize(this.parsePositiveLong(value));
+
+                    break;
+
+                case "segment.size":
+
+                    // Maximum size of a segment in bytes
+                    outputQueue.setSegmentSize(this.parsePositiveLong(value));
+
+                    break;
+
+                case "shard":
+
+                    // Sharding scheme of the output queue directory
+                    switch (value.toLowerCase()) {
+
+                        case "none":
+                            outputQueue.setShardType(SmacShardType.NONE);
+                            break;
+
+                        case "day":
+                            outputQueue.setShardType(SmacShardType.DAY);
+                            break;
+
+                        case "hour":
+                            outputQueue.setShardType(SmacShardType.HOUR);
+                            break;
+
+                        case "hash":
+                            outputQueue.setShardType(SmacShardType.HASH);
+                            break;
+
+                        default:
+                            throw new InvalidOutputQueueConfigurationException(key, value);
+                    }
+
+                    break;
+
+                case "durability.interval":
+
+                    // Maximum group commit delay in milliseconds
+                    outputQueue.setGroupCommitInterval(this.parsePositiveLong(value));
+
+                    break;
+
+                case "durability.batch":
+
+                    // Maximum number of messages in a group commit
+                    outputQueue.setGroupCommitSize((int)this.parsePositiveLong(value));
+
+                    break;
+
+                default:
+
+                    // Unknown output queue setting
+                    throw new InvalidOutputQueueConfigurationException(key);
+            }
+
+        } catch (NumberFormatException e) {
+
+            // Invalid numeric output queue setting
+            throw new InvalidOutputQueueConfigurationException(key, value);
+        }
+    }
+
+    /**
+     * Parse a strictly positive numeric configuration value
+     *
+     * @param value Configuration value
+     * @return Parsed configuration value
+     * @throws NumberFormatException
+     */
+    private long parsePositiveLong(String value) throws NumberFormatException {
+
+        // Parse the configuration value
+        long number = Long.parseLong(value, 10);
+
+        // Check that the value is strictly positive
+        if (number <= 0) {
+            throw new NumberFormatException("The value " + value + " is not strictly positive.");
+        }
+
+        return number;
+    }
 }
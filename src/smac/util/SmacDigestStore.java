@@ -0,0 +1,517 @@
+package smac.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SmacDigestStore keeps the SHA-256 digests of the delivered messages on disk in two generations, each made of a hash
+ * table file NNNNNNNNNNNNNNNNNNNN.keys and of a Bloom filter NNNNNNNNNNNNNNNNNNNN.bloom. A generation holds at most
+ * half of the capacity of the store; once the current generation is full, the previous one is deleted and a new one
+ * is started, so that the store retains between half and all of its capacity of the most recent digests.
+ *
+ * The hash table file starts with a header made of a magic number (long), the number of slots (long) and the number of
+ * digests (long), followed by 32 byte slots which are empty when zero filled. Digests are placed by linear probing and
+ * the table is never more than half full, so that a lookup reads a single block in most cases.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacDigestStore {
+
+    // Digest store constants
+    public static final String FILTER_SUFFIX = ".bloom";
+    public static final String TABLE_SUFFIX = ".keys";
+    private static final int DIGEST_SIZE = 32;
+    private static final int HEADER_SIZE = 32;
+    private static final long MAGIC = 0x534d414348534831L;
+    private static final int PROBE_SLOTS = 8;
+    private static final int SCAN_SLOTS = 2048;
+
+    // Class attributes
+    private final long capacity;
+    private Generation current;
+    private final Path directory;
+    private final ReadWriteLock generationLock;
+    private Generation previous;
+    private long rebuiltDigests;
+
+    /**
+     * SmacDigestStore constructor which opens the two latest generations of the store, deletes the older ones and
+     * rebuilds the Bloom filters which are missing or were sized for another capacity
+     *
+     * @param directory Directory of the generation files
+     * @param capacity Maximum number of digests retained by the store
+     * @throws IOException
+     */
+    public SmacDigestStore(Path directory, long capacity) throws IOException {
+
+        // Initialise class attributes
+        this.capacity = capacity;
+        this.directory = directory;
+        this.generationLock = new ReentrantReadWriteLock();
+        this.rebuiltDigests = -1;
+
+        // Create the directory of the generation files if required
+        Files.createDirectories(directory);
+
+        // Sequence numbers of the existing generations
+        ArrayList<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> tables = Files.newDirectoryStream(directory, "*" + TABLE_SUFFIX)) {
+            for (Path table : tables) {
+
+                String name = table.getFileName().toString();
+
+                try {
+                    sequences.add(Long.parseLong(name.substring(0, name.length() - TABLE_SUFFIX.length()), 10));
+                } catch (NumberFormatException e) {
+                    // Not a generation of the digest store
+                }
+            }
+        }
+
+        Collections.sort(sequences);
+
+        // Only the two latest generations are retained
+        for (int i = 0; i < sequences.size() - 2; i++) {
+            this.deleteGeneration(sequences.get(i));
+        }
+
+        if (sequences.size() >= 2) {
+            this.previous = this.openGeneration(sequences.get(sequences.size() - 2));
+        }
+
+        this.current = this.openGeneration(sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1));
+    }
+
+    /**
+     * Add a digest to the current generation and start a new generation when the current one is full. Digests are
+     * added by a single thread at a time while they may be looked up concurrently.
+     *
+     * @param digest SHA-256 digest
+     * @throws IOException
+     */
+    public synchronized void add(byte[] digest) throws IOException {
+
+        // Start a new generation when the current one is full
+        if (this.current.count >= this.current.slotCount / 2 || !this.current.insert(digest)) {
+
+            this.rotate();
+            this.current.insert(digest);
+        }
+
+        this.current.filter.put(digest);
+    }
+
+    /**
+     * Close the generation files
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+
+        this.generationLock.writeLock().lock();
+        try {
+
+            this.current.close();
+
+            if (this.previous != null) {
+                this.previous.close();
+            }
+
+        } finally {
+            this.generationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether a digest has been recorded in one of the retained generations
+     *
+     * @param digest SHA-256 digest
+     * @return Whether the digest is present in the hash table of a retained generation
+     * @throws IOException
+     */
+    public boolean contains(byte[] digest) throws IOException {
+
+        this.generationLock.readLock().lock();
+        try {
+            return this.current.find(digest) || (this.previous != null && this.previous.find(digest));
+        } finally {
+            this.generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Force the Bloom filters of the retained generations to be written to disk
+     */
+    public void force() {
+
+        this.generationLock.readLock().lock();
+        try {
+
+            this.current.filter.force();
+
+            if (this.previous != null) {
+                this.previous.filter.force();
+            }
+
+        } finally {
+            this.generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of digests which were added back to Bloom filters rebuilt when the store was opened
+     *
+     * @return Number of digests added back to the rebuilt Bloom filters or -1 if no filter had to be rebuilt
+     */
+    public long getRebuiltDigests() {
+        return this.rebuiltDigests;
+    }
+
+    /**
+     * Check whether a digest may have been recorded in one of the retained generations without reading their hash
+     * tables
+     *
+     * @param digest SHA-256 digest
+     * @return False if the digest has not been recorded, true if it may have been recorded
+     */
+    public boolean mightContain(byte[] digest) {
+
+        this.generationLock.readLock().lock();
+        try {
+            return this.current.filter.mightContain(digest) ||
+                    (this.previous != null && this.previous.filter.mightContain(digest));
+        } finally {
+            this.generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Delete the files of a generation
+     *
+     * @param sequence Sequence number of the generation
+     * @throws IOException
+     */
+    private void deleteGeneration(long sequence) throws IOException {
+        Files.deleteIfExists(this.getGenerationFile(sequence, TABLE_SUFFIX));
+        Files.deleteIfExists(this.getGenerationFile(sequence, FILTER_SUFFIX));
+    }
+
+    /**
+     * Get the path of the hash table or of the Bloom filter of a generation
+     *
+     * @param sequence Sequence number of the generation
+     * @param suffix File name suffix of the hash table or of the Bloom filter
+     * @return Path of the hash table or of the Bloom filter
+     */
+    private Path getGenerationFile(long sequence, String suffix) {
+        return this.directory.resolve(String.format("%020d", sequence) + suffix);
+    }
+
+    /**
+     * Open a generation, create it if required and rebuild its Bloom filter from its hash table if required
+     *
+     * @param sequence Sequence number of the generation
+     * @return Opened generation
+     * @throws IOException
+     */
+    private Generation openGeneration(long sequence) throws IOException {
+
+        // Each generation holds half of the capacity of the store in a hash table which is at most half full
+        long generationCapacity = Math.max(1, (this.capacity + 1) / 2);
+
+        Generation generation = new Generation(sequence, this.getGenerationFile(sequence, TABLE_SUFFIX),
+                2 * generationCapacity + PROBE_SLOTS, new SmacBloomFilter(this.getGenerationFile(sequence,
+                FILTER_SUFFIX), this.capacity));
+
+        // Add the digests of the hash table to a Bloom filter which was created empty
+        if (generation.filter.isCreated() && generation.count > 0) {
+
+            this.rebuiltDigests = Math.max(this.rebuiltDigests, 0) + generation.rebuildFilter();
+            generation.filter.force();
+        }
+
+        return generation;
+    }
+
+    /**
+     * Delete the previous generation and start a new one
+     *
+     * @throws IOException
+     */
+    private void rotate() throws IOException {
+
+        // New generation which becomes the current one
+        Generation generation = this.openGeneration(this.current.sequence + 1);
+
+        // Digests which are being looked up must not see the generations being swapped
+        Generation discarded;
+        this.generationLock.writeLock().lock();
+        try {
+
+            discarded = this.previous;
+            this.previous = this.current;
+            this.current = generation;
+
+        } finally {
+            this.generationLock.writeLock().unlock();
+        }
+
+        // The filter of the previous generation is written to disk before it stops receiving digests
+        this.previous.filter.force();
+
+        if (discarded != null) {
+
+            discarded.close();
+
+            try {
+                this.deleteGeneration(discarded.sequence);
+            } catch (IOException e) {
+                // A generation which cannot be deleted yet is deleted when the digest store is opened again
+            }
+        }
+    }
+
+    /**
+     * Generation holds the hash table and the Bloom filter of a generation of the digest store.
+     */
+    private static class Generation {
+
+        // Class attributes
+        private final FileChannel channel;
+        private long count;
+        private final SmacBloomFilter filter;
+        private final ByteBuffer header;
+        private final long sequence;
+        private final long slotCount;
+
+        /**
+         * Generation constructor which opens the hash table of the generation or creates it when it does not exist
+         *
+         * @param sequence Sequence number of the generation
+         * @param file Path of the hash table
+         * @param slotCount Number of slots of the hash table when it is created
+         * @param filter Bloom filter of the generation
+         * @throws IOException
+         */
+        private Generation(long sequence, Path file, long slotCount, SmacBloomFilter filter) throws IOException {
+
+            // Initialise class attributes
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.filter = filter;
+            this.header = ByteBuffer.allocate(HEADER_SIZE);
+            this.sequence = sequence;
+
+            // Read the header of an existing hash table
+            if (this.channel.size() >= HEADER_SIZE) {
+
+                readFully(this.channel, this.header, 0);
+
+                if (this.header.getLong(0) != MAGIC || this.header.getLong(8) <= 0 ||
+                        this.channel.size() > HEADER_SIZE + this.header.getLong(8) * DIGEST_SIZE) {
+                    throw new IOException("The digest table " + file + " is corrupted.");
+                }
+
+                this.slotCount = this.header.getLong(8);
+                this.count = this.header.getLong(16);
+
+            } else {
+
+                // Start an empty hash table whose zero filled slots are allocated as they are written
+                this.slotCount = slotCount;
+                this.count = 0;
+
+                this.header.clear();
+                this.header.putLong(MAGIC).putLong(slotCount).putLong(0).putLong(0).flip();
+                writeFully(this.channel, this.header, 0);
+            }
+        }
+
+        /**
+         * Close the hash table
+         *
+         * @throws IOException
+         */
+        private void close() throws IOException {
+            this.channel.close();
+        }
+
+        /**
+         * Look for a digest in the hash table
+         *
+         * @param digest SHA-256 digest
+         * @return Whether the digest is present in the hash table
+         * @throws IOException
+         */
+        private boolean find(byte[] digest) throws IOException {
+            return this.probe(digest, false);
+        }
+
+        /**
+         * Insert a digest in the first empty slot of its probe sequence unless it is already present
+         *
+         * @param digest SHA-256 digest
+         * @return Whether the digest is present in the hash table, false if the hash table is full
+         * @throws IOException
+         */
+        private boolean insert(byte[] digest) throws IOException {
+            return this.probe(digest, true);
+        }
+
+        /**
+         * Walk the probe sequence of a digest, reading several slots at once, until the digest or an empty slot is
+         * found, and write the digest to the empty slot if required
+         *
+         * @param digest SHA-256 digest
+         * @param insert Whether the digest must be written to the empty slot which ends its probe sequence
+         * @return Whether the digest is or has been stored in the hash table
+         * @throws IOException
+         */
+        private boolean probe(byte[] digest, boolean insert) throws IOException {
+
+            // The first slot is derived from digest bytes which are not used by the Bloom filter
+            long slot = (ByteBuffer.wrap(digest, 16, 8).getLong() & Long.MAX_VALUE) % this.slotCount;
+
+            // Slots read at once, which lookups running concurrently do not share
+            ByteBuffer block = ByteBuffer.allocate(PROBE_SLOTS * DIGEST_SIZE);
+
+            for (long probed = 0; probed < this.slotCount;) {
+
+                // Read the following slots up to the end of the hash table
+                int slots = (int)Math.min(PROBE_SLOTS, this.slotCount - slot);
+                block.clear();
+                block.limit(slots * DIGEST_SIZE);
+                readFully(this.channel, block, HEADER_SIZE + slot * DIGEST_SIZE);
+
+                for (int i = 0; i < slots && probed < this.slotCount; i++, probed++) {
+
+                    // Compare the slot with the digest
+                    boolean empty = true;
+                    boolean equal = true;
+                    for (int j = 0; j < DIGEST_SIZE; j++) {
+
+                        byte b = block.get(i * DIGEST_SIZE + j);
+                        empty &= b == 0;
+                        equal &= b == digest[j];
+                    }
+
+                    if (equal) {
+                        return true;
+                    }
+
+                    if (empty) {
+
+                        if (!insert) {
+                            return false;
+                        }
+
+                        // Write the digest to the empty slot and record it in the header
+                        writeFully(this.channel, ByteBuffer.wrap(digest, 0, DIGEST_SIZE),
+                                HEADER_SIZE + (slot + i) * DIGEST_SIZE);
+
+                        this.count++;
+                        this.header.clear();
+                        this.header.putLong(16, this.count);
+                        this.header.position(16).limit(24);
+                        writeFully(this.channel, this.header, 16);
+
+                        return true;
+                    }
+                }
+
+                // Wrap around at the end of the hash table
+                slot = (slot + slots) % this.slotCount;
+            }
+
+            return false;
+        }
+
+        /**
+         * Add every digest of the hash table to the Bloom filter
+         *
+         * @return Number of digests added to the Bloom filter
+         * @throws IOException
+         */
+        private long rebuildFilter() throws IOException {
+
+            // Digests added to the Bloom filter
+            long added = 0;
+
+            // Read the hash table by blocks of slots
+            ByteBuffer block = ByteBuffer.allocate(SCAN_SLOTS * DIGEST_SIZE);
+            byte[] digest = new byte[DIGEST_SIZE];
+            long size = this.channel.size();
+
+            for (long position = HEADER_SIZE; position < size; position += block.limit()) {
+
+                block.clear();
+                block.limit((int)Math.min(block.capacity(), size - position));
+                readFully(this.channel, block, position);
+                block.flip();
+
+                while (block.remaining() >= DIGEST_SIZE) {
+
+                    block.get(digest);
+
+                    // Skip the empty slots
+                    for (byte b : digest) {
+                        if (b != 0) {
+                            this.filter.put(digest);
+                            added++;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            return added;
+        }
+    }
+
+    /**
+     * Fill a buffer from a file channel, zero filling the part of the buffer which lies beyond the end of the file
+     *
+     * @param channel File channel
+     * @param buffer Buffer to fill
+     * @param position Position in the file of the first byte read
+     * @throws IOException
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        // Slots which have never been written lie beyond the end of the file
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                while (buffer.hasRemaining()) {
+                    buffer.put((byte)0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a buffer at the given position of a file channel
+     *
+     * @param channel File channel
+     * @param buffer Buffer to write
+     * @param position Position in the file of the first byte written
+     * @throws IOException
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        // Write until the buffer has been fully written
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+}
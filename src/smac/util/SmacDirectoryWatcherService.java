@@ -74,9 +74,15 @@ public class SmacDirectoryWatcherService implements Runnable {
                 // Log errors
                 Smac.logController.log(Level.SEVERE, SmacDirectoryWatcherService.class.getSimpleName(), e.getMessage());
 
-                return;
+                break;
             }
 
+            // Files of the batch of events dispatched to the process queue
+            Object dispatchEvent = SmacFlightRecorder.begin(SmacFlightEvent.DISPATCH);
+            int dispatchCount = 0;
+            long dispatchSize = 0;
+            String dispatchOutcome = SmacFlightRecorder.OUTCOME_SUCCESS;
+
             // Poll all events queued for the key
             for (WatchEvent<?> event: key.pollEvents()) {
 
@@ -85,6 +91,7 @@ public class SmacDirectoryWatcherService implements Runnable {
 
                 // An OVERFLOW event can occur even if this kind of event has not been registered with the service
                 if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    dispatchOutcome = SmacFlightRecorder.OUTCOME_OVERFLOW;
                     continue;
                 }
 
@@ -100,18 +107,30 @@ public class SmacDirectoryWatcherService implements Runnable {
                 // SEPAmail message container file
                 if (file.isFile() && file.getAbsolutePath().endsWith(".eml")) {
 
+                    // Time at which the SEPAmail message was noticed
+                    long watchTime = System.nanoTime();
+
                     try {
 
                         // Create a SMAC daemon routing task instance for the file
                         RoutingTask smacRoutingTask = new RoutingTask(file, this.smacQueue.getQueueType());
+                        smacRoutingTask.setTimestamp(SmacTraceStage.WATCH, watchTime);
 
                         // Add the task to the process queue
+                        smacRoutingTask.setTimestamp(SmacTraceStage.ENQUEUE, System.nanoTime());
                         this.processQueue.offer(smacRoutingTask);
+                        Smac.monitoringController.getInputQueueStatistics(this.smacQueue.getQueueType())
+                                .incrementEnqueued();
+
+                        dispatchCount++;
+                        if (dispatchEvent != null) {
+                            dispatchSize += file.length();
+                        }
 
                         // Indicate that the new message was added to the process queue
                         Smac.logController.log(Level.INFO, SmacDirectoryWatcherService.class.getSimpleName(),
-                                "The file " + smacRoutingTask.getEmlFile().getAbsolutePath() + " was added to the " +
-                                SmacQueueTypeUtils.getQueueTypeName(this.smacQueue.getQueueType()) + " queue.");
+                                "The file {0} was added to the {1} queue.", smacRoutingTask.getEmlFile(),
+                                this.smacQueue.getQueueType());
 
                     } catch (IOException e) {
 
@@ -126,6 +145,9 @@ public class SmacDirectoryWatcherService implements Runnable {
                 }
             }
 
+            SmacFlightRecorder.commit(dispatchEvent, this.smacQueue.getQueueType(), dispatchSize, dispatchCount,
+                    dispatchOutcome);
+
             // Reset the key to receive further watch events
             boolean valid = key.reset();
 
@@ -134,5 +156,8 @@ public class SmacDirectoryWatcherService implements Runnable {
                 break;
             }
         }
+
+        // The input queue directory is no longer watched
+        Smac.monitoringController.getInputQueueStatistics(this.smacQueue.getQueueType()).setWatching(false);
     }
 }
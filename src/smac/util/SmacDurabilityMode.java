@@ -0,0 +1,26 @@
+package smac.util;
+
+/**
+ * SmacDurabilityMode defines how the SMAC daemon makes the delivery of a SEPAmail message to an output queue durable
+ * before the message is acknowledged.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacDurabilityMode {
+
+    /**
+     * Messages are acknowledged as soon as they have been moved and are never synced to disk
+     */
+    NONE,
+
+    /**
+     * The output directories of a batch of moved messages are synced together before the batch is acknowledged
+     */
+    GROUP,
+
+    /**
+     * Every moved message and its output directory are synced before the message is acknowledged
+     */
+    STRICT
+}
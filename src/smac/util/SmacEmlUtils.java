@@ -3,6 +3,7 @@ package smac.util;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 import javax.mail.MessagingException;
@@ -19,7 +20,7 @@ import javax.mail.internet.MimeMessage;
 public class SmacEmlUtils {
 
     /**
-     * Load an EML file and parse it as a MimeMessage object
+     * Load an EML file and parse it as a MimeMessage object. The EML file is closed once it has been read.
      *
      * @param file EML file containing SEPAmail message
      * @return MimeMessage object containing the parsed EML file
@@ -28,6 +29,34 @@ public class SmacEmlUtils {
      */
     public static MimeMessage loadEml(File file) throws FileNotFoundException, MessagingException {
 
+        // Create input stream
+        InputStream source = new FileInputStream(file);
+
+        try {
+
+            // Load EML file as a MIME message, which reads the whole input stream
+            return loadEml(source);
+
+        } finally {
+
+            // Release the file descriptor instead of waiting for the input stream to be garbage collected
+            try {
+                source.close();
+            } catch (IOException e) {
+                // The EML file has already been read
+            }
+        }
+    }
+
+    /**
+     * Parse the content of an EML container read from the given stream as a MimeMessage object
+     *
+     * @param source Input stream from which the SEPAmail message container is read
+     * @return MimeMessage object containing the parsed EML content
+     * @throws MessagingException
+     */
+    public static MimeMessage loadEml(InputStream source) throws MessagingException {
+
         // System properties
         Properties properties = System.getProperties();
 
@@ -37,10 +66,7 @@ public class SmacEmlUtils {
         // Mail session instance
         Session mailSession = Session.getDefaultInstance(properties, null);
 
-        // Create input stream
-        InputStream source = new FileInputStream(file);
-
-        // Load EML file as a MIME message
+        // Load EML content as a MIME message
         return new MimeMessage(mailSession, source);
     }
 }
@@ -1,6 +1,12 @@
 package smac.util;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * SmacFileUtils is a class which groups static methods pertaining to file operations used throughout the SMAC daemon.
@@ -10,29 +16,87 @@ import java.io.File;
  */
 public class SmacFileUtils {
 
+    // Suffix of the temporary file used while copying a file across file systems
+    public static final String PARTIAL_FILE_SUFFIX = ".part";
+
     /**
-     * Move a given file defined by its path and name to a target folder
+     * Move a given file to a target folder. The file is atomically renamed into the target folder and, when the target
+     * folder is on another file system, copied to a temporary name, synced and renamed into place. The source file of
+     * a copy is left in place and must be deleted by the caller once the target folder has been synced.
      *
-     * @param filename Path and name of file that needs to be moved
+     * @param source Path of the file that needs to be moved
      * @param destinationFolder Path of destination folder
+     * @return Path of the moved file in the destination folder
+     * @throws IOException
      */
-    public static void moveFile(String filename, String destinationFolder) {
+    public static Path moveFile(Path source, Path destinationFolder) throws IOException {
+
+        // Path of the file in its destination folder
+        Path target = destinationFolder.resolve(source.getFileName());
+
+        try {
 
-        // File that needs to be moved
-        File targetFile = new File(filename);
+            // Rename the file into its destination folder
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (AtomicMoveNotSupportedException e) {
+
+            // The destination folder is on another file system
+            copyAcrossFileSystems(source, target);
+        }
 
-        // Destination folder
-        File destination = new File(destinationFolder);
+        return target;
+    }
 
-        // Check if the destination folder exists
-        if (destination.exists()) {
+    /**
+     * Force the content and metadata of a file or the entries of a directory to be written to disk
+     *
+     * @param path Path of the file or directory that needs to be synced
+     * @throws IOException
+     */
+    public static void sync(Path path) throws IOException {
 
-            // Check if the destination is a folder
-            if (destination.isDirectory()) {
+        // Directories can only be opened for reading
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
 
-                // Move the file to its destination folder
-                targetFile.renameTo(new File(destination, targetFile.getName()));
+    /**
+     * Copy a file to another file system under a temporary name, sync its content and rename it into place
+     *
+     * @param source Path of the file that needs to be moved
+     * @param target Path of the file in its destination folder
+     * @throws IOException
+     */
+    private static void copyAcrossFileSystems(Path source, Path target) throws IOException {
+
+        // Temporary file which is not picked up by consumers polling for EML files
+        Path partialFile = target.resolveSibling(target.getFileName() + PARTIAL_FILE_SUFFIX);
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(partialFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            // Copy the file content using zero-copy transfers
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
             }
+
+            // Make sure the content has reached the disk before it becomes visible under its final name
+            out.force(true);
+
+        } catch (IOException e) {
+
+            // Remove the incomplete copy
+            Files.deleteIfExists(partialFile);
+
+            throw e;
         }
+
+        // Rename the complete copy into place
+        Files.move(partialFile, target, StandardCopyOption.ATOMIC_MOVE);
     }
 }
@@ -0,0 +1,40 @@
+package smac.util;
+
+/**
+ * SmacFlightEvent defines the routing operations of the SMAC daemon which are recorded as JDK Flight Recorder events.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacFlightEvent {
+
+    /**
+     * A SEPAmail message container file is read and parsed
+     */
+    PARSE,
+
+    /**
+     * The routing rules are evaluated to determine the output queue of a SEPAmail message
+     */
+    RULE,
+
+    /**
+     * A SEPAmail message is handed over to its output queue
+     */
+    MOVE,
+
+    /**
+     * The lock file of a SEPAmail message is created
+     */
+    LOCK_CREATE,
+
+    /**
+     * The lock file of a SEPAmail message is deleted
+     */
+    LOCK_DELETE,
+
+    /**
+     * A batch of directory watch events is dispatched to the process queue
+     */
+    DISPATCH
+}
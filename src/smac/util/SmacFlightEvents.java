@@ -0,0 +1,173 @@
+package smac.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * SmacFlightEvents holds the JDK Flight Recorder event classes of the SMAC daemon. This class refers to the jdk.jfr
+ * module and is only loaded by the flight recorder facade once it has checked that the JDK Flight Recorder is
+ * available. It is left out of builds made with a JDK which does not provide the jdk.jfr module.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+final class SmacFlightEvents implements SmacFlightRecorder.Events {
+
+    /**
+     * SmacFlightEvents constructor
+     */
+    SmacFlightEvents() {
+    }
+
+    /**
+     * Create and begin an event if its type is enabled in a recording
+     *
+     * @param type Routing operation
+     * @return Event which has begun or null if the event type is not enabled
+     */
+    @Override
+    public Object begin(SmacFlightEvent type) {
+
+        // Event of the routing operation
+        RoutingEvent event;
+
+        switch (type) {
+
+            case PARSE:
+                event = new ParseEvent();
+                break;
+
+            case RULE:
+                event = new RuleEvent();
+                break;
+
+            case MOVE:
+                event = new MoveEvent();
+                break;
+
+            case LOCK_CREATE:
+                event = new LockCreateEvent();
+                break;
+
+            case LOCK_DELETE:
+                event = new LockDeleteEvent();
+                break;
+
+            default:
+                event = new DispatchEvent();
+        }
+
+        // Nothing is measured while no recording has enabled the event type
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+
+        return event;
+    }
+
+    /**
+     * End an event and commit it if it is recorded
+     *
+     * @param event Event which has begun
+     * @param queueType SMAC queue type of the routing operation
+     * @param fileSize Size in bytes of the files involved in the routing operation
+     * @param count Number of files involved in the routing operation
+     * @param outcome Outcome of the routing operation
+     */
+    @Override
+    public void commit(Object event, SmacQueueType queueType, long fileSize, int count, String outcome) {
+
+        // Event of the routing operation
+        RoutingEvent routingEvent = (RoutingEvent)event;
+
+        routingEvent.end();
+
+        if (routingEvent.shouldCommit()) {
+
+            routingEvent.queue = queueType != null ? SmacQueueTypeUtils.getQueueTypeName(queueType) : null;
+            routingEvent.fileSize = fileSize;
+            routingEvent.count = count;
+            routingEvent.outcome = outcome;
+            routingEvent.commit();
+        }
+    }
+
+    /**
+     * RoutingEvent defines the fields shared by the routing events.
+     */
+    @Category({"SMAC", "Routing"})
+    abstract static class RoutingEvent extends Event {
+
+        // Event fields
+        @Label("Queue")
+        @Description("SMAC queue of the routing operation")
+        String queue;
+
+        @Label("File Size")
+        @Description("Size of the files involved in the routing operation")
+        @DataAmount
+        long fileSize;
+
+        @Label("File Count")
+        @Description("Number of files involved in the routing operation")
+        int count;
+
+        @Label("Outcome")
+        @Description("Outcome of the routing operation")
+        String outcome;
+    }
+
+    /**
+     * ParseEvent is recorded when a SEPAmail message container file is read and parsed.
+     */
+    @Name("smac.Parse")
+    @Label("Message Parse")
+    static class ParseEvent extends RoutingEvent {
+    }
+
+    /**
+     * RuleEvent is recorded when the routing rules are evaluated for a SEPAmail message.
+     */
+    @Name("smac.RuleEvaluation")
+    @Label("Rule Evaluation")
+    static class RuleEvent extends RoutingEvent {
+    }
+
+    /**
+     * MoveEvent is recorded when a SEPAmail message is handed over to its output queue.
+     */
+    @Name("smac.OutputMove")
+    @Label("Output Move")
+    static class MoveEvent extends RoutingEvent {
+    }
+
+    /**
+     * LockCreateEvent is recorded when the lock file of a SEPAmail message is created.
+     */
+    @Name("smac.LockCreate")
+    @Label("Lock Create")
+    static class LockCreateEvent extends RoutingEvent {
+    }
+
+    /**
+     * LockDeleteEvent is recorded when the lock file of a SEPAmail message is deleted.
+     */
+    @Name("smac.LockDelete")
+    @Label("Lock Delete")
+    static class LockDeleteEvent extends RoutingEvent {
+    }
+
+    /**
+     * DispatchEvent is recorded when a batch of directory watch events is dispatched to the process queue.
+     */
+    @Name("smac.WatcherDispatch")
+    @Label("Watcher Dispatch")
+    static class DispatchEvent extends RoutingEvent {
+    }
+}
@@ -0,0 +1,123 @@
+package smac.util;
+
+import java.io.File;
+
+/**
+ * SmacFlightRecorder records the routing operations of the SMAC daemon as JDK Flight Recorder events so that routing
+ * stalls can be correlated with garbage collections, file I/O and monitor contention in a single recording. The events
+ * are only created when the running JVM provides the JDK Flight Recorder and a recording has enabled them; otherwise
+ * every call returns immediately.
+ *
+ * The event classes are looked up by name since they are left out of builds made with a JDK which does not provide
+ * the jdk.jfr module.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SmacFlightRecorder {
+
+    // Flight recorder constants
+    public static final String OUTCOME_FAILURE = "failure";
+    public static final String OUTCOME_OVERFLOW = "overflow";
+    public static final String OUTCOME_SUCCESS = "success";
+
+    // Event classes of the SMAC daemon or null if the JDK Flight Recorder is not available
+    private static final Events EVENTS = loadEvents();
+
+    /**
+     * SmacFlightRecorder constructor
+     */
+    private SmacFlightRecorder() {
+    }
+
+    /**
+     * Begin the event of a routing operation
+     *
+     * @param type Routing operation
+     * @return Event which has begun or null if the event is not recorded
+     */
+    public static Object begin(SmacFlightEvent type) {
+        return EVENTS != null ? EVENTS.begin(type) : null;
+    }
+
+    /**
+     * End the event of a routing operation on a SEPAmail message file and commit it
+     *
+     * @param event Event returned by begin or null
+     * @param queueType SMAC queue type of the routing operation
+     * @param file SEPAmail message file of the routing operation
+     * @param outcome Outcome of the routing operation
+     */
+    public static void commit(Object event, SmacQueueType queueType, File file, String outcome) {
+
+        // The size of the file is only read when the event is recorded
+        if (event != null) {
+            EVENTS.commit(event, queueType, file.length(), 1, outcome);
+        }
+    }
+
+    /**
+     * End the event of a routing operation on several SEPAmail message files and commit it
+     *
+     * @param event Event returned by begin or null
+     * @param queueType SMAC queue type of the routing operation
+     * @param fileSize Total size in bytes of the SEPAmail message files
+     * @param count Number of SEPAmail message files
+     * @param outcome Outcome of the routing operation
+     */
+    public static void commit(Object event, SmacQueueType queueType, long fileSize, int count, String outcome) {
+
+        if (event != null) {
+            EVENTS.commit(event, queueType, fileSize, count, outcome);
+        }
+    }
+
+    /**
+     * Load the event classes of the SMAC daemon if the running JVM provides the JDK Flight Recorder
+     *
+     * @return Event classes of the SMAC daemon or null if the flight recorder events cannot be created
+     */
+    private static Events loadEvents() {
+
+        try {
+
+            // The JDK Flight Recorder API is available from Java 11 and may be missing from minimal runtimes
+            Class.forName("jdk.jfr.Event");
+
+            if (!(Boolean)Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null)) {
+                return null;
+            }
+
+            // The event classes are missing when the SMAC daemon was built without the jdk.jfr module
+            return (Events)Class.forName("smac.util.SmacFlightEvents").getDeclaredConstructor().newInstance();
+
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Events creates and commits the JDK Flight Recorder events of the SMAC daemon.
+     */
+    interface Events {
+
+        /**
+         * Create and begin an event if its type is enabled in a recording
+         *
+         * @param type Routing operation
+         * @return Event which has begun or null if the event type is not enabled
+         */
+        Object begin(SmacFlightEvent type);
+
+        /**
+         * End an event and commit it if it is recorded
+         *
+         * @param event Event which has begun
+         * @param queueType SMAC queue type of the routing operation
+         * @param fileSize Size in bytes of the files involved in the routing operation
+         * @param count Number of files involved in the routing operation
+         * @param outcome Outcome of the routing operation
+         */
+        void commit(Object event, SmacQueueType queueType, long fileSize, int count, String outcome);
+    }
+}
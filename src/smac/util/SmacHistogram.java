@@ -0,0 +1,215 @@
+package smac.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SmacHistogram is a lock-free latency histogram. Values are counted in log-linear buckets, each power of two being
+ * split into eight sub-buckets, so that percentiles are accurate to about 12% over the whole range of a long value
+ * while recording a value only takes a few atomic increments.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacHistogram {
+
+    // Histogram constants
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    // Class attributes
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong max;
+    private final AtomicLong sum;
+
+    /**
+     * SmacHistogram default constructor
+     */
+    public SmacHistogram() {
+
+        // Initialise class attributes
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.max = new AtomicLong();
+        this.sum = new AtomicLong();
+    }
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Get the cumulative number of recorded values below each of the given bounds, as exported by Prometheus
+     * histograms. The counts are exact when the bounds are powers of two, which start buckets of the histogram.
+     *
+     * @param bounds Increasing upper bounds of the cumulative buckets
+     * @return Number of recorded values below each bound followed by the total number of recorded values
+     */
+    public long[] getCumulativeCounts(long[] bounds) {
+
+        // Cumulative counts taken from a single pass over the buckets so that they are consistent with the total
+        long[] cumulativeCounts = new long[bounds.length + 1];
+
+        int bound = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+
+            // Close the cumulative buckets whose bound starts the current bucket
+            while (bound < bounds.length && getBucketIndex(Math.max(0, bounds[bound])) <= i) {
+                cumulativeCounts[bound++] = seen;
+            }
+
+            seen += this.counts.get(i);
+        }
+
+        while (bound < bounds.length) {
+            cumulativeCounts[bound++] = seen;
+        }
+
+        cumulativeCounts[bounds.length] = seen;
+
+        return cumulativeCounts;
+    }
+
+    /**
+     * Get the largest recorded value
+     *
+     * @return Largest recorded value or 0 if no value has been recorded
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the mean of the recorded values
+     *
+     * @return Mean of the recorded values or 0 if no value has been recorded
+     */
+    public double getMean() {
+
+        // Number of recorded values
+        long total = this.count.get();
+
+        return total > 0 ? (double)this.sum.get() / total : 0;
+    }
+
+    /**
+     * Get an estimate of a percentile of the recorded values
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return Estimated value below which the given percentage of the recorded values fall
+     */
+    public long getPercentile(double percentile) {
+
+        // Take the bucket counts once so that the total is consistent with them
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        // Rank of the percentile among the recorded values
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * total));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(getBucketValue(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * Get the sum of the recorded values
+     *
+     * @return Sum of the recorded values
+     */
+    public long getSum() {
+        return this.sum.get();
+    }
+
+    /**
+     * Record a value
+     *
+     * @param value Value to record, negative values being recorded as 0
+     */
+    public void record(long value) {
+
+        // Clock adjustments must not corrupt the histogram
+        long recorded = Math.max(0, value);
+
+        this.counts.incrementAndGet(getBucketIndex(recorded));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(recorded);
+
+        // Update the largest recorded value
+        long currentMax = this.max.get();
+        while (recorded > currentMax && !this.max.compareAndSet(currentMax, recorded)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    /**
+     * Get the bucket in which a value is counted
+     *
+     * @param value Non-negative value
+     * @return Bucket index
+     */
+    private static int getBucketIndex(long value) {
+
+        // Small values have their own bucket
+        if (value < LINEAR_BUCKETS) {
+            return (int)value;
+        }
+
+        // Power of two of the value and the sub-bucket given by the bits following its highest bit
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the value which represents a bucket
+     *
+     * @param index Bucket index
+     * @return Middle of the range of values counted in the bucket
+     */
+    private static long getBucketValue(int index) {
+
+        // Small values have their own bucket
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+
+        // The middle of the largest buckets cannot be represented
+        if (exponent >= 60) {
+            return Long.MAX_VALUE;
+        }
+
+        // Width of the sub-buckets of the power of two
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return (SUB_BUCKETS + subBucket) * width + width / 2;
+    }
+}
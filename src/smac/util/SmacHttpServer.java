@@ -0,0 +1,166 @@
+package smac.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * SmacHttpServer is a lightweight HTTP listener based on the JDK HTTP server which serves plain text endpoints, such as
+ * the monitoring metrics and health checks of the SMAC daemon, from a single daemon thread.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacHttpServer {
+
+    // HTTP server constants
+    private static final int STOP_DELAY = 1;
+
+    // Class attributes
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    /**
+     * SmacHttpServer constructor
+     *
+     * @param address Address on which the HTTP server listens or null to listen on all interfaces
+     * @param port Port on which the HTTP server listens
+     * @throws IOException
+     */
+    public SmacHttpServer(String address, int port) throws IOException {
+
+        // Listen address of the HTTP server
+        InetSocketAddress socketAddress = address != null ? new InetSocketAddress(address, port) :
+                new InetSocketAddress(port);
+
+        // Initialise class attributes
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            /**
+             * Create the thread which handles the HTTP requests
+             */
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable);
+                thread.setName("HTTP thread");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+        this.server = HttpServer.create(socketAddress, 0);
+        this.server.setExecutor(this.executor);
+    }
+
+    /**
+     * Serve an endpoint at a path
+     *
+     * @param path Path of the endpoint
+     * @param contentType Content type of the responses of the endpoint
+     * @param endpoint Endpoint which writes the responses
+     */
+    public void addEndpoint(final String path, final String contentType, final Endpoint endpoint) {
+
+        this.server.createContext(path, new HttpHandler() {
+
+            /**
+             * Write the response of the endpoint
+             */
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                try {
+
+                    // Response status and body
+                    int status;
+                    StringBuilder body = new StringBuilder();
+
+                    // Only the endpoint path itself is served, not the paths below it
+                    if (!path.equals(exchange.getRequestURI().getPath())) {
+
+                        status = 404;
+                        body.append("Not found\n");
+
+                    } else if (!"GET".equals(exchange.getRequestMethod()) &&
+                            !"HEAD".equals(exchange.getRequestMethod())) {
+
+                        status = 405;
+                        body.append("Method not allowed\n");
+                        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+
+                    } else {
+                        status = endpoint.write(body);
+                    }
+
+                    // Response body bytes
+                    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+                    exchange.getResponseHeaders().set("Content-Type", contentType);
+
+                    if ("HEAD".equals(exchange.getRequestMethod())) {
+
+                        exchange.sendResponseHeaders(status, -1);
+
+                    } else {
+
+                        exchange.sendResponseHeaders(status, bytes.length);
+
+                        try (OutputStream out = exchange.getResponseBody()) {
+                            out.write(bytes);
+                        }
+                    }
+
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the port on which the HTTP server listens
+     *
+     * @return Listen port of the HTTP server
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Start serving the HTTP requests
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Stop serving the HTTP requests
+     */
+    public void stop() {
+
+        this.server.stop(STOP_DELAY);
+        this.executor.shutdown();
+    }
+
+    /**
+     * Endpoint writes the response of an HTTP endpoint.
+     */
+    public interface Endpoint {
+
+        /**
+         * Write the response of the endpoint
+         *
+         * @param body Response body
+         * @return HTTP status code of the response
+         */
+        int write(StringBuilder body);
+    }
+}
@@ -0,0 +1,237 @@
+package smac.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SmacLogArchiver compresses the rotated log files with gzip and deletes the oldest ones beyond the retention limit. It
+ * runs in its own thread so that neither the log writer thread nor the logging threads wait for the compression.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacLogArchiver implements Runnable {
+
+    // Log archiver constants
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final String TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+
+    // Class attributes
+    private final boolean compress;
+    private final int keep;
+    private final Path logFile;
+    private final LinkedBlockingQueue<Path> rotatedFiles;
+    private final Pattern rotatedFilePattern;
+    private Thread thread;
+
+    /**
+     * SmacLogArchiver constructor
+     *
+     * @param logFile Log file whose rotated files are archived
+     * @param compress Whether rotated log files are compressed with gzip
+     * @param keep Number of rotated log files kept or 0 if they are all kept
+     */
+    public SmacLogArchiver(Path logFile, boolean compress, int keep) {
+
+        // Initialise class attributes
+        this.compress = compress;
+        this.keep = keep;
+        this.logFile = logFile.toAbsolutePath();
+        this.rotatedFiles = new LinkedBlockingQueue<>();
+        this.rotatedFilePattern = Pattern.compile(Pattern.quote(this.logFile.getFileName().toString()) +
+                "\\.\\d{" + TIMESTAMP_FORMAT.length() + "}(" + Pattern.quote(GZIP_SUFFIX) + ")?");
+    }
+
+    /**
+     * Hand a rotated log file over to the log archiver thread
+     *
+     * @param rotatedFile Rotated log file
+     */
+    public void archive(Path rotatedFile) {
+        this.rotatedFiles.add(rotatedFile);
+    }
+
+    /**
+     * Compress the rotated log files and apply the retention limit as they are handed over
+     */
+    @Override
+    public void run() {
+
+        // Finish archiving the rotated log files left by a previous run of the SMAC daemon
+        this.recover();
+
+        for (;;) {
+
+            // Rotated log file
+            Path rotatedFile;
+
+            try {
+                rotatedFile = this.rotatedFiles.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Compress the rotated log file
+            if (this.compress) {
+                this.compress(rotatedFile);
+            }
+
+            // Delete the oldest rotated log files
+            if (this.keep > 0) {
+                this.applyRetention();
+            }
+        }
+    }
+
+    /**
+     * Start the log archiver thread
+     */
+    public synchronized void start() {
+
+        // Check if the log archiver thread has already been started
+        if (this.thread == null) {
+
+            this.thread = new Thread(this);
+            this.thread.setName("Log archive thread");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Delete the oldest rotated log files beyond the retention limit
+     */
+    private void applyRetention() {
+
+        // Rotated log files are sorted by their timestamp
+        ArrayList<Path> archivedFiles = this.listRotatedFiles();
+        Collections.sort(archivedFiles);
+
+        for (int i = 0; i < archivedFiles.size() - this.keep; i++) {
+
+            try {
+                Files.deleteIfExists(archivedFiles.get(i));
+            } catch (IOException e) {
+                this.reportError(archivedFiles.get(i), e);
+            }
+        }
+    }
+
+    /**
+     * Compress a rotated log file with gzip and delete the uncompressed file
+     *
+     * @param rotatedFile Rotated log file
+     */
+    private void compress(Path rotatedFile) {
+
+        // Compressed log file which is only visible once it is complete
+        Path compressedFile = rotatedFile.resolveSibling(rotatedFile.getFileName() + GZIP_SUFFIX);
+        Path partialFile = compressedFile.resolveSibling(compressedFile.getFileName() +
+                SmacFileUtils.PARTIAL_FILE_SUFFIX);
+
+        // The rotated log file may already have been deleted by the retention limit
+        if (!Files.exists(rotatedFile)) {
+            return;
+        }
+
+        try {
+
+            try (InputStream in = Files.newInputStream(rotatedFile);
+                    OutputStream out = new GZIPOutputStream(Files.newOutputStream(partialFile), 65536)) {
+
+                byte[] buffer = new byte[65536];
+                int count = in.read(buffer);
+                while (count > 0) {
+                    out.write(buffer, 0, count);
+                    count = in.read(buffer);
+                }
+            }
+
+            Files.move(partialFile, compressedFile, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(rotatedFile);
+
+        } catch (IOException e) {
+
+            this.reportError(rotatedFile, e);
+
+            try {
+                Files.deleteIfExists(partialFile);
+            } catch (IOException ex) {
+                this.reportError(partialFile, ex);
+            }
+        }
+    }
+
+    /**
+     * List the rotated log files, compressed or not
+     *
+     * @return Rotated log files
+     */
+    private ArrayList<Path> listRotatedFiles() {
+
+        // Rotated log files
+        ArrayList<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.logFile.getParent())) {
+
+            for (Path file : stream) {
+                if (this.rotatedFilePattern.matcher(file.getFileName().toString()).matches()) {
+                    files.add(file);
+                }
+            }
+
+        } catch (IOException e) {
+            this.reportError(this.logFile.getParent(), e);
+        }
+
+        return files;
+    }
+
+    /**
+     * Remove the partial compressed files and queue the uncompressed rotated log files left by a previous run of the
+     * SMAC daemon
+     */
+    private void recover() {
+
+        for (Path file : this.listRotatedFiles()) {
+
+            // Compress the rotated log files which were not compressed
+            if (this.compress && !file.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+
+                try {
+                    Files.deleteIfExists(file.resolveSibling(file.getFileName() + GZIP_SUFFIX +
+                            SmacFileUtils.PARTIAL_FILE_SUFFIX));
+                } catch (IOException e) {
+                    this.reportError(file, e);
+                }
+
+                this.rotatedFiles.add(file);
+            }
+        }
+
+        // Apply the retention limit even if no log file is rotated
+        if (this.keep > 0) {
+            this.applyRetention();
+        }
+    }
+
+    /**
+     * Report an error of the log archiver on the console since it may run before the log controller is available
+     *
+     * @param file Log file which could not be archived
+     * @param e Error raised while archiving the log file
+     */
+    private void reportError(Path file, Exception e) {
+        System.err.println("The SMAC log file " + file + " could not be archived: " + e);
+    }
+}
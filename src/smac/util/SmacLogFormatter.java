@@ -18,6 +18,29 @@ import java.util.logging.LogRecord;
  */
 public class SmacLogFormatter extends Formatter {
 
+    // Hostname and process ID do not change while the application runs
+    protected static final String HOSTNAME = getHostname();
+    protected static final String PID = getPid();
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    // Log line string builder reused by each thread
+    protected static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+
+        /**
+         * Create the log line string builder of a thread
+         *
+         * @return Log line string builder
+         */
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1000);
+        }
+    };
+
+    // Formatted date and time of the last second for which a log entry was recorded
+    private volatile DatePrefix datePrefix;
+
     /**
      * Format the log record in Syslog format
      *
@@ -28,35 +51,36 @@ public class SmacLogFormatter extends Formatter {
     public String format(LogRecord lr) {
 
         // String builder to create the log line string
-        StringBuilder strBuilder = new StringBuilder(1000);
+        StringBuilder strBuilder = BUILDER.get();
+        strBuilder.setLength(0);
 
         // Message priority
-        strBuilder.append("<");
+        strBuilder.append('<');
         strBuilder.append(this.mapSeverity(lr.getLevel()));
         strBuilder.append("> ");
 
         // Date and time at which the event occured
-        strBuilder.append(this.calcDate(lr.getMillis()));
+        this.appendDate(strBuilder, lr.getMillis(), false);
 
         // Hostname of host running the application
-        strBuilder.append(" ");
-        strBuilder.append(this.getHostname());
-        strBuilder.append(" ");
+        strBuilder.append(' ');
+        strBuilder.append(HOSTNAME);
+        strBuilder.append(' ');
 
         // Application name with PID
         strBuilder.append("smurf:[");
-        strBuilder.append(this.getPid());
+        strBuilder.append(PID);
         strBuilder.append("] ");
 
         // Sub-system name - here we use the name of the class where the exception got raised
         strBuilder.append(lr.getSourceClassName());
         strBuilder.append(": ");
 
-        // Log entry message
-        strBuilder.append(formatMessage(lr).replaceAll(System.getProperty("line.separator"), " "));
+        // Log entry message on a single line
+        this.appendSingleLine(strBuilder, formatMessage(lr));
 
         // Terminate log entry
-        strBuilder.append(System.getProperty("line.separator"));
+        strBuilder.append(LINE_SEPARATOR);
 
         return strBuilder.toString();
     }
@@ -95,26 +119,70 @@ public class SmacLogFormatter extends Formatter {
     }
 
     /**
-     * Format the date and time displayed for a log entry
+     * Append the date and time displayed for a log entry
      *
+     * @param strBuilder Log line string builder
      * @param millisecs Event time in milliseconds since 1970
-     * @return Formatted Date and time
+     * @param padMillis Whether the milliseconds are padded to three digits
+     */
+    protected void appendDate(StringBuilder strBuilder, long millisecs, boolean padMillis) {
+
+        // Second of the event
+        long second = millisecs / 1000;
+        if (millisecs < 0 && millisecs % 1000 != 0) {
+            second--;
+        }
+
+        // Format the date and time down to the second only once per second
+        DatePrefix prefix = this.datePrefix;
+        if (prefix == null || prefix.second != second) {
+            prefix = new DatePrefix(second);
+            this.datePrefix = prefix;
+        }
+
+        // Milliseconds of the event
+        int millis = (int)(millisecs - second * 1000);
+
+        strBuilder.append(prefix.text);
+        if (padMillis && millis < 100) {
+            strBuilder.append(millis < 10 ? "00" : "0");
+        }
+        strBuilder.append(millis);
+        strBuilder.append('Z');
+    }
+
+    /**
+     * Append a message with its line breaks replaced by spaces
+     *
+     * @param strBuilder Log line string builder
+     * @param message Log entry message
      */
-    private String calcDate(long millisecs) {
+    protected void appendSingleLine(StringBuilder strBuilder, String message) {
 
-        // Date and time at which log is being recorded
-        Date date = new Date(millisecs);
+        if (message == null) {
+            strBuilder.append((String)null);
+            return;
+        }
+
+        for (int i = 0; i < message.length(); i++) {
+
+            char c = message.charAt(i);
+
+            if (c == '\r') {
 
-        // Date formatter
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.S");
+                // A carriage return followed by a line feed is a single line break
+                if (i + 1 < message.length() && message.charAt(i + 1) == '\n') {
+                    i++;
+                }
 
-        // Set time zone for date formatters
-        dateFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
-        timeFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+                strBuilder.append(' ');
 
-        // Format the date shown in the log output
-        return dateFormat.format(date) + "T" + timeFormat.format(date) + "Z";
+            } else if (c == '\n') {
+                strBuilder.append(' ');
+            } else {
+                strBuilder.append(c);
+            }
+        }
     }
 
     /**
@@ -122,7 +190,7 @@ public class SmacLogFormatter extends Formatter {
      *
      * @return Hostname of the host running the application
      */
-    private String getHostname() {
+    private static String getHostname() {
 
         String hostname;
 
@@ -147,7 +215,7 @@ public class SmacLogFormatter extends Formatter {
      *
      * @return Application process ID
      */
-    private String getPid() {
+    private static String getPid() {
 
         // Process ID
         String sysPid = ManagementFactory.getRuntimeMXBean().getName();
@@ -162,4 +230,32 @@ public class SmacLogFormatter extends Formatter {
 
         return sysPid;
     }
+
+    /**
+     * DatePrefix holds the formatted date and time of a log entry down to the second.
+     */
+    private static class DatePrefix {
+
+        // Class attributes
+        private final long second;
+        private final String text;
+
+        /**
+         * DatePrefix constructor
+         *
+         * @param second Event time in seconds since 1970
+         */
+        private DatePrefix(long second) {
+
+            // Date formatter
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.");
+
+            // Set time zone for date formatter
+            dateFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+
+            // Initialise class attributes
+            this.second = second;
+            this.text = dateFormat.format(new Date(second * 1000));
+        }
+    }
 }
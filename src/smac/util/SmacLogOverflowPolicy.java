@@ -0,0 +1,26 @@
+package smac.util;
+
+/**
+ * SmacLogOverflowPolicy defines what the SMAC daemon does with a log record when the log ring buffer is full.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacLogOverflowPolicy {
+
+    /**
+     * The logging thread waits until the log writer thread has made room for the record
+     */
+    BLOCK,
+
+    /**
+     * Records below the INFO level are dropped once the ring buffer is three quarters full and the logging thread waits
+     * for the other records
+     */
+    DROP_FINEST,
+
+    /**
+     * Any record which does not fit in the ring buffer is dropped
+     */
+    DROP
+}
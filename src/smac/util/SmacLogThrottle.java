@@ -0,0 +1,236 @@
+package smac.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * SmacLogThrottle collapses the repeats of a log message identified by a key within a time window. The first message of
+ * a window is logged and the following ones are only counted, and the number of suppressed messages is reported once
+ * the window has elapsed. The number of keys is bounded; once the limit is reached, messages with a new key are no
+ * longer throttled.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacLogThrottle {
+
+    // Class attributes
+    private final int maxKeys;
+    private final SuppressionReporter reporter;
+    private final long window;
+    private final ConcurrentHashMap<String, Window> windows;
+
+    /**
+     * SmacLogThrottle constructor
+     *
+     * @param window Time window in milliseconds within which repeats of a message are suppressed
+     * @param maxKeys Maximum number of message keys which are tracked
+     * @param reporter Reporter of the number of suppressed messages
+     */
+    public SmacLogThrottle(long window, int maxKeys, SuppressionReporter reporter) {
+
+        // Initialise class attributes
+        this.maxKeys = maxKeys;
+        this.reporter = reporter;
+        this.window = window;
+        this.windows = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Check whether a message may be logged
+     *
+     * @param key Key identifying similar messages
+     * @param level Log level of the message
+     * @param source Log message source class
+     * @param now Current time in milliseconds since 1970
+     * @return Whether the message is logged or suppressed
+     */
+    public boolean acquire(String key, Level level, String source, long now) {
+
+        // Time window of the message key
+        Window keyWindow = this.windows.get(key);
+        long suppressed;
+
+        while (true) {
+
+            if (keyWindow == null) {
+
+                // Make room for the new key by forgetting the keys which are no longer throttled
+                if (this.windows.size() >= this.maxKeys) {
+
+                    this.flush(now);
+
+                    if (this.windows.size() >= this.maxKeys) {
+                        return true;
+                    }
+                }
+
+                keyWindow = this.windows.putIfAbsent(key, new Window(level, source, now));
+
+                // The first message of the key is always logged
+                if (keyWindow == null) {
+                    return true;
+                }
+            }
+
+            suppressed = keyWindow.acquire(now, this.window);
+            if (suppressed != Window.DEAD) {
+                break;
+            }
+
+            // The time window has been forgotten by a flush, the message opens a new one unless another thread has
+            // already done so
+            if (this.windows.replace(key, keyWindow, new Window(level, source, now))) {
+                return true;
+            }
+
+            keyWindow = this.windows.get(key);
+        }
+
+        // Suppress the repeats within the time window
+        if (suppressed < 0) {
+            return false;
+        }
+
+        // Report the messages suppressed in the previous time window
+        if (suppressed > 0) {
+            this.reporter.report(key, keyWindow.level, keyWindow.source, suppressed);
+        }
+
+        return true;
+    }
+
+    /**
+     * Report the messages suppressed in the time windows which have elapsed and forget the keys which are no longer
+     * throttled
+     *
+     * @param now Current time in milliseconds since 1970
+     */
+    public void flush(long now) {
+
+        for (Map.Entry<String, Window> entry : this.windows.entrySet()) {
+
+            Window keyWindow = entry.getValue();
+
+            // Number of messages suppressed in the elapsed time window
+            long suppressed = keyWindow.expire(now, this.window);
+
+            if (suppressed == 0) {
+                this.windows.remove(entry.getKey(), keyWindow);
+            } else if (suppressed > 0) {
+                this.reporter.report(entry.getKey(), keyWindow.level, keyWindow.source, suppressed);
+            }
+        }
+    }
+
+    /**
+     * SuppressionReporter logs the number of messages which have been suppressed for a key.
+     */
+    public interface SuppressionReporter {
+
+        /**
+         * Report the number of messages which have been suppressed for a key
+         *
+         * @param key Key identifying similar messages
+         * @param level Log level of the suppressed messages
+         * @param source Log message source class of the suppressed messages
+         * @param suppressed Number of suppressed messages
+         */
+        void report(String key, Level level, String source, long suppressed);
+    }
+
+    /**
+     * Window holds the start of the current time window of a message key and the number of messages suppressed in it.
+     */
+    private static class Window {
+
+        // Value returned for a time window which has been forgotten
+        private static final long DEAD = -2;
+
+        // Class attributes
+        private boolean dead;
+        private final Level level;
+        private final String source;
+        private long start;
+        private long suppressed;
+
+        /**
+         * Window constructor
+         *
+         * @param level Log level of the messages of the key
+         * @param source Log message source class of the messages of the key
+         * @param start Start of the time window in milliseconds since 1970
+         */
+        private Window(Level level, String source, long start) {
+
+            // Initialise class attributes
+            this.dead = false;
+            this.level = level;
+            this.source = source;
+            this.start = start;
+            this.suppressed = 0;
+        }
+
+        /**
+         * Check whether a message of the key may be logged and open a new time window if it may
+         *
+         * @param now Current time in milliseconds since 1970
+         * @param window Duration of a time window in milliseconds
+         * @return -1 if the message is suppressed, DEAD if the time window has been forgotten, otherwise the number of
+         * messages suppressed in the previous window
+         */
+        private synchronized long acquire(long now, long window) {
+
+            // A forgotten time window must be replaced
+            if (this.dead) {
+                return DEAD;
+            }
+
+            // Suppress the repeats within the time window
+            if (now - this.start < window) {
+
+                this.suppressed++;
+
+                return -1;
+            }
+
+            long count = this.suppressed;
+
+            this.start = now;
+            this.suppressed = 0;
+
+            return count;
+        }
+
+        /**
+         * Close the time window if it has elapsed and mark it as forgotten if no message was suppressed in it
+         *
+         * @param now Current time in milliseconds since 1970
+         * @param window Duration of a time window in milliseconds
+         * @return -1 if the time window has not elapsed, otherwise the number of messages suppressed in it
+         */
+        private synchronized long expire(long now, long window) {
+
+            if (this.dead || now - this.start < window) {
+                return -1;
+            }
+
+            long count = this.suppressed;
+
+            // The key is no longer throttled and its time window can no longer suppress messages
+            if (count == 0) {
+
+                this.dead = true;
+
+                return 0;
+            }
+
+            // A new time window opens if messages were suppressed so that the reported key keeps being throttled
+            this.start = now;
+            this.suppressed = 0;
+
+            return count;
+        }
+    }
+}
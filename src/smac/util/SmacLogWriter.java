@@ -0,0 +1,380 @@
+package smac.util;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.SimpleTimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * SmacLogWriter is the single thread which takes the log records published in the log ring buffer, formats them and
+ * writes them to the log file in batches, flushing the file whenever the ring buffer has been drained. The log file is
+ * rotated by size or by age between two records and the rotated file is handed over to the log archiver. When a syslog
+ * server is defined, records are handed over to the syslog sender and only written to the log file when it cannot take
+ * them.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacLogWriter implements Runnable {
+
+    // Log writer constants
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Class attributes
+    private final SmacLogArchiver archiver;
+    private final AtomicLong dropped;
+    private final Formatter formatter;
+    private final Path logFile;
+    private long openTime;
+    private Writer out;
+    private long rotateInterval;
+    private long rotateSize;
+    private long rotateTime;
+    private final SmacRingBuffer<LogRecord> ringBuffer;
+    private volatile boolean running;
+    private SmacSyslogSender syslogSender;
+    private Thread thread;
+    private volatile boolean waiting;
+    private long written;
+
+    /**
+     * SmacLogWriter constructor
+     *
+     * @param filename Name and path of the log file to which records are appended
+     * @param formatter Formatter of the log records
+     * @param ringBuffer Ring buffer in which the log records are published
+     * @param dropped Number of log records dropped by the overflow policy which have not been reported yet
+     * @param archiver Log archiver to which rotated log files are handed over or null if the log file is not rotated
+     * @throws IOException
+     */
+    public SmacLogWriter(String filename, Formatter formatter, SmacRingBuffer<LogRecord> ringBuffer,
+            AtomicLong dropped, SmacLogArchiver archiver) throws IOException {
+
+        // Initialise class attributes
+        this.archiver = archiver;
+        this.dropped = dropped;
+        this.formatter = formatter;
+        this.logFile = Paths.get(filename).toAbsolutePath();
+        this.rotateInterval = 0;
+        this.rotateSize = 0;
+        this.rotateTime = 0;
+        this.ringBuffer = ringBuffer;
+        this.running = false;
+        this.waiting = false;
+
+        // Open the log file
+        this.open();
+
+        // The age of an existing log file is counted from its creation
+        this.openTime = Files.readAttributes(this.logFile, BasicFileAttributes.class).creationTime().toMillis();
+    }
+
+    /**
+     * Check whether the log writer thread is still taking records from the ring buffer
+     *
+     * @return Whether the log writer is running
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Write the log records published in the ring buffer until the log writer is stopped and the ring buffer has been
+     * drained
+     */
+    @Override
+    public void run() {
+
+        // Whether records have been written since the last flush
+        boolean dirty = false;
+
+        while (this.running || !this.ringBuffer.isEmpty()) {
+
+            // Write the records which have been published
+            int count = this.drain();
+            dirty |= count > 0;
+
+            if (count == 0) {
+
+                // Flush the batch once the ring buffer has been drained
+                if (dirty) {
+                    this.flush();
+                    dirty = false;
+                }
+
+                // Wait for records to be published
+                this.waiting = true;
+                if (this.running && this.ringBuffer.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                }
+                this.waiting = false;
+            }
+        }
+
+        // Close the log file
+        this.close();
+    }
+
+    /**
+     * Set the limits beyond which the log file is rotated
+     *
+     * @param rotateSize Maximum size of the log file in bytes or 0 if the log file is not rotated by size
+     * @param rotateInterval Maximum age of the log file in milliseconds or 0 if the log file is not rotated by age
+     */
+    public void setRotation(long rotateSize, long rotateInterval) {
+
+        this.rotateInterval = rotateInterval;
+        this.rotateSize = rotateSize;
+    }
+
+    /**
+     * Wake up the log writer thread if it is waiting for records
+     */
+    public void signal() {
+
+        if (this.waiting) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * Set the syslog sender to which log records are handed over before being written to the log file
+     *
+     * @param syslogSender Syslog sender
+     */
+    public void setSyslogSender(SmacSyslogSender syslogSender) {
+        this.syslogSender = syslogSender;
+    }
+
+    /**
+     * Start the log writer thread
+     */
+    public synchronized void start() {
+
+        // Check if the log writer thread has already been started
+        if (this.thread == null) {
+
+            this.running = true;
+
+            this.thread = new Thread(this);
+            this.thread.setName("Log writer thread");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stop the log writer thread once the records remaining in the ring buffer have been written
+     *
+     * @param timeout Maximum time in milliseconds to wait for the remaining records to be written
+     */
+    public void stop(long timeout) {
+
+        this.running = false;
+        LockSupport.unpark(this.thread);
+
+        try {
+            this.thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the log records which have been published in the ring buffer
+     *
+     * @return Number of records which have been written
+     */
+    private int drain() {
+
+        // Number of records written
+        int count = 0;
+
+        // Report the records dropped by the overflow policy
+        long droppedCount = this.dropped.getAndSet(0);
+        if (droppedCount > 0) {
+
+            LogRecord record = new LogRecord(Level.WARNING, droppedCount + " log records were dropped since the " +
+                    "log buffer was full.");
+            record.setSourceClassName(SmacLogWriter.class.getSimpleName());
+            this.write(record);
+            count++;
+        }
+
+        // Write the records which are waiting in the ring buffer
+        LogRecord record = this.ringBuffer.poll();
+        while (record != null) {
+
+            this.write(record);
+            count++;
+
+            record = this.ringBuffer.poll();
+        }
+
+        return count;
+    }
+
+    /**
+     * Close the log file
+     */
+    private void close() {
+
+        try {
+            if (this.out != null) {
+                this.out.close();
+            }
+        } catch (IOException e) {
+            this.reportError(e);
+        }
+
+        this.out = null;
+    }
+
+    /**
+     * Flush the log file
+     */
+    private void flush() {
+
+        try {
+            if (this.out != null) {
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            this.reportError(e);
+        }
+    }
+
+    /**
+     * Check whether the log file has reached its maximum size or age
+     *
+     * @param now Current time in milliseconds since 1970
+     * @return Whether the log file needs to be rotated
+     */
+    private boolean isRotationDue(long now) {
+        return (this.rotateSize > 0 && this.written >= this.rotateSize) ||
+                (this.rotateInterval > 0 && now - this.openTime >= this.rotateInterval);
+    }
+
+    /**
+     * Open the log file in append mode
+     *
+     * @throws IOException
+     */
+    private void open() throws IOException {
+
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.logFile.toFile(), true)),
+                65536);
+        this.openTime = System.currentTimeMillis();
+        this.written = this.logFile.toFile().length();
+    }
+
+    /**
+     * Rename the log file with the time of the rotation, hand it over to the log archiver and open a new log file
+     *
+     * @param now Current time in milliseconds since 1970
+     */
+    private void rotate(long now) {
+
+        // Two rotations never share the same timestamp
+        this.rotateTime = Math.max(now, this.rotateTime + 1);
+
+        // Timestamp of the rotated log file
+        SimpleDateFormat dateFormat = new SimpleDateFormat(SmacLogArchiver.TIMESTAMP_FORMAT);
+        dateFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+
+        Path rotatedFile = this.logFile.resolveSibling(this.logFile.getFileName() + "." +
+                dateFormat.format(new Date(this.rotateTime)));
+
+        this.close();
+
+        // Whether the log file was renamed
+        boolean rotated = false;
+
+        try {
+
+            // Rename the log file and archive it in the background
+            Files.move(this.logFile, rotatedFile);
+            this.archiver.archive(rotatedFile);
+
+            rotated = true;
+
+        } catch (IOException e) {
+            this.reportError(e);
+        }
+
+        try {
+
+            this.open();
+
+            // Keep appending to a log file which could not be renamed until it reaches its limits again
+            if (!rotated) {
+                this.written = 0;
+            }
+
+        } catch (IOException e) {
+
+            this.reportError(e);
+
+            // Try again with the next record
+            this.openTime = now;
+            this.written = 0;
+        }
+    }
+
+    /**
+     * Report an error of the log writer on the console since it cannot be logged
+     *
+     * @param e Error raised while writing the log file
+     */
+    private void reportError(Exception e) {
+        System.err.println("The SMAC log file could not be written: " + e);
+    }
+
+    /**
+     * Format a log record and write it to the log file
+     *
+     * @param record Log record
+     */
+    private void write(LogRecord record) {
+
+        // The log file is only a fallback for the syslog server
+        if (this.syslogSender != null && this.syslogSender.offer(record)) {
+            return;
+        }
+
+        // Rotate the log file between two records
+        if (this.archiver != null && this.isRotationDue(System.currentTimeMillis())) {
+            this.rotate(System.currentTimeMillis());
+        }
+
+        try {
+
+            // Reopen a log file which could not be reopened after a rotation
+            if (this.out == null) {
+                this.open();
+            }
+
+            // Size of the log file in characters is close enough to its size in bytes for the rotation
+            String line = this.formatter.format(record);
+            this.out.write(line);
+            this.written += line.length();
+
+        } catch (IOException | RuntimeException e) {
+            this.reportError(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package smac.util;
+
+/**
+ * SmacOutputMode defines how the SMAC daemon writes the SEPAmail messages routed to an output queue.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacOutputMode {
+
+    /**
+     * Each message is moved as a separate EML file to the output queue directory
+     */
+    FILE,
+
+    /**
+     * Messages are appended to rolling segment log files with an offset index in the output queue directory
+     */
+    SEGMENT,
+
+    /**
+     * Messages are streamed into size or time bounded zip archives which are sealed with a manifest
+     */
+    ZIP,
+
+    /**
+     * Messages are streamed into size or time bounded tar archives which are sealed with a manifest
+     */
+    TAR
+}
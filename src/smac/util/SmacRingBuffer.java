@@ -0,0 +1,146 @@
+package smac.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SmacRingBuffer is a bounded, lock-free ring buffer for many producer threads and a single consumer thread. Producers
+ * claim a slot by incrementing the tail sequence and publish their element by advancing the sequence of the slot, so
+ * that offering an element never takes a lock.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ * @param <E> Type of the elements held by the ring buffer
+ */
+public class SmacRingBuffer<E> {
+
+    // Class attributes
+    private final int capacity;
+    private final AtomicReferenceArray<E> elements;
+    private volatile long head;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+
+    /**
+     * SmacRingBuffer constructor
+     *
+     * @param capacity Minimum number of elements held by the ring buffer, rounded up to a power of two
+     */
+    public SmacRingBuffer(int capacity) {
+
+        // Round the capacity up to a power of two so that slots can be found with a mask
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        // Initialise class attributes
+        this.capacity = size;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.head = 0;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.tail = new AtomicLong();
+
+        // Each slot is initially free for the producer claiming its position
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Get the number of elements which the ring buffer can hold
+     *
+     * @return Capacity of the ring buffer
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Check whether the ring buffer is empty
+     *
+     * @return Whether no element is waiting to be consumed
+     */
+    public boolean isEmpty() {
+        return this.tail.get() == this.head;
+    }
+
+    /**
+     * Add an element to the ring buffer without waiting. This method may be called by any thread.
+     *
+     * @param element Element to add
+     * @return Whether the element was added or the ring buffer is full
+     */
+    public boolean offer(E element) {
+
+        // Position claimed by the producer
+        long position = this.tail.get();
+
+        for (;;) {
+
+            // Slot of the position
+            int index = (int)(position & this.mask);
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+
+                // The slot is free, claim the position
+                if (this.tail.compareAndSet(position, position + 1)) {
+
+                    // Publish the element to the consumer
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, position + 1);
+
+                    return true;
+                }
+
+                position = this.tail.get();
+
+            } else if (difference < 0) {
+
+                // The slot has not been consumed yet so the ring buffer is full
+                return false;
+
+            } else {
+
+                // Another producer claimed the position
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element from the ring buffer. This method must only be called by the consumer thread.
+     *
+     * @return Oldest element or null if the ring buffer is empty or the oldest element is still being published
+     */
+    public E poll() {
+
+        // Slot of the oldest element
+        long position = this.head;
+        int index = (int)(position & this.mask);
+
+        // Check that the element of the slot has been published
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        E element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+
+        // Free the slot for the producer which will claim the position one lap later
+        this.sequences.set(index, position + this.capacity);
+        this.head = position + 1;
+
+        return element;
+    }
+
+    /**
+     * Get the approximate number of elements waiting to be consumed
+     *
+     * @return Number of elements in the ring buffer
+     */
+    public int size() {
+        return (int)Math.max(0, Math.min(this.capacity, this.tail.get() - this.head));
+    }
+}
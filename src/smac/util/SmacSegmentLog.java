@@ -0,0 +1,428 @@
+package smac.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * SmacSegmentLog appends SEPAmail message container files to rolling segment files of an output queue directory.
+ *
+ * Each segment file NNNNNNNNNNNNNNNNNNNN.log is a sequence of records made of the length of the file name (int), the
+ * UTF-8 file name, the length of the message (long), the message itself and the CRC-32 checksum of the preceding
+ * bytes of the record (int). The companion NNNNNNNNNNNNNNNNNNNN.idx file holds one entry per record made of the offset
+ * of the record (long) and the length of the record (int), in big-endian byte order. A record is complete once its
+ * index entry has been written. The index is rebuilt from the segment file when the segment log is opened so that only
+ * the segment file needs to be synced, records whose checksum does not match being discarded.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacSegmentLog {
+
+    // Segment log constants
+    private static final int COPY_BUFFER_SIZE = 65536;
+    public static final int INDEX_ENTRY_SIZE = 12;
+    public static final String INDEX_SUFFIX = ".idx";
+    public static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_NAME_LENGTH = 4096;
+
+    // Class attributes
+    private final CRC32 checksum;
+    private final ByteBuffer copyBuffer;
+    private final Path directory;
+    private final ByteBuffer headerBuffer;
+    private FileChannel indexChannel;
+    private final ByteBuffer indexBuffer;
+    private long indexPosition;
+    private final long maxSegmentSize;
+    private FileChannel segmentChannel;
+    private Path segmentPath;
+    private long segmentPosition;
+    private long segmentSequence;
+    private final boolean syncCreatedSegments;
+
+    /**
+     * SmacSegmentLog constructor which opens the latest segment of the output queue directory and recovers any
+     * record which was partially written
+     *
+     * @param directory Output queue directory
+     * @param maxSegmentSize Size in bytes above which a new segment is started
+     * @param syncCreatedSegments Whether the creation of segment files must be synced to disk
+     * @throws IOException
+     */
+    public SmacSegmentLog(Path directory, long maxSegmentSize, boolean syncCreatedSegments) throws IOException {
+
+        // Initialise class attributes
+        this.checksum = new CRC32();
+        this.copyBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        this.directory = directory;
+        this.headerBuffer = ByteBuffer.allocate(4 + MAX_NAME_LENGTH + 8);
+        this.indexBuffer = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        this.maxSegmentSize = maxSegmentSize;
+        this.segmentSequence = -1;
+        this.syncCreatedSegments = syncCreatedSegments;
+
+        // Create the output queue directory if required
+        Files.createDirectories(directory);
+
+        // Find the latest segment of the output queue directory
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+
+                // Sequence number of the current segment
+                String name = segment.getFileName().toString();
+
+                try {
+                    this.segmentSequence = Math.max(this.segmentSequence,
+                            Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()), 10));
+                } catch (NumberFormatException e) {
+                    // Not a segment of the segment log
+                }
+            }
+        }
+
+        // Open the latest segment or start the first one
+        if (this.segmentSequence < 0) {
+            this.openSegment(0);
+        } else {
+            this.openSegment(this.segmentSequence);
+            this.recover();
+        }
+    }
+
+    /**
+     * Append the content of a SEPAmail message container file to the current segment
+     *
+     * @param source Path of the SEPAmail message container file
+     * @return Path of the segment to which the message has been appended
+     * @throws IOException
+     */
+    public synchronized Path append(Path source) throws IOException {
+
+        // Encoded file name of the message
+        byte[] name = source.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+
+        if (name.length > MAX_NAME_LENGTH) {
+            throw new IOException("The file name of " + source + " is too long for a segment log.");
+        }
+
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+
+            // Length of the record
+            long size = sourceChannel.size();
+            long recordLength = 4 + name.length + 8 + size + 4;
+
+            if (recordLength > Integer.MAX_VALUE) {
+                throw new IOException("The file " + source + " is too large for a segment log.");
+            }
+
+            // Start a new segment when the record does not fit in the current one
+            if (this.segmentPosition > 0 && this.segmentPosition + recordLength > this.maxSegmentSize) {
+                this.roll();
+            }
+
+            try {
+
+                // Write the record header
+                this.headerBuffer.clear();
+                this.headerBuffer.putInt(name.length).put(name).putLong(size).flip();
+                this.checksum.reset();
+                this.checksum.update(this.headerBuffer.array(), 0, this.headerBuffer.limit());
+                this.writeFully(this.segmentChannel, this.headerBuffer, this.segmentPosition);
+
+                // Copy the message and compute its checksum on the way
+                long payloadPosition = this.segmentPosition + 4 + name.length + 8;
+                long copied = 0;
+                while (copied < size) {
+
+                    // Read the next chunk of the message
+                    this.copyBuffer.clear();
+                    this.copyBuffer.limit((int)Math.min(COPY_BUFFER_SIZE, size - copied));
+                    int count = sourceChannel.read(this.copyBuffer, copied);
+
+                    if (count <= 0) {
+                        throw new IOException("The file " + source + " was truncated while being appended.");
+                    }
+
+                    this.checksum.update(this.copyBuffer.array(), 0, count);
+                    this.copyBuffer.flip();
+                    this.writeFully(this.segmentChannel, this.copyBuffer, payloadPosition + copied);
+
+                    copied += count;
+                }
+
+                // Write the checksum which ends the record
+                this.headerBuffer.clear();
+                this.headerBuffer.putInt((int)this.checksum.getValue()).flip();
+                this.writeFully(this.segmentChannel, this.headerBuffer, payloadPosition + size);
+
+                // Write the index entry which completes the record
+                this.writeIndexEntry(this.segmentPosition, (int)recordLength);
+
+            } catch (IOException e) {
+
+                // Discard the partially written record
+                this.segmentChannel.truncate(this.segmentPosition);
+
+                throw e;
+            }
+
+            this.segmentPosition += recordLength;
+        }
+
+        return this.segmentPath;
+    }
+
+    /**
+     * Close the current segment
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+
+        // Close the channels of the current segment
+        this.indexChannel.close();
+        this.segmentChannel.close();
+    }
+
+    /**
+     * Force the records appended to the current segment to be written to disk
+     *
+     * @throws IOException
+     */
+    public synchronized void force() throws IOException {
+        this.segmentChannel.force(true);
+    }
+
+    /**
+     * Get the path of a segment file or of its index
+     *
+     * @param sequence Sequence number of the segment
+     * @param suffix File name suffix of the segment file or of its index
+     * @return Path of the segment file or of its index
+     */
+    private Path getSegmentFile(long sequence, String suffix) {
+        return this.directory.resolve(String.format("%020d", sequence) + suffix);
+    }
+
+    /**
+     * Open the segment file and the index of the given segment
+     *
+     * @param sequence Sequence number of the segment
+     * @throws IOException
+     */
+    private void openSegment(long sequence) throws IOException {
+
+        // Whether the segment is being created
+        boolean isNew = !Files.exists(this.getSegmentFile(sequence, SEGMENT_SUFFIX));
+
+        // Open the segment file and its index
+        this.segmentSequence = sequence;
+        this.segmentPath = this.getSegmentFile(sequence, SEGMENT_SUFFIX);
+        this.segmentChannel = FileChannel.open(this.segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.indexChannel = FileChannel.open(this.getSegmentFile(sequence, INDEX_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentPosition = this.segmentChannel.size();
+        this.indexPosition = this.indexChannel.size();
+
+        // Make the directory entry of the new segment durable
+        if (isNew && this.syncCreatedSegments) {
+            SmacFileUtils.sync(this.directory);
+        }
+    }
+
+    /**
+     * Read the record header at the given offset of the current segment and verify the checksum of the record
+     *
+     * @param offset Offset of the record in the current segment
+     * @param size Size of the current segment
+     * @return Length of the record or -1 if the record is incomplete or corrupted
+     * @throws IOException
+     */
+    private long readRecordLength(long offset, long size) throws IOException {
+
+        // Check that the name length can be read
+        if (offset + 4 > size) {
+            return -1;
+        }
+
+        // Read the length of the file name
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.limit(4);
+        this.readFully(buffer, offset);
+        int nameLength = buffer.getInt(0);
+
+        // Check that the message length can be read
+        if (nameLength <= 0 || nameLength > MAX_NAME_LENGTH || offset + 4 + nameLength + 8 > size) {
+            return -1;
+        }
+
+        // Read the length of the message
+        buffer.clear();
+        this.readFully(buffer, offset + 4 + nameLength);
+        long messageLength = buffer.getLong(0);
+        long recordLength = 4 + nameLength + 8 + messageLength + 4;
+
+        // Check that the whole record has been written
+        if (messageLength < 0 || recordLength > Integer.MAX_VALUE || offset + recordLength > size) {
+            return -1;
+        }
+
+        // Compute the checksum of the record up to its stored checksum
+        this.checksum.reset();
+        long checked = 0;
+        while (checked < recordLength - 4) {
+
+            // Read the next chunk of the record
+            this.copyBuffer.clear();
+            this.copyBuffer.limit((int)Math.min(COPY_BUFFER_SIZE, recordLength - 4 - checked));
+            this.readFully(this.copyBuffer, offset + checked);
+
+            this.checksum.update(this.copyBuffer.array(), 0, this.copyBuffer.limit());
+            checked += this.copyBuffer.limit();
+        }
+
+        // Check the stored checksum of the record
+        buffer.clear();
+        buffer.limit(4);
+        this.readFully(buffer, offset + recordLength - 4);
+
+        if (buffer.getInt(0) != (int)this.checksum.getValue()) {
+            return -1;
+        }
+
+        return recordLength;
+    }
+
+    /**
+     * Read bytes of the current segment until the given buffer is full
+     *
+     * @param buffer Buffer to fill
+     * @param position Position in the current segment
+     * @throws IOException
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+
+        // Read until the buffer is full
+        while (buffer.hasRemaining()) {
+            if (this.segmentChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment " + this.segmentPath + ".");
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index entries of the current segment which were not written, discard the index entries which point
+     * beyond the records written to disk and discard any partially written record
+     *
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+
+        // Discard any partially written index entry
+        this.indexPosition -= this.indexPosition % INDEX_ENTRY_SIZE;
+
+        // The index is not synced and may point past the records which reached the segment file before a crash, the
+        // last index entry whose record is complete is therefore searched backwards
+        long size = this.segmentChannel.size();
+        long offset = 0;
+        while (this.indexPosition > 0) {
+
+            // Read the last index entry
+            this.indexBuffer.clear();
+            while (this.indexBuffer.hasRemaining()) {
+                if (this.indexChannel.read(this.indexBuffer, this.indexPosition - INDEX_ENTRY_SIZE +
+                        this.indexBuffer.position()) < 0) {
+                    throw new IOException("Unexpected end of segment index for " + this.segmentPath + ".");
+                }
+            }
+
+            long entryOffset = this.indexBuffer.getLong(0);
+            int entryLength = this.indexBuffer.getInt(8);
+
+            // Keep the index entry if its record has been fully written to the segment file
+            if (entryOffset >= 0 && entryLength > 0 && entryOffset + entryLength <= size &&
+                    this.readRecordLength(entryOffset, size) == entryLength) {
+
+                offset = entryOffset + entryLength;
+                break;
+            }
+
+            this.indexPosition -= INDEX_ENTRY_SIZE;
+        }
+
+        this.indexChannel.truncate(this.indexPosition);
+
+        // Index the complete records which follow the last valid index entry
+        long recordLength = this.readRecordLength(offset, size);
+        while (recordLength > 0) {
+            this.writeIndexEntry(offset, (int)recordLength);
+            offset += recordLength;
+            recordLength = this.readRecordLength(offset, size);
+        }
+
+        // Discard the partially written record
+        this.segmentChannel.truncate(offset);
+        this.segmentPosition = offset;
+    }
+
+    /**
+     * Seal the current segment and start a new one
+     *
+     * @throws IOException
+     */
+    private void roll() throws IOException {
+
+        // The records of a sealed segment must be durable before the segment is left behind
+        if (this.syncCreatedSegments) {
+            this.segmentChannel.force(true);
+        }
+
+        // Close the current segment
+        this.close();
+
+        // Start the next segment
+        this.openSegment(this.segmentSequence + 1);
+    }
+
+    /**
+     * Write a buffer at the given position of a channel
+     *
+     * @param channel File channel
+     * @param buffer Buffer to write
+     * @param position Position in the file
+     * @throws IOException
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        // Write until the buffer has been fully written
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Append an entry to the index of the current segment
+     *
+     * @param offset Offset of the record in the current segment
+     * @param recordLength Length of the record
+     * @throws IOException
+     */
+    private void writeIndexEntry(long offset, int recordLength) throws IOException {
+
+        // Write the index entry
+        this.indexBuffer.clear();
+        this.indexBuffer.putLong(offset).putInt(recordLength).flip();
+        this.writeFully(this.indexChannel, this.indexBuffer, this.indexPosition);
+
+        this.indexPosition += INDEX_ENTRY_SIZE;
+    }
+}
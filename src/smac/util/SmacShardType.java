@@ -0,0 +1,31 @@
+package smac.util;
+
+/**
+ * SmacShardType defines how the SEPAmail messages of an output queue are spread over sub-directories of the output
+ * queue directory.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacShardType {
+
+    /**
+     * Messages are moved directly to the output queue directory
+     */
+    NONE,
+
+    /**
+     * Messages are moved to a yyyy/MM/dd sub-directory based on the UTC date at which they were routed
+     */
+    DAY,
+
+    /**
+     * Messages are moved to a yyyy/MM/dd/HH sub-directory based on the UTC date and hour at which they were routed
+     */
+    HOUR,
+
+    /**
+     * Messages are moved to one of 256 sub-directories named after a hash prefix of their file name
+     */
+    HASH
+}
@@ -0,0 +1,164 @@
+package smac.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.SimpleTimeZone;
+
+/**
+ * SmacShardedDirectory resolves the sub-directory of an output queue directory in which a SEPAmail message must be
+ * moved. Sub-directories are created the first time they are needed and kept so that resolving the directory of a
+ * message does not access the file system.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacShardedDirectory {
+
+    // Number of hash prefix sub-directories
+    private static final int HASH_SHARDS = 256;
+
+    // Class attributes
+    private final Path baseDirectory;
+    private final Calendar calendar;
+    private final Path[] hashShards;
+    private final SmacShardType shardType;
+    private final boolean syncCreatedDirectories;
+    private Path timeShard;
+    private long timeShardEnd;
+    private long timeShardStart;
+
+    /**
+     * SmacShardedDirectory constructor
+     *
+     * @param baseDirectory Output queue directory which has already been validated
+     * @param shardType Sharding scheme of the output queue
+     * @param syncCreatedDirectories Whether the creation of sub-directories must be synced to disk
+     */
+    public SmacShardedDirectory(Path baseDirectory, SmacShardType shardType, boolean syncCreatedDirectories) {
+
+        // Initialise class attributes
+        this.baseDirectory = baseDirectory;
+        this.calendar = Calendar.getInstance(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+        this.hashShards = shardType == SmacShardType.HASH ? new Path[HASH_SHARDS] : null;
+        this.shardType = shardType;
+        this.syncCreatedDirectories = syncCreatedDirectories;
+        this.timeShard = null;
+        this.timeShardEnd = 0;
+        this.timeShardStart = 0;
+    }
+
+    /**
+     * Get the output queue directory
+     *
+     * @return Output queue directory
+     */
+    public Path getBaseDirectory() {
+        return this.baseDirectory;
+    }
+
+    /**
+     * Get the directory in which a SEPAmail message must be moved and create it if required
+     *
+     * @param fileName Name of the SEPAmail message container file
+     * @param time Time in milliseconds since 1970 at which the message is being routed
+     * @return Directory in which the message must be moved
+     * @throws IOException
+     */
+    public Path getDirectory(String fileName, long time) throws IOException {
+
+        // Check the sharding scheme of the output queue
+        switch (this.shardType) {
+
+            case DAY:
+            case HOUR:
+
+                // Start a new time bucket when the current one has elapsed
+                if (this.timeShard == null || time < this.timeShardStart || time >= this.timeShardEnd) {
+                    this.timeShard = this.createShard(this.getTimeShardName(time));
+                }
+
+                return this.timeShard;
+
+            case HASH:
+
+                // Hash prefix of the file name
+                int shard = fileName.hashCode() & (HASH_SHARDS - 1);
+
+                // Create the hash prefix sub-directory the first time it is used
+                if (this.hashShards[shard] == null) {
+                    this.hashShards[shard] = this.createShard(String.format("%02x", shard));
+                }
+
+                return this.hashShards[shard];
+
+            default:
+
+                return this.baseDirectory;
+        }
+    }
+
+    /**
+     * Create a sub-directory of the output queue directory if it does not exist yet
+     *
+     * @param shardName Relative path of the sub-directory
+     * @return Path of the sub-directory
+     * @throws IOException
+     */
+    private Path createShard(String shardName) throws IOException {
+
+        // Sub-directory of the output queue directory
+        Path shard = this.baseDirectory.resolve(shardName);
+
+        // Check if the sub-directory needs to be created
+        if (!Files.isDirectory(shard)) {
+
+            Files.createDirectories(shard);
+
+            // Make the directory entries of the new sub-directories durable
+            if (this.syncCreatedDirectories) {
+                for (Path directory = shard; !directory.equals(this.baseDirectory);
+                        directory = directory.getParent()) {
+                    SmacFileUtils.sync(directory.getParent());
+                }
+            }
+        }
+
+        return shard;
+    }
+
+    /**
+     * Get the relative path of the time bucket sub-directory for the given time and record the bounds of the bucket
+     *
+     * @param time Time in milliseconds since 1970
+     * @return Relative path of the time bucket sub-directory
+     */
+    private String getTimeShardName(long time) {
+
+        // Truncate the time to the start of its bucket
+        this.calendar.setTimeInMillis(time);
+        this.calendar.set(Calendar.MINUTE, 0);
+        this.calendar.set(Calendar.SECOND, 0);
+        this.calendar.set(Calendar.MILLISECOND, 0);
+
+        if (this.shardType == SmacShardType.DAY) {
+            this.calendar.set(Calendar.HOUR_OF_DAY, 0);
+        }
+
+        // Bounds of the time bucket
+        this.timeShardStart = this.calendar.getTimeInMillis();
+        this.timeShardEnd = this.timeShardStart + (this.shardType == SmacShardType.DAY ? 86400000L : 3600000L);
+
+        // Date components of the time bucket
+        String separator = this.baseDirectory.getFileSystem().getSeparator();
+        String shardName = String.format("%04d%s%02d%s%02d", this.calendar.get(Calendar.YEAR), separator,
+                this.calendar.get(Calendar.MONTH) + 1, separator, this.calendar.get(Calendar.DAY_OF_MONTH));
+
+        if (this.shardType == SmacShardType.HOUR) {
+            shardName += separator + String.format("%02d", this.calendar.get(Calendar.HOUR_OF_DAY));
+        }
+
+        return shardName;
+    }
+}
@@ -0,0 +1,115 @@
+package smac.util;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Syslog formatter extends the log formatter and formats the output of the logger as RFC 5424 syslog messages which are
+ * sent to a syslog server.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacSyslogFormatter extends SmacLogFormatter {
+
+    // Syslog formatter constants
+    private static final String APP_NAME = "smurf";
+    private static final int MAX_MSGID_LENGTH = 32;
+
+    // Class attributes
+    private final int facility;
+
+    /**
+     * SmacSyslogFormatter constructor
+     *
+     * @param facility Syslog facility code of the SMAC daemon messages
+     */
+    public SmacSyslogFormatter(int facility) {
+
+        // Initialise class attributes
+        this.facility = facility;
+    }
+
+    /**
+     * Format the log record as an RFC 5424 syslog message without trailer
+     *
+     * @param lr Log record
+     * @return Formatted syslog message
+     */
+    @Override
+    public String format(LogRecord lr) {
+
+        // String builder to create the syslog message
+        StringBuilder strBuilder = BUILDER.get();
+        strBuilder.setLength(0);
+
+        // Message priority and syslog protocol version
+        strBuilder.append('<');
+        strBuilder.append(this.facility * 8 + this.mapSeverity(lr.getLevel()));
+        strBuilder.append(">1 ");
+
+        // Date and time at which the event occured
+        this.appendDate(strBuilder, lr.getMillis(), true);
+
+        // Hostname, application name and process ID
+        strBuilder.append(' ');
+        strBuilder.append(HOSTNAME);
+        strBuilder.append(' ');
+        strBuilder.append(APP_NAME);
+        strBuilder.append(' ');
+        strBuilder.append(PID);
+        strBuilder.append(' ');
+
+        // Message ID - here we use the name of the class where the exception got raised
+        this.appendMessageId(strBuilder, lr.getSourceClassName());
+
+        // No structured data
+        strBuilder.append(" - ");
+
+        // Log entry message on a single line
+        this.appendSingleLine(strBuilder, formatMessage(lr));
+
+        return strBuilder.toString();
+    }
+
+    /**
+     * Append the message ID of a syslog message, which may only contain printable ASCII characters
+     *
+     * @param strBuilder Syslog message string builder
+     * @param source Log message source class
+     */
+    private void appendMessageId(StringBuilder strBuilder, String source) {
+
+        // Nil message ID
+        if (source == null || source.isEmpty()) {
+            strBuilder.append('-');
+            return;
+        }
+
+        for (int i = 0; i < source.length() && i < MAX_MSGID_LENGTH; i++) {
+
+            char c = source.charAt(i);
+            strBuilder.append(c > 32 && c < 127 ? c : '_');
+        }
+    }
+
+    /**
+     * Map the Java logging level to the syslog severity. Messages below CONFIG are debug messages.
+     *
+     * @param level Log message severity level
+     * @return Syslog severity
+     */
+    private int mapSeverity(Level level) {
+
+        // Log level severity, SEVERE messages being errors rather than alerts which require immediate action
+        if (level.intValue() >= Level.SEVERE.intValue()) {
+            return 3;
+        } else if (level.intValue() >= Level.WARNING.intValue()) {
+            return 4;
+        } else if (level.intValue() >= Level.INFO.intValue()) {
+            return 6;
+        }
+
+        return 7;
+    }
+}
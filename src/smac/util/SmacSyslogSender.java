@@ -0,0 +1,277 @@
+package smac.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * SmacSyslogSender sends the log records to a syslog server over UDP, or over TCP with octet counting framing, from its
+ * own thread. Records wait in a bounded send queue and are sent in batches; the log writer falls back to the local log
+ * file whenever the queue is full or the syslog server cannot be reached.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacSyslogSender implements Runnable {
+
+    // Syslog sender constants
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final long MAX_RECONNECT_DELAY = 30000;
+    private static final long MIN_RECONNECT_DELAY = 1000;
+    private static final long POLL_TIMEOUT = 100;
+
+    // Class attributes
+    private final InetSocketAddress address;
+    private volatile boolean available;
+    private DatagramSocket datagramSocket;
+    private final Formatter formatter;
+    private OutputStream out;
+    private String pending;
+    private final ArrayBlockingQueue<LogRecord> sendQueue;
+    private volatile boolean running;
+    private Socket socket;
+    private final boolean tcp;
+    private Thread thread;
+
+    /**
+     * SmacSyslogSender constructor
+     *
+     * @param host Hostname of the syslog server
+     * @param port Port of the syslog server
+     * @param tcp Whether messages are sent over TCP instead of UDP
+     * @param formatter Formatter of the syslog messages
+     * @param queueSize Maximum number of log records waiting to be sent
+     */
+    public SmacSyslogSender(String host, int port, boolean tcp, Formatter formatter, int queueSize) {
+
+        // Initialise class attributes
+        this.address = new InetSocketAddress(host, port);
+        this.available = true;
+        this.formatter = formatter;
+        this.pending = null;
+        this.sendQueue = new ArrayBlockingQueue<>(queueSize);
+        this.running = false;
+        this.tcp = tcp;
+    }
+
+    /**
+     * Queue a log record to be sent to the syslog server without waiting
+     *
+     * @param record Log record
+     * @return Whether the record was queued or must be written to the local log file
+     */
+    public boolean offer(LogRecord record) {
+        return this.available && this.sendQueue.offer(record);
+    }
+
+    /**
+     * Send the queued log records until the syslog sender is stopped and the send queue has been drained
+     */
+    @Override
+    public void run() {
+
+        // Delay before the next connection attempt
+        long reconnectDelay = MIN_RECONNECT_DELAY;
+
+        while (this.running || this.pending != null || !this.sendQueue.isEmpty()) {
+
+            try {
+
+                // Connect to the syslog server
+                if (!this.isConnected()) {
+                    this.connect();
+                }
+
+                this.available = true;
+                reconnectDelay = MIN_RECONNECT_DELAY;
+
+                // Send the queued log records in batches
+                this.send();
+
+            } catch (IOException e) {
+
+                // Write the log records to the local log file until the syslog server can be reached again
+                this.available = false;
+                this.disconnect();
+
+                System.err.println("The syslog server " + this.address + " could not be reached: " + e);
+
+                // Give up on the remaining records once the syslog sender has been stopped
+                if (!this.running) {
+                    break;
+                }
+
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException ex) {
+                    break;
+                }
+
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+            }
+        }
+
+        this.disconnect();
+    }
+
+    /**
+     * Start the syslog sender thread
+     */
+    public synchronized void start() {
+
+        // Check if the syslog sender thread has already been started
+        if (this.thread == null) {
+
+            this.running = true;
+
+            this.thread = new Thread(this);
+            this.thread.setName("Syslog thread");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stop the syslog sender thread once the queued log records have been sent
+     *
+     * @param timeout Maximum time in milliseconds to wait for the queued log records to be sent
+     */
+    public void stop(long timeout) {
+
+        this.running = false;
+
+        try {
+            this.thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Open the socket to the syslog server
+     *
+     * @throws IOException
+     */
+    private void connect() throws IOException {
+
+        // Check that the hostname of the syslog server could be resolved
+        if (this.address.isUnresolved()) {
+            throw new IOException("Unknown host " + this.address.getHostString());
+        }
+
+        if (this.tcp) {
+
+            this.socket = new Socket();
+            this.socket.connect(this.address, CONNECT_TIMEOUT);
+            this.out = new BufferedOutputStream(this.socket.getOutputStream(), 65536);
+
+        } else {
+
+            this.datagramSocket = new DatagramSocket();
+            this.datagramSocket.connect(this.address);
+        }
+    }
+
+    /**
+     * Close the socket to the syslog server
+     */
+    private void disconnect() {
+
+        try {
+            if (this.socket != null) {
+                this.socket.close();
+            }
+        } catch (IOException e) {
+            // The socket is discarded anyway
+        }
+
+        if (this.datagramSocket != null) {
+            this.datagramSocket.close();
+        }
+
+        this.datagramSocket = null;
+        this.out = null;
+        this.socket = null;
+    }
+
+    /**
+     * Check whether the socket to the syslog server is open
+     *
+     * @return Whether the syslog sender is connected
+     */
+    private boolean isConnected() {
+        return this.tcp ? this.socket != null : this.datagramSocket != null;
+    }
+
+    /**
+     * Send the log records which are waiting in the send queue
+     *
+     * @throws IOException
+     */
+    private void send() throws IOException {
+
+        // Send the message which failed before reconnecting first
+        if (this.pending == null) {
+
+            LogRecord record;
+            try {
+                record = this.sendQueue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                this.running = false;
+                return;
+            }
+
+            if (record == null) {
+                return;
+            }
+
+            this.pending = this.formatter.format(record);
+        }
+
+        while (this.pending != null) {
+
+            this.write(this.pending);
+
+            // Take the next record without waiting
+            LogRecord record = this.sendQueue.poll();
+            this.pending = record != null ? this.formatter.format(record) : null;
+        }
+
+        // Send the batch over TCP
+        if (this.out != null) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Send a syslog message
+     *
+     * @param message Syslog message
+     * @throws IOException
+     */
+    private void write(String message) throws IOException {
+
+        // Syslog message bytes
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+        if (this.tcp) {
+
+            // Octet counting framing
+            this.out.write(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+            this.out.write(' ');
+            this.out.write(bytes);
+
+        } else {
+            this.datagramSocket.send(new DatagramPacket(bytes, bytes.length));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package smac.util;
+
+/**
+ * SmacTraceStage defines the stages of a SEPAmail message through the SMAC daemon at which its routing task is
+ * timestamped, in the order in which they are reached.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public enum SmacTraceStage {
+
+    /**
+     * The SEPAmail message was noticed by the directory watch service or by the backlog scan of its input queue
+     */
+    WATCH,
+
+    /**
+     * The routing task was locked and added to the process queue of its input queue
+     */
+    ENQUEUE,
+
+    /**
+     * The routing task was taken from the process queue
+     */
+    DEQUEUE,
+
+    /**
+     * The SEPAmail message has been parsed
+     */
+    PARSE,
+
+    /**
+     * The output queue of the SEPAmail message has been determined
+     */
+    ROUTE,
+
+    /**
+     * The output queue has acknowledged the SEPAmail message
+     */
+    MOVE,
+
+    /**
+     * The lock of the SEPAmail message has been released
+     */
+    RELEASE
+}
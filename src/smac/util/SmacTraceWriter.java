@@ -0,0 +1,154 @@
+package smac.util;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.SimpleTimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+/**
+ * SmacTraceWriter appends the sampled traces of the routing tasks to the trace file from its own thread, one line per
+ * trace prefixed with the time at which the trace was taken. Traces wait in a bounded queue and are discarded when it
+ * is full so that tracing never slows down routing.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmacTraceWriter implements Runnable {
+
+    // Trace writer constants
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    private static final long POLL_TIMEOUT = 100;
+
+    // Class attributes
+    private final SimpleDateFormat dateFormat;
+    private final Writer out;
+    private volatile boolean running;
+    private Thread thread;
+    private final ArrayBlockingQueue<LogRecord> traceQueue;
+
+    /**
+     * SmacTraceWriter constructor
+     *
+     * @param filename Name and path of the trace file to which traces are appended
+     * @param queueSize Maximum number of traces waiting to be written
+     * @throws IOException
+     */
+    public SmacTraceWriter(String filename, int queueSize) throws IOException {
+
+        // Initialise class attributes
+        this.dateFormat = new SimpleDateFormat(DATE_FORMAT);
+        this.dateFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename, true),
+                StandardCharsets.UTF_8), 65536);
+        this.running = false;
+        this.traceQueue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Queue a trace to be written without waiting
+     *
+     * @param trace Trace whose message is the line written to the trace file
+     * @return Whether the trace was queued or discarded
+     */
+    public boolean offer(LogRecord trace) {
+        return this.traceQueue.offer(trace);
+    }
+
+    /**
+     * Write the queued traces until the trace writer is stopped and the trace queue has been drained
+     */
+    @Override
+    public void run() {
+
+        while (this.running || !this.traceQueue.isEmpty()) {
+
+            try {
+
+                // Wait for the next trace
+                LogRecord trace = this.traceQueue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (trace == null) {
+                    continue;
+                }
+
+                // Write the traces which are already queued and flush them as a batch
+                while (trace != null) {
+
+                    this.write(trace);
+                    trace = this.traceQueue.poll();
+                }
+
+                this.out.flush();
+
+            } catch (InterruptedException e) {
+
+                this.running = false;
+
+            } catch (IOException e) {
+
+                // The trace file cannot be written to, the traces are discarded
+                System.err.println("The trace file could not be written: " + e);
+            }
+        }
+
+        try {
+            this.out.close();
+        } catch (IOException e) {
+            System.err.println("The trace file could not be closed: " + e);
+        }
+    }
+
+    /**
+     * Start the trace writer thread
+     */
+    public synchronized void start() {
+
+        // Check if the trace writer thread has already been started
+        if (this.thread == null) {
+
+            this.running = true;
+
+            this.thread = new Thread(this);
+            this.thread.setName("Trace thread");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stop the trace writer thread once the queued traces have been written
+     *
+     * @param timeout Maximum time in milliseconds to wait for the queued traces to be written
+     */
+    public void stop(long timeout) {
+
+        this.running = false;
+
+        try {
+            this.thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write a trace line
+     *
+     * @param trace Trace
+     * @throws IOException
+     */
+    private void write(LogRecord trace) throws IOException {
+
+        this.out.write(this.dateFormat.format(new Date(trace.getMillis())));
+        this.out.write(' ');
+        this.out.write(trace.getMessage());
+        this.out.write('\n');
+    }
+}